@@ -0,0 +1,84 @@
+package org.helioviewer.jhv.view.j2k;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.lwjgl.system.MemoryUtil;
+
+// Times the ways J2KDecoder has narrowed Kakadu's 32-bit gray samples to bytes and checks
+// that they agree, on a synthetic compositor buffer with a row stride wider than the region.
+// java -cp bin:lib/*:lib/lwjgl/* org.helioviewer.jhv.view.j2k.GrayCopyBench [width height rounds]
+public class GrayCopyBench {
+
+    private static final long LOW_BYTE = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN ? 0 : 3;
+
+    public static void main(String[] args) throws Exception {
+        int w = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+        int h = args.length > 1 ? Integer.parseInt(args[1]) : 4096;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        int stride = w + 64;
+
+        ByteBuffer src = ByteBuffer.allocateDirect(4 * stride * h).order(ByteOrder.nativeOrder());
+        for (int i = 0; i < stride * h; i++)
+            src.putInt(4 * i, 0xFF000000 | (i * 0x010101 & 0xFFFFFF) ^ (i >>> 7)); // opaque gray-ish ARGB
+        long addr = MemoryUtil.memAddress(src);
+
+        ByteBuffer perByte = ByteBuffer.allocateDirect(w * h);
+        ByteBuffer intRows = ByteBuffer.allocateDirect(w * h);
+        ByteBuffer strided = ByteBuffer.allocateDirect(w * h);
+        perByte(addr, stride, perByte, w, h);
+        intRows(addr, stride, intRows, w, h);
+        strided(addr, stride, strided, w, h);
+        System.out.println("per-byte vs int rows: " + (perByte.equals(intRows) ? "same" : "DIFFERENT (expected on big-endian hosts)"));
+        if (!strided.equals(intRows))
+            throw new Exception("Strided copy differs from the low byte of the samples");
+        System.out.println("strided == low byte of each sample");
+
+        for (int k = 0; k < 2; k++) { // the first round warms up
+            long t0 = System.nanoTime();
+            for (int i = 0; i < rounds; i++)
+                perByte(addr, stride, perByte, w, h);
+            long t1 = System.nanoTime();
+            for (int i = 0; i < rounds; i++)
+                intRows(addr, stride, intRows, w, h);
+            long t2 = System.nanoTime();
+            for (int i = 0; i < rounds; i++)
+                strided(addr, stride, strided, w, h);
+            long t3 = System.nanoTime();
+            System.out.println(String.format("%dx%d: per-byte %.2f ms, int rows %.2f ms, strided %.2f ms", w, h,
+                    (t1 - t0) * 1e-6 / rounds, (t2 - t1) * 1e-6 / rounds, (t3 - t2) * 1e-6 / rounds));
+        }
+    }
+
+    // the original loop, the first byte in memory through the buffer
+    private static void perByte(long addr, int stride, ByteBuffer dst, int w, int h) {
+        for (int row = 0, dstIdx = 0, srcIdx = 0; row < h; row++, dstIdx += w, srcIdx += stride) {
+            for (int col = 0; col < w; ++col)
+                dst.put(dstIdx + col, MemoryUtil.memGetByte(addr + 4 * (srcIdx + col)));
+        }
+    }
+
+    // rows read as ints through fresh views, narrowed and stored through another view
+    private static void intRows(long addr, int stride, ByteBuffer dst, int w, int h) {
+        long dstAddr = MemoryUtil.memAddress(dst);
+        int[] srcRow = new int[w];
+        byte[] dstRow = new byte[w];
+        for (int row = 0, dstIdx = 0, srcIdx = 0; row < h; row++, dstIdx += w, srcIdx += stride) {
+            MemoryUtil.memIntBuffer(addr + 4L * srcIdx, w).get(srcRow, 0, w);
+            for (int col = 0; col < w; ++col)
+                dstRow[col] = (byte) srcRow[col];
+            MemoryUtil.memByteBuffer(dstAddr + dstIdx, w).put(dstRow, 0, w);
+        }
+    }
+
+    // as J2KDecoder now
+    private static void strided(long addr, int stride, ByteBuffer dst, int w, int h) {
+        long dstAddr = MemoryUtil.memAddress(dst);
+        for (int row = 0, dstIdx = 0, srcIdx = 0; row < h; row++, dstIdx += w, srcIdx += stride) {
+            long s = addr + 4L * srcIdx + LOW_BYTE, d = dstAddr + dstIdx;
+            for (int col = 0; col < w; ++col)
+                MemoryUtil.memPutByte(d + col, MemoryUtil.memGetByte(s + 4L * col));
+        }
+    }
+
+}
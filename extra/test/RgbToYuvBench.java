@@ -0,0 +1,130 @@
+package org.helioviewer.jhv.export.jcodec;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.helioviewer.jhv.base.image.MappedImageFactory;
+
+import org.jcodec.common.model.ColorSpace;
+import org.jcodec.common.model.Picture;
+import org.jcodec.common.tools.MathUtil;
+
+// Compares JHVRgbToYuv420j8Bit with the per-pixel conversion it replaced and times both.
+// java [--add-exports java.desktop/sun.awt.image=ALL-UNNAMED] -cp bin:lib/* org.helioviewer.jhv.export.jcodec.RgbToYuvBench [width height frames]
+public class RgbToYuvBench {
+
+    public static void main(String[] args) throws Exception {
+        // even, the old conversion misplaces the luma rows of odd widths
+        int w = args.length > 0 ? Integer.parseInt(args[0]) & ~1 : 1920;
+        int h = args.length > 1 ? Integer.parseInt(args[1]) & ~1 : 1080;
+        int frames = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+
+        BufferedImage img = MappedImageFactory.createCompatible(w, h, BufferedImage.TYPE_3BYTE_BGR);
+        ByteBuffer data = MappedImageFactory.getByteBuffer(img);
+        Random random = new Random(42);
+        byte[] row = new byte[3 * w];
+        for (int y = 0; y < h; y++) {
+            if (y < 16) { // the extremes, the rest is noise
+                for (int i = 0; i < row.length; i++)
+                    row[i] = (byte) (y * 17 + i);
+            } else
+                random.nextBytes(row);
+            data.put(row);
+        }
+
+        Picture expected = Picture.create(w, h, ColorSpace.YUV420J);
+        Picture actual = Picture.create(w, h, ColorSpace.YUV420J);
+        JHVRgbToYuv420j8Bit.Rows rows = new JHVRgbToYuv420j8Bit.Rows(w);
+        transformOld(img, expected);
+        JHVRgbToYuv420j8Bit.transform(img, actual, rows);
+        for (int p = 0; p < 3; p++) {
+            if (!Arrays.equals(expected.getPlaneData(p), actual.getPlaneData(p)))
+                throw new Exception("Plane " + p + " differs");
+        }
+        System.out.println("Planes identical for " + w + 'x' + h);
+
+        for (int k = 0; k < 2; k++) { // the first round warms up
+            long t0 = System.nanoTime();
+            for (int i = 0; i < frames; i++)
+                transformOld(img, expected);
+            long t1 = System.nanoTime();
+            for (int i = 0; i < frames; i++)
+                JHVRgbToYuv420j8Bit.transform(img, actual, rows);
+            long t2 = System.nanoTime();
+            System.out.println(String.format("old %.2f ms/frame, new %.2f ms/frame, %.1fx",
+                    (t1 - t0) * 1e-6 / frames, (t2 - t1) * 1e-6 / frames, (t1 - t0) / (double) (t2 - t1)));
+        }
+        MappedImageFactory.free(img);
+    }
+
+    // the per-pixel conversion before scanlines were copied out in bulk
+    private static void transformOld(BufferedImage img, Picture dst) {
+        int[][] dstData = dst.getData();
+        int[][] out = new int[4][3];
+
+        byte[] bgr = new byte[3];
+        ByteBuffer data = MappedImageFactory.getByteBuffer(img);
+
+        int x, y = 0, h = img.getHeight(), w = img.getWidth();
+        int offChr = 0, offLuma = 0, strideDst = dst.getWidth();
+        for (int i = 0; i < h >> 1; i++) {
+            x = 0;
+            for (int j = 0; j < w >> 1; j++) {
+                get(data, x, y, w, bgr);
+                rgb2yuv(bgr, out[0]);
+                dstData[0][offLuma] = out[0][0];
+
+                get(data, x, y + 1, w, bgr);
+                rgb2yuv(bgr, out[1]);
+                dstData[0][offLuma + strideDst] = out[1][0];
+
+                ++offLuma;
+
+                get(data, x + 1, y, w, bgr);
+                rgb2yuv(bgr, out[2]);
+                dstData[0][offLuma] = out[2][0];
+
+                get(data, x + 1, y + 1, w, bgr);
+                rgb2yuv(bgr, out[3]);
+                dstData[0][offLuma + strideDst] = out[3][0];
+
+                ++offLuma;
+
+                dstData[1][offChr] = ((out[0][1] + out[1][1] + out[2][1] + out[3][1] + 2) >> 2);
+                dstData[2][offChr] = ((out[0][2] + out[1][2] + out[2][2] + out[3][2] + 2) >> 2);
+
+                ++offChr;
+                x += 2;
+            }
+            offLuma += strideDst;
+            y += 2;
+        }
+    }
+
+    private static void get(ByteBuffer data, int x, int y, int w, byte[] bgr) {
+        int i = 3 * (w * y + x);
+        bgr[0] = data.get(i);
+        bgr[1] = data.get(i + 1);
+        bgr[2] = data.get(i + 2);
+    }
+
+    private static void rgb2yuv(byte[] bgr, int[] out) {
+        int b = bgr[0] & 0xFF;
+        int g = bgr[1] & 0xFF;
+        int r = bgr[2] & 0xFF;
+
+        int y = 66 * r + 129 * g + 25 * b;
+        int u = -38 * r - 74 * g + 112 * b;
+        int v = 112 * r - 94 * g - 18 * b;
+        y = (y + 128) >> 8;
+        u = (u + 128) >> 8;
+        v = (v + 128) >> 8;
+
+        out[0] = MathUtil.clip(y + 16, 0, 255);
+        out[1] = MathUtil.clip(u + 128, 0, 255);
+        out[2] = MathUtil.clip(v + 128, 0, 255);
+    }
+
+}
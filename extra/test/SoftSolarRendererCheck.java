@@ -0,0 +1,184 @@
+package org.helioviewer.jhv.opengl;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.Properties;
+
+import javax.imageio.ImageIO;
+
+import org.helioviewer.jhv.astronomy.Sun;
+import org.helioviewer.jhv.astronomy.UpdateViewpoint;
+import org.helioviewer.jhv.base.scale.GridScale;
+import org.helioviewer.jhv.camera.Camera;
+import org.helioviewer.jhv.display.Display;
+import org.helioviewer.jhv.display.Viewport;
+import org.helioviewer.jhv.imagedata.ImageBuffer;
+import org.helioviewer.jhv.imagedata.ImageData;
+import org.helioviewer.jhv.math.MathUtils;
+import org.helioviewer.jhv.math.Quat;
+import org.helioviewer.jhv.metadata.MetaData;
+import org.helioviewer.jhv.metadata.PixelBasedMetaData;
+import org.helioviewer.jhv.position.Position;
+import org.helioviewer.jhv.time.JHVDate;
+
+// Renders a synthetic disc in each projection, compares the frames with the digests in
+// SoftSolarRenderer.golden and reports the throughput. -update rewrites the digests,
+// a mismatching frame is written as PNG next to the digests for inspection.
+// java -Djava.awt.headless=true -cp bin:resources:lib/*:lib/jogl/* org.helioviewer.jhv.opengl.SoftSolarRendererCheck [-update] [width height frames]
+public class SoftSolarRendererCheck {
+
+    private static final File golden = new File("extra/test/SoftSolarRenderer.golden");
+
+    public static void main(String[] args) throws Exception {
+        int a = 0;
+        boolean update = args.length > 0 && "-update".equals(args[0]);
+        if (update)
+            a++;
+        int w = args.length > a ? Integer.parseInt(args[a]) : 1920;
+        int h = args.length > a + 1 ? Integer.parseInt(args[a + 1]) : 1080;
+        int frames = args.length > a + 2 ? Integer.parseInt(args[a + 2]) : 20;
+
+        ImageData imageData = createImage(1024);
+        MetaData m = imageData.getMetaData();
+        Position viewpoint = m.getViewpoint();
+        JHVDate time = viewpoint.time;
+        GLImage glImage = new GLImage();
+
+        Properties digests = new Properties();
+        if (golden.exists()) {
+            try (InputStream in = new FileInputStream(golden)) {
+                digests.load(in);
+            }
+        }
+
+        boolean failed = false;
+        SoftSolarRenderer renderer = new SoftSolarRenderer(w, h);
+        ByteBuffer bgr = ByteBuffer.allocate(3 * w * h);
+        for (Display.DisplayMode mode : Display.DisplayMode.values()) {
+            Display.mode = mode;
+            Display.setGLSize(0, 0, w, h);
+            Display.reshapeAll();
+            Viewport vp = Display.getViewport(0);
+            setPolarScale(mode, m);
+
+            Camera camera = new Camera(new UpdateViewpoint.AbstractUpdateViewpoint() {
+                @Override
+                public Position update(JHVDate t) {
+                    return viewpoint;
+                }
+            });
+            camera.timeChanged(time);
+            if (mode == Display.DisplayMode.Orthographic) // as BatchExport.fitCamera
+                camera.setFOV(2. * Math.atan2(0.5 * m.getPhysicalRegion().height, camera.getViewpoint().distance));
+
+            renderer.clear();
+            renderer.render(camera, vp, mode, glImage, imageData, null, null);
+            renderer.getBGR(bgr);
+            String digest = digest(w + "x" + h, bgr);
+
+            String key = mode + "." + w + 'x' + h;
+            String expected = digests.getProperty(key);
+            String result;
+            if (update) {
+                digests.setProperty(key, digest);
+                result = "updated";
+            } else if (expected == null) {
+                result = "no golden digest";
+            } else if (expected.equals(digest)) {
+                result = "ok";
+            } else {
+                failed = true;
+                File png = new File(golden.getParentFile(), key + ".png");
+                writePNG(bgr, w, h, png);
+                result = "MISMATCH, written to " + png;
+            }
+
+            long t0 = System.nanoTime();
+            for (int i = 0; i < frames; i++) {
+                renderer.clear();
+                renderer.render(camera, vp, mode, glImage, imageData, null, null);
+            }
+            double seconds = (System.nanoTime() - t0) * 1e-9;
+            System.out.println(String.format("%-12s %s %s, %.1f Mpixel/s", mode, digest.substring(0, 12), result, frames * (double) w * h / seconds * 1e-6));
+        }
+
+        if (update) {
+            try (OutputStream out = new FileOutputStream(golden)) {
+                digests.store(out, "SHA-256 of the BGR frames of SoftSolarRendererCheck");
+            }
+        }
+        if (failed)
+            System.exit(1);
+    }
+
+    // radial limb darkening with an angular pattern, extending past the limb to exercise the corona
+    private static ImageData createImage(int size) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(size * size);
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                double dx = (x + .5) / size - .5, dy = (y + .5) / size - .5;
+                double r = 2 * Math.sqrt(dx * dx + dy * dy);
+                double v = r < 1 ? 0.3 + 0.7 * Math.sqrt(1 - r * r) : 0.4 * Math.exp(-8 * (r - 1));
+                v *= 0.8 + 0.2 * StrictMath.cos(12 * StrictMath.atan2(dy, dx));
+                buffer.put((byte) (int) (255 * MathUtils.clip(v, 0, 1) + .5));
+            }
+        }
+        buffer.flip();
+
+        // the default viewpoint is Earth at startup, which would make the frames depend on the day
+        Position viewpoint = Sun.getEarth(new JHVDate(1388534400000L)); // 2014-01-01
+        MetaData m = new PixelBasedMetaData(size, size, 0) {
+            @Override
+            public Position getViewpoint() {
+                return viewpoint;
+            }
+
+            @Override
+            public Quat getCenterRotation() {
+                return viewpoint.toQuat();
+            }
+        };
+        ImageData imageData = new ImageData(new ImageBuffer(size, size, ImageBuffer.Format.Gray8, buffer));
+        imageData.setMetaData(m);
+        imageData.setRegion(m.getPhysicalRegion());
+        imageData.setViewpoint(m.getViewpoint());
+        return imageData;
+    }
+
+    // as BatchExport.setPolarScale
+    private static void setPolarScale(Display.DisplayMode mode, MetaData m) {
+        double size = Math.hypot(m.getPhysicalRegion().width, m.getPhysicalRegion().height);
+        if (mode == Display.DisplayMode.Polar)
+            GridScale.polar.set(0, 360, 0, 0.5 * size);
+        else if (mode == Display.DisplayMode.LogPolar)
+            GridScale.logpolar.set(0, 360, 0.05, Math.max(0.05, 0.5 * size));
+    }
+
+    private static String digest(String prefix, ByteBuffer bgr) throws Exception {
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        md.update(prefix.getBytes("UTF-8"));
+        md.update(bgr.duplicate());
+        StringBuilder sb = new StringBuilder();
+        for (byte b : md.digest())
+            sb.append(String.format("%02x", b));
+        return sb.toString();
+    }
+
+    private static void writePNG(ByteBuffer bgr, int w, int h, File file) throws Exception {
+        BufferedImage image = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int i = 3 * ((h - 1 - y) * w + x); // bottom row first
+                image.setRGB(x, y, (bgr.get(i + 2) & 0xFF) << 16 | (bgr.get(i + 1) & 0xFF) << 8 | (bgr.get(i) & 0xFF));
+            }
+        }
+        ImageIO.write(image, "png", file);
+    }
+
+}
@@ -11,6 +11,7 @@ import java.util.TimeZone;
 import javax.swing.JComponent;
 import javax.swing.JFrame;
 
+import org.helioviewer.jhv.export.BatchExport;
 import org.helioviewer.jhv.gui.JHVFrame;
 import org.helioviewer.jhv.gui.Message;
 import org.helioviewer.jhv.gui.UIGlobals;
@@ -45,11 +46,15 @@ public class JHelioviewer {
             return;
         }
 
-        if (isHeadless())
-            throw new Exception("This application cannot run in a headless configuration.");
+        boolean batch = CommandLine.isBatch();
+        if (batch) // no display needed
+            System.setProperty("java.awt.headless", "true");
+        else if (isHeadless())
+            throw new Exception("This application cannot run in a headless configuration, use -batch to export.");
 
         // Uncaught runtime errors are displayed in a dialog box in addition
-        JHVUncaughtExceptionHandler.setupHandlerForThread();
+        if (!batch)
+            JHVUncaughtExceptionHandler.setupHandlerForThread();
         // Save current default system timezone in user.timezone
         System.setProperty("user.timezone", TimeZone.getDefault().getID());
         // Per default all times should be given in GMT
@@ -105,6 +110,10 @@ public class JHelioviewer {
             Log.error("AIA response map load error", e);
         }
 
+        if (batch) {
+            System.exit(BatchExport.run() ? 0 : 1);
+        }
+
         EventQueue.invokeLater(() -> {
             UIGlobals.setUIFont(UIGlobals.uiFont);
 
@@ -23,6 +23,9 @@ public class Settings {
             super.setProperty("display.normalize", "false");
             super.setProperty("timeout.read", "120000");
             super.setProperty("timeout.connect", "30000");
+            super.setProperty("cache.decoded.size", "1024");
+            super.setProperty("jpip.pipeline", "4");
+            super.setProperty("jpip.channels", "1");
             super.setProperty("update.next", "0");
         }
     };
@@ -8,7 +8,9 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.concurrent.Callable;
@@ -61,13 +63,15 @@ public class EventDatabase {
     public static int config_hash;
 
     private static final String INSERT_EVENT = "INSERT INTO events(uid) VALUES(?)";
-    private static final String INSERT_FULL_EVENT = "INSERT INTO events(type_id, uid, start, end, archiv, data) VALUES(?,?,?,?,?,?)";
+    private static final String UPSERT_EVENT = "INSERT INTO events(type_id, uid, start, end, archiv, data) VALUES(?,?,?,?,?,?) " +
+            "ON CONFLICT(uid) DO UPDATE SET type_id=excluded.type_id, start=excluded.start, end=excluded.end, data=excluded.data";
     private static final String SELECT_EVENT_TYPE = "SELECT id FROM event_type WHERE name=? AND supplier=?";
     private static final String INSERT_EVENT_TYPE = "INSERT INTO event_type(name, supplier) VALUES(?,?)";
     private static final String INSERT_LINK = "INSERT INTO event_link(left_id, right_id) VALUES(?,?)";
     private static final String SELECT_EVENT_ID_FROM_UID = "SELECT id FROM events WHERE uid=?";
-    private static final String SELECT_LAST_INSERT = "SELECT last_insert_rowid()";
-    private static final String UPDATE_EVENT = "UPDATE events SET type_id=?, uid=?,  start=?, end=?, data=? WHERE id=?";
+    private static final int UID_CHUNK = 500;
+    private static final String SELECT_EVENT_IDS_FROM_UIDS = "SELECT uid, id FROM events WHERE uid IN (" + String.join(",", Collections.nCopies(UID_CHUNK, "?")) + ")";
+    private static final String INSERT_TEMP_ID = "INSERT INTO temp.inserted_ids(id) VALUES(?)";
     private static final String DELETE_DATERANGE = "DELETE FROM date_range where type_id=?";
     private static final String INSERT_DATERANGE = "INSERT INTO date_range(type_id,  start, end) VALUES(?,?,?)";
     private static final String SELECT_DATERANGE = "SELECT start, end FROM date_range where type_id=? order by start, end ";
@@ -178,46 +182,6 @@ public class EventDatabase {
         }
     }
 
-    private static int dump_associationint2db(Connection connection, ArrayList<Pair<Integer, Integer>> assocs) {
-        int len = assocs.size();
-        int i = 0;
-        int errorcode = 0;
-        while (i < len && errorcode == 0) {
-            Pair<Integer, Integer> assoc = assocs.get(i);
-            int id0 = assoc.a;
-            int id1 = assoc.b;
-
-            if (id0 != -1 && id1 != -1 && id0 != id1) {
-                try {
-                    PreparedStatement pstatement = getPreparedStatement(connection, INSERT_LINK);
-                    /* Avoid circular insertions by pre-ordering events */
-                    if (id0 < id1) {
-                        pstatement.setInt(1, id0);
-                        pstatement.setInt(2, id1);
-                    } else {
-                        pstatement.setInt(1, id1);
-                        pstatement.setInt(2, id0);
-                    }
-                    pstatement.executeUpdate();
-                } catch (SQLException e) {
-                    Log.error("Failed to insert association " + e.getMessage());
-                    errorcode = -1;
-                }
-            } else if (id0 != id1) {
-                errorcode = -1;
-                Log.error("Could not add association to database ");
-            }
-            i++;
-        }
-        try {
-            connection.commit();
-        } catch (SQLException e1) {
-            Log.error("Could not reset autocommit");
-            errorcode = -1;
-        }
-        return errorcode;
-    }
-
     public static Integer dump_association2db(Pair<String, String>[] assocs) {
         FutureTask<Integer> ft = new FutureTask<>(new DumpAssociation2Db(assocs));
         executor.execute(ft);
@@ -275,23 +239,6 @@ public class EventDatabase {
         }
     }
 
-    private static int getEventId(Connection connection, String uid) {
-        int generatedKey = -1;
-        try {
-            PreparedStatement pstatement = getPreparedStatement(connection, SELECT_EVENT_ID_FROM_UID);
-            pstatement.setString(1, uid);
-
-            try (ResultSet rs = pstatement.executeQuery()) {
-                if (rs.next()) {
-                    generatedKey = rs.getInt(1);
-                }
-            }
-        } catch (SQLException e) {
-            Log.error("Could not select event with uid " + uid + e.getMessage());
-        }
-        return generatedKey;
-    }
-
     private static int[] get_id_init_list(int sz) {
         int[] inserted_ids = new int[sz];
         for (int i = 0; i < sz; i++) {
@@ -327,94 +274,157 @@ public class EventDatabase {
             if (connection == null) {
                 return inserted_ids;
             }
+
+            int typeId = getEventTypeId(connection, type);
+            if (typeId == -1) {
+                Log.error("Failed to insert events");
+                return inserted_ids;
+            }
+
+            // the whole chunk is written in one transaction
             try {
-                int typeId = getEventTypeId(connection, type);
+                PreparedStatement pstatement = getPreparedStatement(connection, UPSERT_EVENT);
+                for (Event2Db event2db : event2db_list) {
+                    pstatement.setInt(1, typeId);
+                    pstatement.setString(2, event2db.uid);
+                    pstatement.setLong(3, event2db.start);
+                    pstatement.setLong(4, event2db.end);
+                    pstatement.setLong(5, event2db.archiv);
+                    pstatement.setBytes(6, event2db.compressedJson);
+                    pstatement.addBatch();
+                }
+                pstatement.executeBatch();
+
+                HashMap<String, Integer> ids = getIdsFromUIDs(connection, event2db_list);
+                HashMap<String, PreparedStatement> typeStatements = new HashMap<>();
                 int llen = event2db_list.size();
                 for (int i = 0; i < llen; i++) {
                     Event2Db event2db = event2db_list.get(i);
-                    int generatedKey = -1;
-                    if (typeId != -1) {
-                        generatedKey = getEventId(connection, event2db.uid);
-
-                        if (generatedKey == -1) {
-                            {
-                                PreparedStatement pstatement = getPreparedStatement(connection, INSERT_FULL_EVENT);
-                                pstatement.setInt(1, typeId);
-                                pstatement.setString(2, event2db.uid);
-                                pstatement.setLong(3, event2db.start);
-                                pstatement.setLong(4, event2db.end);
-                                pstatement.setLong(5, event2db.archiv);
-                                pstatement.setBinaryStream(6, new ByteArrayInputStream(event2db.compressedJson), event2db.compressedJson.length);
-                                pstatement.executeUpdate();
-                            }
-                            {
-                                PreparedStatement pstatement = getPreparedStatement(connection, SELECT_LAST_INSERT);
-
-                                try (ResultSet rs = pstatement.executeQuery()) {
-                                    if (rs.next()) {
-                                        generatedKey = rs.getInt(1);
-                                    }
-                                }
-                            }
-                        } else {
-                            PreparedStatement pstatement = getPreparedStatement(connection, UPDATE_EVENT);
-                            pstatement.setInt(1, typeId);
-                            pstatement.setString(2, event2db.uid);
-                            pstatement.setLong(3, event2db.start);
-                            pstatement.setLong(4, event2db.end);
-                            pstatement.setBinaryStream(5, new ByteArrayInputStream(event2db.compressedJson), event2db.compressedJson.length);
-                            pstatement.setInt(6, generatedKey);
-                            pstatement.executeUpdate();
-                        }
-                        {
-                            StringBuilder fieldString = new StringBuilder();
-                            StringBuilder varString = new StringBuilder();
-                            for (JHVDatabaseParam p : event2db.paramList) {
-                                fieldString.append(',').append(p.getParamName());
-                                varString.append(",?");
-                            }
-                            String full_statement = "INSERT INTO " + type.getDatabaseName() + "(event_id" + fieldString + ") VALUES(?" + varString + ")";
-                            PreparedStatement pstatement = getPreparedStatement(connection, full_statement);
-                            pstatement.setInt(1, generatedKey);
-
-                            int index = 2;
-                            for (JHVDatabaseParam p : event2db.paramList) {
-                                if (p.isInt()) {
-                                    pstatement.setInt(index, p.getIntValue());
-                                } else if (p.isString()) {
-                                    pstatement.setString(index, p.getStringValue());
-                                } else if (p.isDouble()) {
-                                    pstatement.setDouble(index, p.getDoubleValue());
-                                }
-                                index++;
-                            }
-                            pstatement.executeUpdate();
+                    Integer id = ids.get(event2db.uid);
+                    if (id == null)
+                        continue;
+                    inserted_ids[i] = id;
+
+                    StringBuilder fieldString = new StringBuilder();
+                    StringBuilder varString = new StringBuilder();
+                    for (JHVDatabaseParam p : event2db.paramList) {
+                        fieldString.append(',').append(p.getParamName());
+                        varString.append(",?");
+                    }
+                    String full_statement = "INSERT INTO " + type.getDatabaseName() + "(event_id" + fieldString + ") VALUES(?" + varString + ")";
+                    PreparedStatement tstatement = typeStatements.computeIfAbsent(full_statement, k -> getPreparedStatement(connection, k));
+                    tstatement.setInt(1, id);
+
+                    int index = 2;
+                    for (JHVDatabaseParam p : event2db.paramList) {
+                        if (p.isInt()) {
+                            tstatement.setInt(index, p.getIntValue());
+                        } else if (p.isString()) {
+                            tstatement.setString(index, p.getStringValue());
+                        } else if (p.isDouble()) {
+                            tstatement.setDouble(index, p.getDoubleValue());
                         }
-                    } else {
-                        Log.error("Failed to insert event");
+                        index++;
                     }
-                    inserted_ids[i] = generatedKey;
+                    tstatement.addBatch();
                 }
+                for (PreparedStatement tstatement : typeStatements.values())
+                    tstatement.executeBatch();
+
+                insertSimilarRelations(connection, type, inserted_ids);
                 connection.commit();
             } catch (SQLException e) {
-                Log.error("Could not insert event " + e.getMessage());
+                Log.error("Could not insert events " + e.getMessage());
+                try {
+                    connection.rollback();
+                } catch (SQLException ignore) {
+                }
+                return get_id_init_list(event2db_list.size());
             }
-            ArrayList<Pair<Integer, Integer>> assocs = new ArrayList<>();
+
             for (int id : inserted_ids) {
                 if (id == -1) {
                     Log.error("failed to dump to database");
-                    assocs.add(new Pair<>(1, 1));
-                } else {
-                    ArrayList<JHVEvent> rels = _getOtherRelations(id, type, true, false, true);
-                    rels.forEach(rel -> assocs.add(new Pair<>(id, rel.getUniqueID())));
                 }
             }
-            dump_associationint2db(connection, assocs);
-
             return inserted_ids;
         }
     }
 
+    // one query per chunk of uids, unused parameters are padded with NULL which matches nothing
+    private static HashMap<String, Integer> getIdsFromUIDs(Connection connection, ArrayList<Event2Db> event2db_list) throws SQLException {
+        HashMap<String, Integer> ids = new HashMap<>();
+        PreparedStatement pstatement = getPreparedStatement(connection, SELECT_EVENT_IDS_FROM_UIDS);
+        int len = event2db_list.size();
+        for (int i = 0; i < len; i += UID_CHUNK) {
+            for (int j = 0; j < UID_CHUNK; j++) {
+                if (i + j < len)
+                    pstatement.setString(j + 1, event2db_list.get(i + j).uid);
+                else
+                    pstatement.setNull(j + 1, Types.VARCHAR);
+            }
+            try (ResultSet rs = pstatement.executeQuery()) {
+                while (rs.next()) {
+                    ids.put(rs.getString(1), rs.getInt(2));
+                }
+            }
+        }
+        return ids;
+    }
+
+    // links the new events to the events of the same type they relate to, one join per relation rule
+    private static void insertSimilarRelations(Connection connection, SWEKSupplier type, int[] inserted_ids) throws SQLException {
+        List<Pair<String, String>> rules = getSimilarRelationRules(type);
+        if (rules.isEmpty())
+            return;
+
+        try (Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout(30);
+            statement.executeUpdate("CREATE TEMP TABLE IF NOT EXISTS inserted_ids (id INTEGER PRIMARY KEY)");
+            statement.executeUpdate("DELETE FROM temp.inserted_ids");
+        }
+        PreparedStatement istatement = getPreparedStatement(connection, INSERT_TEMP_ID);
+        for (int id : inserted_ids) {
+            if (id != -1) {
+                istatement.setInt(1, id);
+                istatement.addBatch();
+            }
+        }
+        istatement.executeBatch();
+
+        String table = type.getDatabaseName();
+        PreparedStatement lstatement = getPreparedStatement(connection, INSERT_LINK);
+        for (Pair<String, String> rule : rules) {
+            String sqlt = "SELECT tl.event_id, tr.event_id FROM " + table + " AS tl, " + table + " AS tr WHERE tl." + rule.a + "=tr." + rule.b +
+                    " AND tl.event_id!=tr.event_id AND (tl.event_id IN (SELECT id FROM temp.inserted_ids) OR tr.event_id IN (SELECT id FROM temp.inserted_ids))";
+            try (ResultSet rs = getPreparedStatement(connection, sqlt).executeQuery()) {
+                while (rs.next()) {
+                    int id0 = rs.getInt(1);
+                    int id1 = rs.getInt(2);
+                    /* Avoid circular insertions by pre-ordering events */
+                    lstatement.setInt(1, Math.min(id0, id1));
+                    lstatement.setInt(2, Math.max(id0, id1));
+                    lstatement.addBatch();
+                }
+            }
+        }
+        lstatement.executeBatch();
+    }
+
+    private static List<Pair<String, String>> getSimilarRelationRules(SWEKSupplier type) {
+        SWEKGroup group = type.getGroup();
+        ArrayList<Pair<String, String>> rules = new ArrayList<>();
+        for (SWEKRelatedEvents re : SWEKGroup.getSWEKRelatedEvents()) {
+            boolean left = re.getGroup() == group && re.getRelatedWith().getSuppliers().contains(type);
+            boolean right = re.getRelatedWith() == group && re.getGroup().getSuppliers().contains(type);
+            if (left || right) {
+                for (SWEKRelatedOn swon : re.getRelatedOnList())
+                    rules.add(new Pair<>(swon.parameterFrom.getParameterName().toLowerCase(), swon.parameterWith.getParameterName().toLowerCase()));
+            }
+        }
+        return rules;
+    }
+
     private static JHVEvent parseJSON(JsonEvent jsonEvent, boolean full) throws IOException {
         try (InputStream bais = new ByteArrayInputStream(jsonEvent.json); InputStream is = new GZIPInputStream(bais)) {
             return jsonEvent.type.getSource().getHandler().parseEventJSON(JSONUtils.get(is), jsonEvent.type, jsonEvent.id, jsonEvent.start, jsonEvent.end, full);
@@ -435,11 +445,11 @@ public class EventDatabase {
     }
 
     public static ArrayList<JHVEvent> getOtherRelations(int id, SWEKSupplier jhvEventType, boolean similartype, boolean full) {
-        return _getOtherRelations(id, jhvEventType, similartype, full, false);
+        return _getOtherRelations(id, jhvEventType, similartype, full);
     }
 
     //Given an event id and its type, return all related events. If similartype is true, return only related events having the same type.
-    private static ArrayList<JHVEvent> _getOtherRelations(int id, SWEKSupplier jhvEventType, boolean similartype, boolean full, boolean is_dbthread) {
+    private static ArrayList<JHVEvent> _getOtherRelations(int id, SWEKSupplier jhvEventType, boolean similartype, boolean full) {
         SWEKGroup group = jhvEventType.getGroup();
         ArrayList<JHVEvent> nEvents = new ArrayList<>();
         ArrayList<JsonEvent> jsonEvents = new ArrayList<>();
@@ -453,10 +463,7 @@ public class EventDatabase {
                     SWEKGroup reType = re.getRelatedWith();
                     for (SWEKSupplier supplier : reType.getSuppliers()) {
                         if (similartype == (supplier == jhvEventType))
-                            if (is_dbthread)
-                                jsonEvents.addAll(rel2prog(id, jhvEventType, supplier, f, w));
-                            else
-                                jsonEvents.addAll(relations2Program(id, jhvEventType, supplier, f, w));
+                            jsonEvents.addAll(relations2Program(id, jhvEventType, supplier, f, w));
                     }
                 }
             }
@@ -469,10 +476,7 @@ public class EventDatabase {
                     SWEKGroup reType = re.getGroup();
                     for (SWEKSupplier supplier : reType.getSuppliers()) {
                         if (similartype == (supplier == jhvEventType))
-                            if (is_dbthread)
-                                jsonEvents.addAll(rel2prog(id, supplier, jhvEventType, f, w));
-                            else
-                                jsonEvents.addAll(relations2Program(id, supplier, jhvEventType, f, w));
+                            jsonEvents.addAll(relations2Program(id, supplier, jhvEventType, f, w));
                     }
                 }
             }
@@ -488,7 +492,7 @@ public class EventDatabase {
         }
 
         JsonEvent ev;
-        if (!is_dbthread && (ev = event2Program(id)) != null) {
+        if ((ev = event2Program(id)) != null) {
             jsonEvents.add(ev);
             try {
                 nEvents.add(parseJSON(ev, full));
@@ -20,6 +20,17 @@ public class EventDatabaseThread extends Thread {
         super(r, name);
     }
 
+    // WAL lets readers proceed during writes and needs only NORMAL sync for durability across application crashes
+    private static void setPragmas() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout(30);
+            statement.execute("PRAGMA journal_mode=WAL");
+            statement.execute("PRAGMA synchronous=NORMAL");
+            statement.execute("PRAGMA cache_size=-65536"); // 64MB
+            statement.execute("PRAGMA temp_store=MEMORY");
+        }
+    }
+
     private static void createSchema() {
         try {
             try (Statement statement = connection.createStatement()) {
@@ -55,6 +66,7 @@ public class EventDatabaseThread extends Thread {
                 File f = new File(filepath);
                 boolean fexist = f.canRead() && !f.isDirectory();
                 connection = DriverManager.getConnection("jdbc:sqlite:" + filepath);
+                setPragmas();
 
                 if (fexist) {
                     String sqlt = "SELECT version, hash from version LIMIT 1";
@@ -75,7 +87,10 @@ public class EventDatabaseThread extends Thread {
                     if (found_version != CURRENT_VERSION_SCHEMA || EventDatabase.config_hash != found_hash) {
                         connection.close();
                         new File(filepath).delete();
+                        new File(filepath + "-wal").delete();
+                        new File(filepath + "-shm").delete();
                         connection = DriverManager.getConnection("jdbc:sqlite:" + filepath);
+                        setPragmas();
                         createSchema();
                     }
                 } else {
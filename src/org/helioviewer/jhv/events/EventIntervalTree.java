@@ -0,0 +1,110 @@
+package org.helioviewer.jhv.events;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Related events of one supplier indexed by time span: a treap ordered by start time, where each
+// node knows the latest end in its subtree, so that subtrees ending before a query are skipped
+class EventIntervalTree {
+
+    private static class Node {
+
+        final long start;
+        final long end;
+        final long seq; // tie-break between equal starts
+        final JHVRelatedEvents event;
+        final int priority = ThreadLocalRandom.current().nextInt();
+
+        long maxEnd;
+        Node left;
+        Node right;
+
+        Node(long _start, long _end, long _seq, JHVRelatedEvents _event) {
+            start = _start;
+            end = _end;
+            seq = _seq;
+            event = _event;
+            maxEnd = end;
+        }
+
+    }
+
+    private Node root;
+
+    private static long maxEnd(Node t) {
+        return t == null ? Long.MIN_VALUE : t.maxEnd;
+    }
+
+    private static void update(Node t) {
+        t.maxEnd = Math.max(t.end, Math.max(maxEnd(t.left), maxEnd(t.right)));
+    }
+
+    private static boolean before(Node t, long start, long seq) {
+        return t.start < start || (t.start == start && t.seq < seq);
+    }
+
+    // nodes before (start, seq) in ret[0], the others in ret[1]
+    private static void split(Node t, long start, long seq, Node[] ret) {
+        if (t == null) {
+            ret[0] = ret[1] = null;
+        } else if (before(t, start, seq)) {
+            split(t.right, start, seq, ret);
+            t.right = ret[0];
+            update(t);
+            ret[0] = t;
+        } else {
+            split(t.left, start, seq, ret);
+            t.left = ret[1];
+            update(t);
+            ret[1] = t;
+        }
+    }
+
+    // all of l before all of r
+    private static Node merge(Node l, Node r) {
+        if (l == null)
+            return r;
+        if (r == null)
+            return l;
+        if (l.priority > r.priority) {
+            l.right = merge(l.right, r);
+            update(l);
+            return l;
+        } else {
+            r.left = merge(l, r.left);
+            update(r);
+            return r;
+        }
+    }
+
+    void add(long start, long end, long seq, JHVRelatedEvents event) {
+        Node[] lr = new Node[2];
+        split(root, start, seq, lr);
+        root = merge(merge(lr[0], new Node(start, end, seq, event)), lr[1]);
+    }
+
+    void remove(long start, long seq) {
+        Node[] lr = new Node[2];
+        split(root, start, seq, lr);
+        Node left = lr[0];
+        split(lr[1], start, seq + 1, lr);
+        root = merge(left, lr[1]); // lr[0] is the removed node
+    }
+
+    // events overlapping [start, end] inclusively, in order of start time
+    void query(long start, long end, List<JHVRelatedEvents> out) {
+        query(root, start, end, out);
+    }
+
+    private static void query(Node t, long start, long end, List<JHVRelatedEvents> out) {
+        if (t == null || t.maxEnd < start)
+            return;
+        query(t.left, start, end, out);
+        if (t.start > end) // so is the rest
+            return;
+        if (t.end >= start)
+            out.add(t.event);
+        query(t.right, start, end, out);
+    }
+
+}
@@ -7,7 +7,6 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.SortedMap;
 
 import org.helioviewer.jhv.base.interval.Interval;
 import org.helioviewer.jhv.base.interval.RequestCache;
@@ -16,10 +15,9 @@ import org.helioviewer.jhv.time.TimeUtils;
 public class JHVEventCache {
 
     private static final double FACTOR = 0.2;
-    private static final long DELTAT_GET = TimeUtils.DAY_IN_MILLIS;
 
     private static final HashSet<JHVEventHandler> cacheEventHandlers = new HashSet<>();
-    private static final HashMap<SWEKSupplier, SortedMap<Interval, JHVRelatedEvents>> events = new HashMap<>();
+    private static final HashMap<SWEKSupplier, EventIntervalTree> events = new HashMap<>();
     private static final HashMap<Integer, JHVRelatedEvents> relEvents = new HashMap<>();
     private static final HashSet<SWEKSupplier> activeEventTypes = new HashSet<>();
     private static final HashMap<SWEKSupplier, RequestCache> downloadedCache = new HashMap<>();
@@ -127,18 +125,18 @@ public class JHVEventCache {
         }
     }
 
-    public static Map<SWEKSupplier, SortedMap<Interval, JHVRelatedEvents>> getEvents(long start, long end) {
+    // exactly the events overlapping [start, end], in order of start time
+    public static Map<SWEKSupplier, List<JHVRelatedEvents>> getEvents(long start, long end) {
         if (activeEventTypes.isEmpty())
             return Collections.emptyMap();
 
-        Interval first = new Interval(start - DELTAT_GET, start - DELTAT_GET);
-        Interval last = new Interval(end + DELTAT_GET, end + DELTAT_GET);
-
-        HashMap<SWEKSupplier, SortedMap<Interval, JHVRelatedEvents>> result = new HashMap<>();
+        HashMap<SWEKSupplier, List<JHVRelatedEvents>> result = new HashMap<>();
         for (SWEKSupplier evt : activeEventTypes) {
-            SortedMap<Interval, JHVRelatedEvents> sortedEvents = events.get(evt);
-            if (sortedEvents != null) {
-                result.put(evt, sortedEvents.subMap(first, last));
+            EventIntervalTree tree = events.get(evt);
+            if (tree != null) {
+                ArrayList<JHVRelatedEvents> list = new ArrayList<>();
+                tree.query(start, end, list);
+                result.put(evt, list);
             }
         }
         return result;
@@ -4,8 +4,6 @@ import java.awt.Color;
 import java.awt.Point;
 import java.util.ArrayList;
 import java.util.Map;
-import java.util.SortedMap;
-import java.util.TreeMap;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -18,25 +16,25 @@ import org.helioviewer.jhv.timelines.draw.ClickableDrawable;
 public class JHVRelatedEvents implements ClickableDrawable {
 
     private static final ArrayList<JHVEventHighlightListener> listeners = new ArrayList<>();
+    private static long sequence;
 
     private final ArrayList<JHVEvent> events = new ArrayList<>();
     private final ArrayList<JHVAssociation> associations = new ArrayList<>();
     private final SWEKSupplier supplier;
     private final Color color;
+    private final long seq = sequence++; // identity in the index
 
     private Interval interval;
     private boolean highlighted;
 
-    JHVRelatedEvents(JHVEvent event, Map<SWEKSupplier, SortedMap<Interval, JHVRelatedEvents>> eventsMap) {
+    JHVRelatedEvents(JHVEvent event, Map<SWEKSupplier, EventIntervalTree> eventsMap) {
         supplier = event.getSupplier();
         color = JHVCacheColors.getNextColor();
         highlighted = false;
 
         events.add(event);
-        eventsMap.putIfAbsent(supplier, new TreeMap<>());
-
         interval = new Interval(event.start, event.end);
-        eventsMap.get(supplier).put(interval, this);
+        eventsMap.computeIfAbsent(supplier, k -> new EventIntervalTree()).add(interval.start, interval.end, seq, this);
     }
 
     public ArrayList<JHVEvent> getEvents() {
@@ -60,16 +58,15 @@ public class JHVRelatedEvents implements ClickableDrawable {
         return supplier.getGroup().getIcon();
     }
 
-    void merge(JHVRelatedEvents found, Map<SWEKSupplier, SortedMap<Interval, JHVRelatedEvents>> eventsMap) {
+    void merge(JHVRelatedEvents found, Map<SWEKSupplier, EventIntervalTree> eventsMap) {
         events.addAll(found.events);
         associations.addAll(found.associations);
 
-        eventsMap.putIfAbsent(supplier, new TreeMap<>());
-
-        eventsMap.get(supplier).remove(found.interval);
-        eventsMap.get(supplier).remove(interval);
+        eventsMap.computeIfAbsent(found.supplier, k -> new EventIntervalTree()).remove(found.interval.start, found.seq);
+        EventIntervalTree tree = eventsMap.computeIfAbsent(supplier, k -> new EventIntervalTree());
+        tree.remove(interval.start, seq);
         interval = new Interval(Math.min(interval.start, found.interval.start), Math.max(interval.end, found.interval.end));
-        eventsMap.get(supplier).put(interval, this);
+        tree.add(interval.start, interval.end, seq, this);
     }
 
     public SWEKSupplier getSupplier() {
@@ -149,7 +146,7 @@ public class JHVRelatedEvents implements ClickableDrawable {
         return nEvents;
     }
 
-    void swapEvent(JHVEvent event, Map<SWEKSupplier, SortedMap<Interval, JHVRelatedEvents>> eventsMap) {
+    void swapEvent(JHVEvent event, Map<SWEKSupplier, EventIntervalTree> eventsMap) {
         int eid = event.getUniqueID();
         int i = 0;
         while (events.get(i).getUniqueID() != eid) {
@@ -160,7 +157,7 @@ public class JHVRelatedEvents implements ClickableDrawable {
         resetTime(eventsMap);
     }
 
-    private void resetTime(Map<SWEKSupplier, SortedMap<Interval, JHVRelatedEvents>> eventsMap) {
+    private void resetTime(Map<SWEKSupplier, EventIntervalTree> eventsMap) {
         long start = Long.MAX_VALUE;
         long end = Long.MIN_VALUE;
         for (JHVEvent evt : events) {
@@ -174,11 +171,10 @@ public class JHVRelatedEvents implements ClickableDrawable {
             }
         }
 
-        eventsMap.putIfAbsent(supplier, new TreeMap<>());
-
-        eventsMap.get(supplier).remove(interval);
+        EventIntervalTree tree = eventsMap.computeIfAbsent(supplier, k -> new EventIntervalTree());
+        tree.remove(interval.start, seq);
         interval = new Interval(start, end);
-        eventsMap.get(supplier).put(interval, this);
+        tree.add(interval.start, interval.end, seq, this);
     }
 
     @Override
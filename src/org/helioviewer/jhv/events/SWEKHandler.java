@@ -1,17 +1,34 @@
 package org.helioviewer.jhv.events;
 
+import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.helioviewer.jhv.base.interval.Interval;
 import org.helioviewer.jhv.database.EventDatabase;
-import org.helioviewer.jhv.io.JSONUtils;
+import org.helioviewer.jhv.io.NetClient;
+import org.helioviewer.jhv.io.RawJSON;
 import org.helioviewer.jhv.log.Log;
+import org.helioviewer.jhv.threads.JHVThread;
 import org.json.JSONException;
 import org.json.JSONObject;
 
 public abstract class SWEKHandler {
 
+    private static final ExecutorService pagePool = Executors.newCachedThreadPool(new JHVThread.NamedThreadFactory("SWEK Page"));
+
+    private static byte[] download(String url) throws IOException {
+        try (NetClient nc = NetClient.of(url)) {
+            return nc.getSource().readByteArray();
+        }
+    }
+
+    // the first page is downloaded alone; once a page reports more, the following pages are downloaded
+    // while it is stored, those past the last one are dropped
     public boolean remote2db(SWEKSupplier supplier, long start, long end, List<SWEKParam> params) {
         ArrayList<Interval> range = EventDatabase.db2daterange(supplier);
         for (Interval interval : range) {
@@ -20,26 +37,41 @@ public abstract class SWEKHandler {
             }
         }
 
+        ArrayDeque<Future<byte[]>> pages = new ArrayDeque<>();
         try {
             int page = 0;
             boolean success = true;
             boolean overmax = true;
             while (overmax && success) {
-                JSONObject eventJSON = JSONUtils.get(createURL(supplier.getGroup(), start, end, params, page));
+                if (pages.isEmpty()) {
+                    String url = createURL(supplier.getGroup(), start, end, params, page++);
+                    pages.add(pagePool.submit(() -> download(url)));
+                }
+                RawJSON eventJSON = new RawJSON(pages.remove().get());
                 overmax = eventJSON.optBoolean("overmax", false);
+                while (overmax && pages.size() < getPagesInFlight()) {
+                    String url = createURL(supplier.getGroup(), start, end, params, page++);
+                    pages.add(pagePool.submit(() -> download(url)));
+                }
                 success = parseRemote(eventJSON, supplier) && parseAssociations(eventJSON);
-                page++;
             }
             return success;
         } catch (Exception e) {
             Log.error("Error loading SWEK", e);
+        } finally {
+            pages.forEach(f -> f.cancel(true));
         }
         return false;
     }
 
-    protected abstract boolean parseRemote(JSONObject eventJSON, SWEKSupplier supplier);
+    // pages downloaded ahead, for sources which page their results
+    protected int getPagesInFlight() {
+        return 1;
+    }
+
+    protected abstract boolean parseRemote(RawJSON eventJSON, SWEKSupplier supplier);
 
-    protected abstract boolean parseAssociations(JSONObject eventJSON);
+    protected abstract boolean parseAssociations(RawJSON eventJSON);
 
     protected abstract String createURL(SWEKGroup group, long start, long end, List<SWEKParam> params, int page);
 
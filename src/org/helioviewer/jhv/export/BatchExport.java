@@ -0,0 +1,322 @@
+package org.helioviewer.jhv.export;
+
+import java.awt.image.BufferedImage;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.helioviewer.jhv.JHVDirectory;
+import org.helioviewer.jhv.astronomy.UpdateViewpoint;
+import org.helioviewer.jhv.base.Region;
+import org.helioviewer.jhv.base.image.MappedImageFactory;
+import org.helioviewer.jhv.base.lut.LUT;
+import org.helioviewer.jhv.base.scale.GridScale;
+import org.helioviewer.jhv.camera.Camera;
+import org.helioviewer.jhv.camera.CameraHelper;
+import org.helioviewer.jhv.display.Display;
+import org.helioviewer.jhv.display.Viewport;
+import org.helioviewer.jhv.gui.components.MoviePanel.RecordQuality;
+import org.helioviewer.jhv.imagedata.ImageData;
+import org.helioviewer.jhv.imagedata.ImageDataHandler;
+import org.helioviewer.jhv.io.BatchLoad;
+import org.helioviewer.jhv.io.CommandLine;
+import org.helioviewer.jhv.layers.Movie;
+import org.helioviewer.jhv.log.Log;
+import org.helioviewer.jhv.opengl.GLImage;
+import org.helioviewer.jhv.opengl.SoftSolarRenderer;
+import org.helioviewer.jhv.position.Position;
+import org.helioviewer.jhv.time.JHVDate;
+import org.helioviewer.jhv.time.TimeUtils;
+import org.helioviewer.jhv.view.View;
+import org.json.JSONObject;
+
+/*
+ * Export without a display: the image layers of a state or request file are stepped through
+ * the frames of the master layer and rendered by SoftSolarRenderer. The views decode ahead on
+ * their workers while a frame is rendered, and the exporter encodes on its own workers.
+ */
+public class BatchExport {
+
+    private static final int MACROBLOCK = 8;
+    private static final long DECODE_TIMEOUT = 120_000;
+    private static final long DOWNLOAD_TIMEOUT = 600_000;
+    private static final long DOWNLOAD_REPORT = 10_000;
+
+    private static class Layer implements ImageDataHandler {
+
+        final View view;
+        final GLImage glImage = new GLImage();
+
+        private ImageData imageData;
+        private ImageData prevImageData;
+        private ImageData baseImageData;
+
+        // snapshot for rendering
+        private ImageData renderData;
+        private ImageData renderPrevData;
+        private ImageData renderBaseData;
+
+        Layer(BatchLoad.Item item) {
+            view = item.view;
+            LUT lut = view.getDefaultLUT();
+            if (item.imageParams != null)
+                glImage.fromJson(item.imageParams);
+            if (lut != null)
+                glImage.setLUT(lut, glImage.getInvertLUT());
+            view.setDataHandler(this);
+        }
+
+        // as ImageLayer
+        @Override
+        public synchronized void handleData(ImageData newImageData) {
+            int frame = newImageData.getMetaData().getFrameNumber();
+            if (frame == 0) {
+                baseImageData = newImageData;
+            }
+
+            if (imageData == null || (prevImageData != null && prevImageData.getMetaData().getFrameNumber() - frame > 2)) {
+                prevImageData = newImageData;
+            } else if (frame != imageData.getMetaData().getFrameNumber()) {
+                prevImageData = imageData;
+            }
+
+            imageData = newImageData;
+            notifyAll();
+        }
+
+        private boolean has(JHVDate time) {
+            return imageData != null && imageData.getMetaData().getViewpoint().time.milli == time.milli;
+        }
+
+        // returns the expected frame time
+        JHVDate request(JHVDate time, Camera camera, Viewport vp) throws Exception {
+            JHVDate expected = view.getFrameTime(time);
+            synchronized (this) {
+                if (has(expected))
+                    return expected;
+            }
+
+            long report = System.currentTimeMillis();
+            long deadline = report + DOWNLOAD_TIMEOUT;
+            boolean signalled = false;
+            while (true) {
+                view.setFrame(time);
+                int frame = view.getCurrentFrameNumber();
+                boolean ready = view.getFrameTime(frame).milli == expected.milli && view.isFrameComplete(frame);
+                if (ready || !signalled) { // incomplete frames are not decoded, only asked for
+                    view.decode(camera.getViewpoint(), CameraHelper.getPixelFactor(camera, vp), 1);
+                    signalled = true;
+                }
+                if (ready)
+                    return expected;
+
+                long now = System.currentTimeMillis();
+                if (now > deadline)
+                    throw new Exception("Timeout downloading " + view.getName() + " at " + expected);
+                if (now - report > DOWNLOAD_REPORT) {
+                    report = now;
+                    Log.info("Batch export: waiting for " + view.getName() + " at " + expected);
+                }
+                Thread.sleep(100);
+            }
+        }
+
+        synchronized void await(JHVDate expected) throws Exception {
+            long deadline = System.currentTimeMillis() + DECODE_TIMEOUT;
+            while (!has(expected)) {
+                long left = deadline - System.currentTimeMillis();
+                if (left <= 0)
+                    throw new Exception("Timeout decoding " + view.getName() + " at " + expected);
+                wait(left);
+            }
+            renderData = imageData;
+            renderPrevData = prevImageData;
+            renderBaseData = baseImageData;
+        }
+
+        void render(Camera camera, Viewport vp, SoftSolarRenderer renderer) {
+            renderer.render(camera, vp, Display.mode, glImage, renderData, renderPrevData, renderBaseData);
+        }
+
+        Region getPhysicalRegion(JHVDate time) {
+            return view.getMetaData(time).getPhysicalRegion();
+        }
+
+    }
+
+    // as UpdateViewpoint.observer, for the master layer
+    private static class MasterViewpoint extends UpdateViewpoint.AbstractUpdateViewpoint {
+
+        private final View view;
+
+        MasterViewpoint(View _view) {
+            view = _view;
+        }
+
+        @Override
+        public Position update(JHVDate time) {
+            return view.getMetaData(time).getViewpoint();
+        }
+
+    }
+
+    // from the command line, returns false on failure
+    public static boolean run() {
+        try {
+            List<BatchLoad.Item> items = new ArrayList<>();
+            List<URI> states = CommandLine.getURIOptionValues("-state");
+            if (states.size() > 1)
+                throw new Exception("Only one -state can be exported at a time");
+            for (URI uri : states) {
+                JSONObject state = BatchLoad.readState(uri);
+                try {
+                    Display.mode = Display.DisplayMode.valueOf(state.optString("projection"));
+                } catch (Exception ignore) {
+                }
+                Display.setShowCorona(state.optBoolean("showCorona", Display.getShowCorona()));
+                items.addAll(BatchLoad.openState(state));
+            }
+            for (URI uri : CommandLine.getURIOptionValues("-request")) {
+                items.addAll(BatchLoad.openRequest(uri));
+            }
+            if (items.isEmpty())
+                throw new Exception("No image layers to export, use -state or -request");
+
+            String output = CommandLine.getOptionValue("-output");
+            if (output == null)
+                output = JHVDirectory.EXPORTS.getPath() + "JHV_" + TimeUtils.formatFilename(System.currentTimeMillis()) + ".mp4";
+            boolean png = output.toLowerCase(Locale.ENGLISH).endsWith(".png");
+
+            int w = 1920, h = 1080;
+            String size = CommandLine.getOptionValue("-size");
+            if (size != null) {
+                String[] wh = size.toLowerCase(Locale.ENGLISH).split("x");
+                w = Integer.parseInt(wh[0].trim());
+                h = Integer.parseInt(wh[1].trim());
+            }
+            if (!png) {
+                w = (w / MACROBLOCK) * MACROBLOCK;
+                h = (h / MACROBLOCK) * MACROBLOCK;
+            }
+            if (w <= 0 || h <= 0)
+                throw new Exception("Invalid frame size " + size);
+
+            String fpsOpt = CommandLine.getOptionValue("-fps");
+            int fps = fpsOpt == null ? 20 : Integer.parseInt(fpsOpt);
+            String qualityOpt = CommandLine.getOptionValue("-quality");
+            RecordQuality quality = qualityOpt == null ? RecordQuality.NORMAL : RecordQuality.valueOf(qualityOpt.toUpperCase(Locale.ENGLISH));
+
+            MovieExporter exporter = png ? new PNGSequenceExporter() : new JCodecExporter(quality.getQP());
+            export(items, exporter, output, w, h, fps);
+            return true;
+        } catch (Exception e) {
+            Log.error("Batch export failed", e);
+            return false;
+        }
+    }
+
+    private static void export(List<BatchLoad.Item> items, MovieExporter exporter, String output, int w, int h, int fps) throws Exception {
+        Movie.startBatch();
+
+        ArrayList<Layer> layers = new ArrayList<>();
+        Layer master = null;
+        for (BatchLoad.Item item : items) {
+            Layer layer = new Layer(item);
+            layers.add(layer);
+            if (item.master && master == null)
+                master = layer;
+        }
+        if (master == null)
+            master = layers.get(0);
+
+        Display.setGLSize(0, 0, w, h);
+        Display.reshapeAll();
+        Viewport vp = Display.getViewport(0);
+
+        Camera camera = new Camera(new MasterViewpoint(master.view));
+        JHVDate first = master.view.getFrameTime(0);
+        camera.timeChanged(first);
+        fitCamera(camera, layers, first);
+
+        SoftSolarRenderer renderer = new SoftSolarRenderer(w, h);
+        int frames = master.view.getMaximumFrameNumber() + 1;
+        JHVDate[] expected = new JHVDate[layers.size()];
+
+        exporter.open(output, w, h, fps);
+        long start = System.nanoTime(), lastReport = start;
+        try {
+            for (int i = 0; i < frames; i++) {
+                JHVDate time = master.view.getFrameTime(i);
+                camera.timeChanged(time);
+                for (int j = 0; j < expected.length; j++) // all layers decode at once
+                    expected[j] = layers.get(j).request(time, camera, vp);
+                for (int j = 0; j < expected.length; j++)
+                    layers.get(j).await(expected[j]);
+
+                setPolarScale(layers, time);
+                renderer.clear();
+                for (Layer layer : layers)
+                    layer.render(camera, vp, renderer);
+
+                BufferedImage image = MappedImageFactory.createCompatible(w, h, BufferedImage.TYPE_3BYTE_BGR);
+                renderer.getBGR(MappedImageFactory.getByteBuffer(image));
+                ExportUtils.pasteCanvases(image, h, null, -1, h); // bottom row first, as read from GL
+                exporter.encode(image);
+
+                long now = System.nanoTime();
+                if (now - lastReport > 1_000_000_000L || i == frames - 1) {
+                    lastReport = now;
+                    Log.info(String.format("Batch export: %d/%d frames, %.1f fps", i + 1, frames, (i + 1) / ((now - start) * 1e-9)));
+                }
+            }
+            exporter.close();
+            Log.info("Batch export: " + exporter.getPath());
+        } catch (Exception e) { // as ExportMovie.CloseWriter, don't leave partial files behind
+            try {
+                exporter.close();
+            } catch (Exception ignore) {
+            }
+            exporter.discard();
+            throw e;
+        } finally {
+            layers.forEach(layer -> {
+                layer.view.setDataHandler(null);
+                layer.view.abolish();
+            });
+        }
+    }
+
+    // as CameraHelper.zoomToFit
+    private static void fitCamera(Camera camera, List<Layer> layers, JHVDate time) {
+        double size = 1;
+        if (Display.mode == Display.DisplayMode.Orthographic) {
+            size = 0;
+            for (Layer layer : layers)
+                size = Math.max(size, layer.getPhysicalRegion(time).height);
+        }
+
+        double newFOV = Camera.INITFOV;
+        if (size != 0)
+            newFOV = 2. * Math.atan2(0.5 * size, camera.getViewpoint().distance);
+        camera.setFOV(newFOV);
+    }
+
+    // as GLListener.renderSceneScale
+    private static void setPolarScale(List<Layer> layers, JHVDate time) {
+        if (Display.mode != Display.DisplayMode.Polar && Display.mode != Display.DisplayMode.LogPolar)
+            return;
+
+        double size = 0;
+        for (Layer layer : layers) {
+            Region r = layer.getPhysicalRegion(time);
+            size = Math.max(size, Math.sqrt(r.height * r.height + r.width * r.width));
+        }
+        if (Display.mode == Display.DisplayMode.Polar) {
+            GridScale.polar.set(0, 360, 0, 0.5 * size);
+        } else {
+            GridScale.logpolar.set(0, 360, 0.05, Math.max(0.05, 0.5 * size));
+        }
+    }
+
+}
@@ -2,7 +2,6 @@ package org.helioviewer.jhv.export;
 
 import java.awt.EventQueue;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ExecutorService;
 
@@ -13,9 +12,11 @@ import org.helioviewer.jhv.base.image.NIOImageFactory;
 import org.helioviewer.jhv.camera.Camera;
 import org.helioviewer.jhv.gui.components.MoviePanel;
 import org.helioviewer.jhv.gui.components.MoviePanel.RecordMode;
+import org.helioviewer.jhv.gui.components.MoviePanel.RecordQuality;
 import org.helioviewer.jhv.layers.FrameListener;
 import org.helioviewer.jhv.layers.Movie;
 import org.helioviewer.jhv.layers.MovieDisplay;
+import org.helioviewer.jhv.log.Log;
 import org.helioviewer.jhv.opengl.GLGrab;
 import org.helioviewer.jhv.threads.JHVThread;
 import org.helioviewer.jhv.time.TimeUtils;
@@ -33,6 +34,11 @@ public class ExportMovie implements FrameListener {
     private static RecordMode mode;
     private static boolean shallStop;
 
+    // encode thread only
+    private static long encodeStart;
+    private static long lastReport;
+    private static int encoded;
+
     public static BufferedImage EVEImage = null;
     public static int EVEMovieLinePosition = -1;
 
@@ -40,6 +46,7 @@ public class ExportMovie implements FrameListener {
         if (exporter != null) {
             if (keep) {
                 encodeExecutor.execute(new CloseWriter(exporter, true));
+                encodeExecutor.execute(() -> report(true));
             } else {
                 encodeExecutor.shutdownNow();
                 new CloseWriter(exporter, false).run();
@@ -67,7 +74,7 @@ public class ExportMovie implements FrameListener {
 
     private static final int MACROBLOCK = 8;
 
-    public static void start(int _w, int _h, boolean isInternal, int fps, RecordMode _mode) {
+    public static void start(int _w, int _h, boolean isInternal, int fps, RecordMode _mode, RecordQuality quality) {
         Movie.startRecording();
         MoviePanel.setEnabledOptions(false);
         shallStop = false;
@@ -88,6 +95,11 @@ public class ExportMovie implements FrameListener {
         canvasHeight = exportHeight - sh;
         grabber = new GLGrab(canvasWidth, canvasHeight);
 
+        encodeExecutor.execute(() -> {
+            encodeStart = lastReport = System.nanoTime();
+            encoded = 0;
+        });
+
         String prefix = JHVDirectory.EXPORTS.getPath() + "JHV_" + TimeUtils.formatFilename(System.currentTimeMillis());
         if (mode == RecordMode.SHOT) {
             try {
@@ -100,7 +112,7 @@ public class ExportMovie implements FrameListener {
             MovieDisplay.render(1);
         } else {
             try {
-                exporter = new JCodecExporter();
+                exporter = new JCodecExporter(quality.getQP());
                 exporter.open(prefix + ".mp4", canvasWidth, exportHeight, fps);
             } catch (Exception e) {
                 e.printStackTrace();
@@ -141,6 +153,20 @@ public class ExportMovie implements FrameListener {
         MovieDisplay.display(); // force detach
     }
 
+    // frames per second since the start, at most once a second while encoding
+    private static void report(boolean done) {
+        long now = System.nanoTime();
+        if (!done && now - lastReport < 1_000_000_000L)
+            return;
+        lastReport = now;
+
+        double fps = encoded / Math.max(1e-9, (now - encodeStart) * 1e-9);
+        String status = String.format("%d frames, %.1f fps", encoded, fps);
+        if (done)
+            Log.info("Movie export: " + status);
+        EventQueue.invokeLater(() -> MoviePanel.setRecordStatus(status));
+    }
+
     private static class FrameConsumer implements Runnable {
 
         private final MovieExporter movieExporter;
@@ -164,7 +190,8 @@ public class ExportMovie implements FrameListener {
                 if (eveImage != null)
                     NIOImageFactory.free(eveImage);
                 movieExporter.encode(mainImage);
-                MappedImageFactory.free(mainImage);
+                encoded++;
+                report(false);
             } catch (Exception e) {
                 e.printStackTrace();
             }
@@ -194,10 +221,8 @@ public class ExportMovie implements FrameListener {
                 e.printStackTrace();
                 failed = true;
             }
-            if (!keep || failed) {
-                File f = new File(movieExporter.getPath());
-                f.delete();
-            }
+            if (!keep || failed)
+                movieExporter.discard();
             System.gc();
         }
     }
@@ -1,15 +1,24 @@
 package org.helioviewer.jhv.export;
 
 import java.awt.image.BufferedImage;
+import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import org.helioviewer.jhv.base.image.MappedImageFactory;
 import org.helioviewer.jhv.export.jcodec.JCodecUtils;
 import org.helioviewer.jhv.export.jcodec.JHVRgbToYuv420j8Bit;
+import org.helioviewer.jhv.threads.JHVThread;
 
 import org.jcodec.codecs.h264.H264Encoder;
 import org.jcodec.codecs.h264.H264Utils;
@@ -22,24 +31,67 @@ import org.jcodec.containers.mp4.TrackType;
 import org.jcodec.containers.mp4.muxer.FramesMP4MuxerTrack;
 import org.jcodec.containers.mp4.muxer.MP4Muxer;
 
+// Frames are converted and encoded on several workers, each with its own encoder, and muxed
+// in order by the calling thread. The encoder only produces intra frames, so frames are
+// independent and each one is a sync sample.
 class JCodecExporter implements MovieExporter {
 
+    private static final int WORKERS = Math.max(1, Math.min(8, Runtime.getRuntime().availableProcessors() - 1));
+    private static final int MAX_IN_FLIGHT = 2 * WORKERS;
+    private static final ExecutorService workerExecutor = Executors.newFixedThreadPool(WORKERS, new JHVThread.NamedThreadFactory("Movie Encode Worker"));
+
+    private static class Worker {
+
+        final H264Encoder encoder;
+        final Picture picture;
+        final JHVRgbToYuv420j8Bit.Rows rows;
+        final ByteBuffer out;
+
+        Worker(int width, int height, int qp) {
+            encoder = new H264Encoder(new JCodecUtils.JHVRateControl(qp));
+            picture = Picture.create(width, height, ColorSpace.YUV420J);
+            rows = new JHVRgbToYuv420j8Bit.Rows(width);
+            out = ByteBuffer.allocate(width * height * 3); // twice the raw frame
+        }
+
+    }
+
+    private static class Encoded {
+
+        final ByteBuffer data;
+        final ArrayList<ByteBuffer> sps = new ArrayList<>();
+        final ArrayList<ByteBuffer> pps = new ArrayList<>();
+
+        Encoded(ByteBuffer result) {
+            H264Utils.wipePS(result, sps, pps);
+            H264Utils.encodeMOVPacket(result);
+            data = ByteBuffer.allocate(result.remaining());
+            data.put(result).flip(); // the worker buffer is reused
+        }
+
+    }
+
+    private final int qp;
+
     private String path;
-    private int height, fps;
+    private int width, height, fps;
 
     private FileChannelWrapper ch;
-    private H264Encoder encoder;
-    private ArrayList<ByteBuffer> spsList;
-    private ArrayList<ByteBuffer> ppsList;
+    private MP4Muxer muxer;
     private FramesMP4MuxerTrack outTrack;
-    private ByteBuffer _out;
+    private ArrayBlockingQueue<Worker> idle;
+    private final ArrayDeque<Future<Encoded>> inFlight = new ArrayDeque<>();
+    private Encoded last;
     private int frameNo;
-    private MP4Muxer muxer;
-    private Picture toEncode;
+
+    JCodecExporter(int _qp) {
+        qp = _qp;
+    }
 
     @Override
-    public void open(String _path, int width, int _height, int _fps) throws IOException {
+    public void open(String _path, int _width, int _height, int _fps) throws IOException {
         path = _path;
+        width = _width;
         height = _height;
         fps = _fps;
 
@@ -48,41 +100,70 @@ class JCodecExporter implements MovieExporter {
         muxer = new MP4Muxer(ch, Brand.MP4);
         // Add video track to muxer
         outTrack = muxer.addTrack(TrackType.VIDEO, fps);
-        // Allocate a buffer big enough to hold output frames
-        _out = ByteBuffer.allocate(width * height * 6);
-        // Create an instance of encoder
-        encoder = new H264Encoder(new JCodecUtils.JHVRateControl(20));
-        // Encoder extra data ( SPS, PPS ) to be stored in a special place of MP4
-        spsList = new ArrayList<>();
-        ppsList = new ArrayList<>();
-        toEncode = Picture.create(width, height, ColorSpace.YUV420J);
+        // Workers are created on first use
+        idle = new ArrayBlockingQueue<>(WORKERS);
     }
 
+    // takes ownership of the image
     @Override
-    public void encode(BufferedImage img) throws IOException {
-        JHVRgbToYuv420j8Bit.transform(img, toEncode);
-
-        // Encode image into H.264 frame, the result is stored in '_out' buffer
-        _out.clear();
-        ByteBuffer result = encoder.encodeFrame(toEncode, _out);
-        // Based on the frame above form correct MP4 packet
-        spsList.clear();
-        ppsList.clear();
-        H264Utils.wipePS(result, spsList, ppsList);
-        H264Utils.encodeMOVPacket(result);
-        // Add packet to video track
-        outTrack.addFrame(new MP4Packet(result, frameNo, fps, 1, frameNo, true, null, frameNo, 0));
+    public void encode(BufferedImage img) throws Exception {
+        while (inFlight.size() >= MAX_IN_FLIGHT)
+            mux(inFlight.poll());
+        inFlight.add(workerExecutor.submit(() -> encodeFrame(img)));
+    }
+
+    private Encoded encodeFrame(BufferedImage img) {
+        Worker worker = idle.poll();
+        if (worker == null)
+            worker = new Worker(width, height, qp);
+        try {
+            JHVRgbToYuv420j8Bit.transform(img, worker.picture, worker.rows);
+            worker.out.clear();
+            return new Encoded(worker.encoder.encodeFrame(worker.picture, worker.out));
+        } finally {
+            MappedImageFactory.free(img);
+            idle.offer(worker);
+        }
+    }
+
+    private void mux(Future<Encoded> future) throws IOException, InterruptedException, ExecutionException {
+        last = future.get();
+        outTrack.addFrame(new MP4Packet(last.data, frameNo, fps, 1, frameNo, true, null, frameNo, 0));
         frameNo++;
     }
 
     @Override
-    public void close() throws IOException {
-//        lbuffer.release();
-        // Push saved SPS/PPS to a special storage in MP4
-        outTrack.addSampleEntry(H264Utils.createMOVSampleEntry(spsList, ppsList, 4));
-        // Write MP4 header and finalize recording
-        muxer.writeHeader();
-        ch.close();
+    public void close() throws Exception {
+        try {
+            while (!inFlight.isEmpty())
+                mux(inFlight.poll());
+            if (last != null) {
+                // Push saved SPS/PPS to a special storage in MP4
+                outTrack.addSampleEntry(H264Utils.createMOVSampleEntry(last.sps, last.pps, 4));
+                // Write MP4 header and finalize recording
+                muxer.writeHeader();
+            }
+        } finally {
+            idle.clear();
+            ch.close();
+        }
+    }
+
+    @Override
+    public void discard() {
+        while (!inFlight.isEmpty()) { // the workers own the images
+            try {
+                inFlight.poll().get();
+            } catch (Exception ignore) {
+            }
+        }
+        if (ch != null) {
+            try {
+                ch.close();
+            } catch (IOException ignore) {
+            }
+        }
+        new File(path).delete();
     }
 
     @Override
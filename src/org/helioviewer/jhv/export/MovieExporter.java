@@ -6,10 +6,14 @@ interface MovieExporter {
 
     void open(String path, int w, int h, int fps) throws Exception;
 
+    // the exporter takes ownership of the image and frees it when done
     void encode(BufferedImage image) throws Exception;
 
     void close() throws Exception;
 
+    // removes whatever was written, after close or instead of it
+    void discard();
+
     String getPath();
 
     int getHeight();
@@ -6,6 +6,8 @@ import java.awt.image.BufferedImage;
 
 import javax.imageio.ImageIO;
 
+import org.helioviewer.jhv.base.image.MappedImageFactory;
+
 public class PNGExporter implements MovieExporter {
 
     private String path;
@@ -20,13 +22,24 @@ public class PNGExporter implements MovieExporter {
 
     @Override
     public void encode(BufferedImage _image) {
+        if (image != null)
+            MappedImageFactory.free(image);
         image = _image;
     }
 
     @Override
     public void close() throws IOException {
         // ImageUtils.writePNG(image, path);
-        ImageIO.write(image, "png", new File(path));
+        try {
+            ImageIO.write(image, "png", new File(path));
+        } finally {
+            MappedImageFactory.free(image);
+        }
+    }
+
+    @Override
+    public void discard() {
+        new File(path).delete();
     }
 
     @Override
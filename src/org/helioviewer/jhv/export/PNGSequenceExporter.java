@@ -0,0 +1,82 @@
+package org.helioviewer.jhv.export;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.imageio.ImageIO;
+
+import org.helioviewer.jhv.base.image.MappedImageFactory;
+import org.helioviewer.jhv.threads.JHVThread;
+
+// Frames written as numbered PNG files next to the path, several at a time
+class PNGSequenceExporter implements MovieExporter {
+
+    private static final int WORKERS = Math.max(1, Math.min(8, Runtime.getRuntime().availableProcessors() - 1));
+    private static final int MAX_IN_FLIGHT = 2 * WORKERS;
+    private static final ExecutorService workerExecutor = Executors.newFixedThreadPool(WORKERS, new JHVThread.NamedThreadFactory("PNG Encode Worker"));
+
+    private final ArrayDeque<Future<Void>> inFlight = new ArrayDeque<>();
+
+    private String path;
+    private String prefix;
+    private int height;
+    private int frameNo;
+
+    @Override
+    public void open(String _path, int w, int h, int fps) {
+        path = _path;
+        height = h;
+        prefix = path.toLowerCase(Locale.ENGLISH).endsWith(".png") ? path.substring(0, path.length() - 4) : path;
+    }
+
+    // takes ownership of the image
+    @Override
+    public void encode(BufferedImage image) throws Exception {
+        while (inFlight.size() >= MAX_IN_FLIGHT)
+            inFlight.poll().get();
+
+        File file = new File(String.format("%s_%05d.png", prefix, frameNo++));
+        inFlight.add(workerExecutor.submit(() -> {
+            try {
+                ImageIO.write(image, "png", file);
+            } finally {
+                MappedImageFactory.free(image);
+            }
+            return null;
+        }));
+    }
+
+    @Override
+    public void close() throws Exception {
+        while (!inFlight.isEmpty())
+            inFlight.poll().get();
+    }
+
+    @Override
+    public void discard() {
+        while (!inFlight.isEmpty()) { // not to race the deletion
+            try {
+                inFlight.poll().get();
+            } catch (Exception ignore) {
+            }
+        }
+        for (int i = 0; i < frameNo; i++)
+            new File(String.format("%s_%05d.png", prefix, i)).delete();
+    }
+
+    @Override
+    public String getPath() {
+        return path;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+}
@@ -6,81 +6,77 @@ import java.nio.ByteBuffer;
 import org.helioviewer.jhv.base.image.MappedImageFactory;
 
 import org.jcodec.common.model.Picture;
-import org.jcodec.common.tools.MathUtil;
 
 public class JHVRgbToYuv420j8Bit {
 
-    private static void get(ByteBuffer data, int x, int y, int w, byte[] bgr) {
-        //data.position(3 * (w * y + x)); -- slower
-        //data.get(bgr);
-        int i = 3 * (w * y + x);
-        bgr[0] = data.get(i);
-        bgr[1] = data.get(i + 1);
-        bgr[2] = data.get(i + 2);
-    }
-
-    public static void transform(BufferedImage img, Picture dst) {
-        int[][] dstData = dst.getData();
-        int[][] out = new int[4][3];
-
-        byte[] bgr = new byte[3];
-        ByteBuffer data = MappedImageFactory.getByteBuffer(img);
+    // scanlines copied out of the image, reused by a caller converting several frames
+    public static class Rows {
 
-        int x, y = 0, h = img.getHeight(), w = img.getWidth();
-        int offChr = 0, offLuma = 0, strideDst = dst.getWidth();
-        for (int i = 0; i < h >> 1; i++) {
-            x = 0;
-            for (int j = 0; j < w >> 1; j++) {
-                get(data, x, y, w, bgr);
-                rgb2yuv(bgr, out[0]);
-                dstData[0][offLuma] = out[0][0];
+        final byte[] bgr0, bgr1;
+        final int[] u0, v0, u1, v1;
 
-                get(data, x, y + 1, w, bgr);
-                rgb2yuv(bgr, out[1]);
-                dstData[0][offLuma + strideDst] = out[1][0];
-
-                ++offLuma;
-
-                get(data, x + 1, y, w, bgr);
-                rgb2yuv(bgr, out[2]);
-                dstData[0][offLuma] = out[2][0];
-
-                get(data, x + 1, y + 1, w, bgr);
-                rgb2yuv(bgr, out[3]);
-                dstData[0][offLuma + strideDst] = out[3][0];
-
-                ++offLuma;
+        public Rows(int w) {
+            bgr0 = new byte[3 * w];
+            bgr1 = new byte[3 * w];
+            u0 = new int[w];
+            v0 = new int[w];
+            u1 = new int[w];
+            v1 = new int[w];
+        }
 
-                dstData[1][offChr] = ((out[0][1] + out[1][1] + out[2][1] + out[3][1] + 2) >> 2);
-                dstData[2][offChr] = ((out[0][2] + out[1][2] + out[2][2] + out[3][2] + 2) >> 2);
+    }
 
-                ++offChr;
-                x += 2;
+    // rows of 2x2 blocks in [from, to); separate bands can be converted concurrently, each with its own rows
+    public static void transform(BufferedImage img, Picture dst, Rows rows, int from, int to) {
+        int[][] dstData = dst.getData();
+        int[] luma = dstData[0], cb = dstData[1], cr = dstData[2];
+
+        int w = img.getWidth(), half = w >> 1, strideDst = dst.getWidth();
+        if (rows.u0.length < w)
+            throw new IllegalArgumentException("Rows too short: " + rows.u0.length + " < " + w);
+        ByteBuffer data = MappedImageFactory.getByteBuffer(img).duplicate(); // own position
+
+        // scanlines are copied out in bulk and converted in plain loops over primitive arrays
+        byte[] bgr0 = rows.bgr0, bgr1 = rows.bgr1;
+        int[] u0 = rows.u0, v0 = rows.v0, u1 = rows.u1, v1 = rows.v1;
+
+        for (int i = from; i < to; i++) {
+            int y = 2 * i;
+            data.position(3 * w * y);
+            data.get(bgr0, 0, 3 * w).get(bgr1, 0, 3 * w);
+
+            rowToYuv(bgr0, w, luma, y * strideDst, u0, v0);
+            rowToYuv(bgr1, w, luma, (y + 1) * strideDst, u1, v1);
+
+            int offChr = i * half;
+            for (int j = 0; j < half; j++) {
+                int x = 2 * j;
+                cb[offChr + j] = (u0[x] + u1[x] + u0[x + 1] + u1[x + 1] + 2) >> 2;
+                cr[offChr + j] = (v0[x] + v1[x] + v0[x + 1] + v1[x + 1] + 2) >> 2;
             }
-            offLuma += strideDst;
-            y += 2;
         }
     }
 
-    private static void rgb2yuv(byte[] bgr, int[] out) {
-        int b = getUnsigned(bgr[0]);
-        int g = getUnsigned(bgr[1]);
-        int r = getUnsigned(bgr[2]);
-
-        int y = 66 * r + 129 * g + 25 * b;
-        int u = -38 * r - 74 * g + 112 * b;
-        int v = 112 * r - 94 * g - 18 * b;
-        y = (y + 128) >> 8;
-        u = (u + 128) >> 8;
-        v = (v + 128) >> 8;
+    public static void transform(BufferedImage img, Picture dst, Rows rows) {
+        transform(img, dst, rows, 0, img.getHeight() >> 1);
+    }
 
-        out[0] = MathUtil.clip(y + 16, 0, 255);
-        out[1] = MathUtil.clip(u + 128, 0, 255);
-        out[2] = MathUtil.clip(v + 128, 0, 255);
+    public static void transform(BufferedImage img, Picture dst) {
+        transform(img, dst, new Rows(img.getWidth()));
     }
 
-    private static int getUnsigned(byte b) {
-        return (b + 256) & 0xFF;
+    // for 8-bit input the results are within 16..235 and 16..240, no clipping is needed
+    private static void rowToYuv(byte[] bgr, int w, int[] luma, int offLuma, int[] u, int[] v) {
+        int n = w & ~1;
+        for (int x = 0; x < n; x++) {
+            int b = bgr[3 * x] & 0xFF;
+            int g = bgr[3 * x + 1] & 0xFF;
+            int r = bgr[3 * x + 2] & 0xFF;
+
+            luma[offLuma + x] = ((66 * r + 129 * g + 25 * b + 128) >> 8) + 16;
+            u[x] = ((-38 * r - 74 * g + 112 * b + 128) >> 8) + 128;
+            v[x] = ((112 * r - 94 * g - 18 * b + 128) >> 8) + 128;
+        }
     }
 
 /*
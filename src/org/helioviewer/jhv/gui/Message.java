@@ -1,10 +1,12 @@
 package org.helioviewer.jhv.gui;
 
 import java.awt.EventQueue;
+import java.awt.GraphicsEnvironment;
 
 import javax.swing.JOptionPane;
 
 import org.helioviewer.jhv.base.Regex;
+import org.helioviewer.jhv.log.Log;
 
 public class Message {
     /**
@@ -40,6 +42,12 @@ public class Message {
     public static void err(String _title, Object _msg, boolean _exitImmediately) {
         if (Thread.currentThread().isInterrupted())
             return;
+        if (GraphicsEnvironment.isHeadless()) { // batch export
+            Log.error((_title == null ? "" : _title + ": ") + _msg);
+            if (_exitImmediately)
+                System.exit(-1);
+            return;
+        }
         // invoked immediately
         JOptionPane.showMessageDialog(null, ((_title == null ? "" : _title + '\n') + (_msg == null ? "No error details available." : _msg.toString())), (_exitImmediately ? "Fatal Error" : "Error"), JOptionPane.ERROR_MESSAGE);
         if (_exitImmediately)
@@ -57,6 +65,10 @@ public class Message {
             return;
 
         String msg = _msg.toString();
+        if (GraphicsEnvironment.isHeadless()) {
+            Log.warn((_title == null ? "" : _title + ": ") + msg);
+            return;
+        }
         EventQueue.invokeLater(() -> JOptionPane.showMessageDialog(null, ((_title == null ? "" : _title + '\n') + (msg == null || msg.isEmpty() ? "No warning details available." : msg)), "Warning", JOptionPane.WARNING_MESSAGE));
     }
 
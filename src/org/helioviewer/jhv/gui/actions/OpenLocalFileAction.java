@@ -4,6 +4,8 @@ import java.awt.FileDialog;
 import java.awt.event.ActionEvent;
 import java.awt.event.KeyEvent;
 import java.io.File;
+import java.net.URI;
+import java.util.ArrayList;
 
 import javax.swing.AbstractAction;
 import javax.swing.KeyStroke;
@@ -40,10 +42,12 @@ public class OpenLocalFileAction extends AbstractAction {
         if (fileNames.length > 0 && directory != null) {
             // remember the current directory for future
             Settings.setProperty("path.local", directory);
+            ArrayList<URI> uris = new ArrayList<>();
             for (File fileName : fileNames) {
                 if (fileName.isFile())
-                    Load.image.get(fileName.toURI());
+                    uris.add(fileName.toURI());
             }
+            Load.images(uris);
         }
     }
 
@@ -86,6 +86,28 @@ public class MoviePanel extends JPanel implements ObservationSelector {
         LOOP, SHOT, FREE
     }
 
+    // constant quantizer of the encoder, lower is better
+    public enum RecordQuality {
+        HIGH("High", 14), NORMAL("Normal", 20), COMPACT("Compact", 26);
+
+        private final String str;
+        private final int qp;
+
+        RecordQuality(String _str, int _qp) {
+            str = _str;
+            qp = _qp;
+        }
+
+        public int getQP() {
+            return qp;
+        }
+
+        @Override
+        public String toString() {
+            return str;
+        }
+    }
+
     private enum RecordSize {
         ORIGINAL {
             @Override
@@ -177,6 +199,7 @@ public class MoviePanel extends JPanel implements ObservationSelector {
 
     private static final JPanel modePanel = new JPanel(new FlowLayout(FlowLayout.TRAILING, 0, 0));
     private static final JPanel recordPanel = new JPanel(new GridBagLayout());
+    private static final JLabel recordStatus = new JLabel(" ");
 
     private static MoviePanel instance;
 
@@ -353,6 +376,20 @@ public class MoviePanel extends JPanel implements ObservationSelector {
         c.gridx = 3;
         recordPanel.add(recordSizeCombo, c);
 
+        c.gridx = 0;
+        recordPanel.add(new JLabel("Quality", JLabel.RIGHT), c);
+
+        JComboBox<RecordQuality> recordQualityCombo = new JComboBox<>(RecordQuality.values());
+        recordQualityCombo.setSelectedItem(RecordQuality.NORMAL);
+        recordQualityCombo.addActionListener(e -> recordButton.setRecordQuality((RecordQuality) Objects.requireNonNull(recordQualityCombo.getSelectedItem())));
+        c.gridx = 1;
+        recordPanel.add(recordQualityCombo, c);
+
+        c.gridy = 2;
+        c.gridx = 1;
+        c.gridwidth = 3;
+        recordPanel.add(recordStatus, c);
+
         add(sliderPanel);
         add(secondLine);
         add(modePanel);
@@ -452,15 +489,21 @@ public class MoviePanel extends JPanel implements ObservationSelector {
             recordButton.setSelected(false);
     }
 
+    public static void setRecordStatus(String status) {
+        recordStatus.setText(status);
+    }
+
     public static void setEnabledOptions(boolean enabled) {
         ComponentUtils.setEnabled(modePanel, enabled);
         ComponentUtils.setEnabled(recordPanel, enabled);
+        recordStatus.setEnabled(true); // readable while recording
     }
 
     private static class RecordButton extends JHVToggleButton implements ActionListener {
 
         private RecordMode mode = RecordMode.LOOP;
         private RecordSize size = RecordSize.ORIGINAL;
+        private RecordQuality quality = RecordQuality.NORMAL;
 
         RecordButton(float fontSize) {
             super(Buttons.record);
@@ -477,7 +520,7 @@ public class MoviePanel extends JPanel implements ObservationSelector {
                 SpeedUnit unit = (SpeedUnit) Objects.requireNonNull(speedUnitComboBox.getSelectedItem());
                 if (unit == SpeedUnit.FRAMESPERSECOND)
                     fps = ((SpinnerNumberModel) speedSpinner.getModel()).getNumber().intValue();
-                ExportMovie.start(size.getSize().width, size.getSize().height, size.isInternal(), fps, mode);
+                ExportMovie.start(size.getSize().width, size.getSize().height, size.isInternal(), fps, mode, quality);
             } else {
                 ExportMovie.shallStop();
             }
@@ -491,6 +534,10 @@ public class MoviePanel extends JPanel implements ObservationSelector {
             size = _size;
         }
 
+        void setRecordQuality(RecordQuality _quality) {
+            quality = _quality;
+        }
+
     }
 
     private static void setEnabledState(boolean enabled) {
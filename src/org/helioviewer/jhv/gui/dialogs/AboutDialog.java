@@ -44,7 +44,6 @@ public class AboutDialog extends StandardDialog implements ShowableDialog, Hyper
                 "<li><a href=\"https://jogamp.org\">JogAmp</a> libraries for Java 3D Graphics.</li>" +
                 "<li><a href=\"https://github.com/stleary/JSON-java\">JSON</a> in Java library.</li>" +
                 "<li>JSON <a href=\"https://github.com/everit-org/json-schema\">Schema Validator</a> library.</li>" +
-                "<li><a href=\"http://www.ehcache.org\">Ehcache</a> library.</li>" +
                 "<li><a href=\"https://github.com/xerial/sqlite-jdbc\">Xerial</a> SQLite JDBC driver.</li>" +
                 "<li><a href=\"http://jcodec.org\">JCodec</a>, a pure Java video codec library.</li>" +
                 "<li><a href=\"http://www.star.bristol.ac.uk/%7Embt/jsamp/index.html\">JSAMP</a> toolkit for the Simple Applications Messaging Protocol.</li>" +
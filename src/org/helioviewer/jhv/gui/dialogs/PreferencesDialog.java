@@ -36,18 +36,32 @@ import org.helioviewer.jhv.gui.JHVFrame;
 import org.helioviewer.jhv.gui.interfaces.ShowableDialog;
 import org.helioviewer.jhv.io.DataSources;
 import org.helioviewer.jhv.log.Log;
+import org.helioviewer.jhv.metadata.MetaDataStore;
+import org.helioviewer.jhv.plugins.pfss.data.PfssDiskCache;
+import org.helioviewer.jhv.position.PositionStore;
+import org.helioviewer.jhv.timelines.radio.RadioDiskCache;
+import org.helioviewer.jhv.view.j2k.DecodeCache;
 import org.helioviewer.jhv.view.j2k.io.jpip.JPIPCacheManager;
 
+import com.google.common.cache.CacheStats;
 import com.jidesoft.dialog.ButtonPanel;
 import com.jidesoft.dialog.StandardDialog;
 
 @SuppressWarnings("serial")
 public class PreferencesDialog extends StandardDialog implements ShowableDialog {
 
-    private final JLabel labelCache = new JLabel("The image cache currently uses 0.0GB on disk.", JLabel.RIGHT);
+    private final JLabel labelCache = new JLabel("The cache currently uses 0.0GB on disk.", JLabel.RIGHT);
+
+    private static long getDiskSize() {
+        return JPIPCacheManager.getSize() + PositionStore.getSize() + RadioDiskCache.getSize() + PfssDiskCache.getSize();
+    }
 
     private void setLabelCache() {
-        labelCache.setText(String.format("The image cache currently uses %.1fGB on disk.", JPIPCacheManager.getSize() / (1024 * 1024 * 1024.)));
+        labelCache.setText(String.format("The cache currently uses %.1fGB on disk and %.1fGB of %.1fGB in memory.",
+                getDiskSize() / (1024 * 1024 * 1024.), DecodeCache.getSize() / (1024 * 1024 * 1024.), DecodeCache.getMaxSize() / (1024 * 1024 * 1024.)));
+        CacheStats stats = DecodeCache.getStats();
+        labelCache.setToolTipText(String.format("<html>%s<br>Decoded frames: %d hits, %d misses, %d evictions",
+                JPIPCacheManager.getStats(), stats.hitCount(), stats.missCount(), stats.evictionCount()));
     }
 
     private JCheckBox defaultMovie;
@@ -174,6 +188,11 @@ public class PreferencesDialog extends StandardDialog implements ShowableDialog
         clearCache.addActionListener(e -> {
             try {
                 JPIPCacheManager.clear();
+                DecodeCache.clear();
+                MetaDataStore.clear();
+                PositionStore.clear();
+                RadioDiskCache.clear();
+                PfssDiskCache.clear();
                 setLabelCache();
             } catch (Exception ex) {
                 Log.error("JPIP cache clear error", ex);
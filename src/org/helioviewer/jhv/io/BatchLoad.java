@@ -0,0 +1,86 @@
+package org.helioviewer.jhv.io;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import org.helioviewer.jhv.log.Log;
+import org.helioviewer.jhv.view.View;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+// Views of state and request files opened without creating layers, for the batch export
+public class BatchLoad {
+
+    public static class Item {
+
+        public final View view;
+        @Nullable
+        public final JSONObject imageParams;
+        public final boolean master;
+
+        Item(View _view, @Nullable JSONObject _imageParams, boolean _master) {
+            view = _view;
+            imageParams = _imageParams;
+            master = _master;
+        }
+
+    }
+
+    public static JSONObject readState(URI uri) throws Exception {
+        return LoadStateTask.getState(uri);
+    }
+
+    // the enabled image layers of the state, in order
+    public static List<Item> openState(JSONObject state) throws Exception {
+        ArrayList<Item> list = new ArrayList<>();
+        JSONArray rja = state.getJSONArray("imageLayers");
+        for (Object o : rja) {
+            if (o instanceof JSONObject) {
+                JSONObject jo = (JSONObject) o;
+                JSONObject jd = jo.optJSONObject("data");
+                if (jd == null || !jo.optBoolean("enabled", false))
+                    continue;
+                JSONObject apiRequest = jd.optJSONObject("APIRequest");
+                if (apiRequest == null)
+                    continue;
+
+                View view = open(APIRequest.fromJson(apiRequest));
+                list.add(new Item(view, jd.optJSONObject("imageParams"), jo.optBoolean("master", false)));
+            }
+        }
+        return list;
+    }
+
+    public static List<Item> openRequest(URI uri) throws Exception {
+        JSONObject jo = JSONUtils.get(uri);
+        loadSources(); // needed to resolve the datasets
+
+        ArrayList<Item> list = new ArrayList<>();
+        for (APIRequest req : LoadRequestTask.getImageRequests(jo)) {
+            list.add(new Item(open(req), null, list.isEmpty()));
+        }
+        return list;
+    }
+
+    private static View open(APIRequest req) throws Exception {
+        View view = LoadViewTask.requestAndOpenRemoteFile(req);
+        if (view == null)
+            throw new Exception("Could not open " + req.toJson());
+        return view;
+    }
+
+    // as DataSourcesTask, once and without schema validation
+    private static void loadSources() {
+        for (String server : DataSources.getServers()) {
+            try {
+                new DataSourcesParser(server).parse(JSONUtils.get(DataSources.getServerSetting(server, "API.getDataSources")));
+            } catch (Exception e) {
+                Log.warn("Server " + server + ": " + e.getMessage());
+            }
+        }
+    }
+
+}
@@ -6,6 +6,8 @@ import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.List;
 
+import javax.annotation.Nullable;
+
 import org.helioviewer.jhv.log.Log;
 
 public class CommandLine {
@@ -18,7 +20,22 @@ public class CommandLine {
         usageMessage = "The following command-line options are available: \n\n" +
                 "-load    file location\n" + "       Load or request a supported file at program start. The option can be used multiple times.\n\n" +
                 "-request request file location\n" + "       Load a request file and issue a request at program start. The option can be used multiple times.\n\n" +
-                "-state   state file\n" + "       Load state file.";
+                "-state   state file\n" + "       Load state file.\n\n" +
+                "-batch\n" + "       Export the image layers of the -state or -request file without a display and exit.\n\n" +
+                "-output  file\n" + "       Batch output, an MP4 movie or a numbered PNG sequence by extension.\n\n" +
+                "-size    WIDTHxHEIGHT\n" + "       Batch frame size, 1920x1080 by default.\n\n" +
+                "-fps     frames per second\n" + "       Batch movie frame rate, 20 by default.\n\n" +
+                "-quality High|Normal|Compact\n" + "       Batch movie quality, Normal by default.";
+    }
+
+    public static boolean isBatch() {
+        if (arguments != null) {
+            for (String arg : arguments) {
+                if ("-batch".equals(arg))
+                    return true;
+            }
+        }
+        return false;
     }
 
     public static void load() {
@@ -41,7 +58,7 @@ public class CommandLine {
         }
     }
 
-    private static List<URI> getURIOptionValues(String param) {
+    public static List<URI> getURIOptionValues(String param) {
         List<String> opts = getOptionValues(param);
         ArrayList<URI> uris = new ArrayList<>();
         for (String opt : opts) {
@@ -82,6 +99,12 @@ public class CommandLine {
         return values;
     }
 
+    @Nullable
+    public static String getOptionValue(String param) {
+        List<String> values = getOptionValues(param);
+        return values.isEmpty() ? null : values.get(0);
+    }
+
     public static String getUsageMessage() {
         return usageMessage;
     }
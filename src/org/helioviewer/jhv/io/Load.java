@@ -1,6 +1,9 @@
 package org.helioviewer.jhv.io;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 
 import org.helioviewer.jhv.JHVGlobals;
 import org.helioviewer.jhv.layers.ImageLayer;
@@ -15,6 +18,26 @@ public interface Load {
     Load fits = new FITS();
     Load state = new State();
 
+    static boolean isFITS(URI uri) {
+        String loc = uri.toString().toLowerCase(Locale.ENGLISH);
+        return loc.endsWith(".fits") || loc.endsWith(".fts");
+    }
+
+    // several FITS files of a dataset become one movie layer, anything else one layer each
+    static void images(List<URI> uris) {
+        List<URI> fits = new ArrayList<>();
+        for (URI uri : uris) {
+            if (isFITS(uri))
+                fits.add(uri);
+            else
+                image.get(uri);
+        }
+        if (fits.size() == 1)
+            image.get(fits.get(0));
+        else if (fits.size() > 1)
+            JHVGlobals.getExecutorService().execute(new LoadFITSSeriesTask(fits));
+    }
+
     class Image implements Load {
         @Override
         public void get(URI uri) {
@@ -0,0 +1,50 @@
+package org.helioviewer.jhv.io;
+
+import java.net.URI;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import org.helioviewer.jhv.gui.Message;
+import org.helioviewer.jhv.layers.ImageLayer;
+import org.helioviewer.jhv.log.Log;
+import org.helioviewer.jhv.threads.JHVWorker;
+import org.helioviewer.jhv.view.View;
+import org.helioviewer.jhv.view.fits.FITSSeriesView;
+
+// the files are grouped by dataset once their headers are read, one layer per group
+class LoadFITSSeriesTask extends JHVWorker<List<View>, Void> {
+
+    private final List<URI> uris;
+
+    LoadFITSSeriesTask(List<URI> _uris) {
+        uris = _uris;
+        setThreadName("MAIN--LoadFITSSeries");
+    }
+
+    @Nullable
+    @Override
+    protected List<View> backgroundWork() {
+        try {
+            return FITSSeriesView.create(uris);
+        } catch (Exception e) {
+            Log.error("An error occurred while opening the FITS series: ", e);
+            Message.err("An error occurred while opening the FITS series: ", e.getMessage(), false);
+        }
+        return null;
+    }
+
+    @Override
+    protected void done() {
+        if (!isCancelled()) {
+            try {
+                List<View> views = get();
+                if (views != null)
+                    views.forEach(view -> ImageLayer.create(null).setView(view));
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+}
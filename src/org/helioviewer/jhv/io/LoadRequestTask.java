@@ -1,6 +1,8 @@
 package org.helioviewer.jhv.io;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.annotation.Nullable;
 
@@ -27,22 +29,16 @@ class LoadRequestTask extends JHVWorker<Void, Void> {
     @Override
     protected Void backgroundWork() {
         try {
-            int len;
             JSONObject jo = JSONUtils.get(uri);
 
-            JSONArray ji = jo.optJSONArray("org.helioviewer.jhv.request.image");
-            if (ji != null) {
-                len = ji.length();
-                for (int i = 0; i < len; i++) {
-                    APIRequest req = APIRequest.fromRequestJson(ji.getJSONObject(i));
-                    ImageLayer layer = EventDispatchQueue.invokeAndWait(() -> ImageLayer.create(null));
-                    JHVGlobals.getExecutorService().execute(new LoadRemoteTask(layer, req));
-                }
+            for (APIRequest req : getImageRequests(jo)) {
+                ImageLayer layer = EventDispatchQueue.invokeAndWait(() -> ImageLayer.create(null));
+                JHVGlobals.getExecutorService().execute(new LoadRemoteTask(layer, req));
             }
 
             JSONArray jt = jo.optJSONArray("org.helioviewer.jhv.request.timeline");
             if (jt != null) {
-                len = jt.length();
+                int len = jt.length();
                 for (int i = 0; i < len; i++) {
                     BandDataProvider.loadBand(jt.getJSONObject(i));
                 }
@@ -54,4 +50,16 @@ class LoadRequestTask extends JHVWorker<Void, Void> {
         return null;
     }
 
+    static List<APIRequest> getImageRequests(JSONObject jo) throws Exception {
+        ArrayList<APIRequest> list = new ArrayList<>();
+        JSONArray ji = jo.optJSONArray("org.helioviewer.jhv.request.image");
+        if (ji != null) {
+            int len = ji.length();
+            for (int i = 0; i < len; i++) {
+                list.add(APIRequest.fromRequestJson(ji.getJSONObject(i)));
+            }
+        }
+        return list;
+    }
+
 }
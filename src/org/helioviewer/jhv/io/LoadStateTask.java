@@ -23,7 +23,7 @@ class LoadStateTask extends JHVWorker<JSONObject, Void> {
     @Override
     protected JSONObject backgroundWork() {
         try {
-            return JSONUtils.get(uri).getJSONObject("org.helioviewer.jhv.state");
+            return getState(uri);
         } catch (Exception e) {
             Log.error("An error occurred while opening the remote file: ", e);
             Message.err("An error occurred while opening the remote file: ", e.getMessage(), false);
@@ -31,6 +31,10 @@ class LoadStateTask extends JHVWorker<JSONObject, Void> {
         return null;
     }
 
+    static JSONObject getState(URI uri) throws Exception {
+        return JSONUtils.get(uri).getJSONObject("org.helioviewer.jhv.state");
+    }
+
     @Override
     protected void done() {
         if (!isCancelled()) {
@@ -62,7 +62,7 @@ class LoadViewTask extends JHVWorker<View, Void> {
 
         try {
             String loc = uri.toString().toLowerCase(Locale.ENGLISH);
-            if (loc.endsWith(".fits") || loc.endsWith(".fts")) {
+            if (Load.isFITS(uri)) {
                 return new FITSView(uri, req);
             } else if (loc.endsWith(".png") || loc.endsWith(".jpg") || loc.endsWith(".jpeg")) {
                 return new SimpleImageView(uri, req);
@@ -9,6 +9,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 
@@ -52,15 +53,17 @@ class LoadZipTask extends JHVWorker<Void, Void> {
                             Load.request.get(ext.toUri());
                         }
                     }
+                    ArrayList<URI> images = new ArrayList<>();
                     try (DirectoryStream<Path> stream = Files.newDirectoryStream(root)) {
                         for (Path entry : stream) {
                             Path ext = Paths.get(tmpDir + entry);
                             if (exclude.contains(ext))
                                 continue;
                             Files.copy(entry, ext, StandardCopyOption.REPLACE_EXISTING);
-                            Load.image.get(ext.toUri());
+                            images.add(ext.toUri());
                         }
                     }
+                    Load.images(images);
                 }
             }
         } catch (IOException e) {
@@ -0,0 +1,189 @@
+package org.helioviewer.jhv.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import javax.annotation.Nullable;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+// A JSON value kept as its UTF-8 bytes. The structure is only scanned, members are parsed when
+// asked for, and slices can be stored as they are, without a parse and re-serialise round-trip.
+public class RawJSON {
+
+    private final byte[] data;
+    private final int start;
+    private final int end;
+
+    private HashMap<String, RawJSON> members;
+
+    public RawJSON(byte[] _data) throws JSONException {
+        this(_data, skipSpace(_data, 0), valueEnd(_data, skipSpace(_data, 0)));
+    }
+
+    private RawJSON(byte[] _data, int _start, int _end) {
+        data = _data;
+        start = _start;
+        end = _end;
+    }
+
+    private static int skipSpace(byte[] b, int i) {
+        while (i < b.length && (b[i] == ' ' || b[i] == '\n' || b[i] == '\r' || b[i] == '\t'))
+            i++;
+        return i;
+    }
+
+    // index after the value starting at i
+    private static int valueEnd(byte[] b, int i) throws JSONException {
+        if (i >= b.length)
+            throw new JSONException("Unexpected end of JSON");
+
+        byte c = b[i];
+        if (c == '"')
+            return stringEnd(b, i);
+        if (c != '{' && c != '[') { // scalar
+            while (i < b.length && (c = b[i]) != ',' && c != '}' && c != ']' && c > ' ')
+                i++;
+            return i;
+        }
+
+        int depth = 0;
+        while (i < b.length) {
+            c = b[i];
+            if (c == '"')
+                i = stringEnd(b, i);
+            else {
+                if (c == '{' || c == '[')
+                    depth++;
+                else if ((c == '}' || c == ']') && --depth == 0)
+                    return i + 1;
+                i++;
+            }
+        }
+        throw new JSONException("Unterminated JSON value");
+    }
+
+    private static int stringEnd(byte[] b, int i) throws JSONException {
+        for (i++; i < b.length; i++) {
+            if (b[i] == '\\')
+                i++;
+            else if (b[i] == '"')
+                return i + 1;
+        }
+        throw new JSONException("Unterminated JSON string");
+    }
+
+    private int at(int i) {
+        return i < end ? data[i] : -1;
+    }
+
+    private static JSONException error(String expected, byte[] b, int i) {
+        return new JSONException("Expected " + expected + " at " + i + (i < b.length ? ", got '" + (char) b[i] + '\'' : ""));
+    }
+
+    private HashMap<String, RawJSON> getMembers() throws JSONException {
+        if (members != null)
+            return members;
+        if (at(start) != '{')
+            throw error("'{'", data, start);
+
+        members = new HashMap<>();
+        int i = skipSpace(data, start + 1);
+        if (at(i) == '}')
+            return members;
+        while (true) {
+            if (at(i) != '"')
+                throw error("'\"'", data, i);
+            int keyEnd = stringEnd(data, i);
+            String key = (String) new JSONTokener(new String(data, i, keyEnd - i, StandardCharsets.UTF_8)).nextValue();
+
+            i = skipSpace(data, keyEnd);
+            if (at(i) != ':')
+                throw error("':'", data, i);
+            int valueStart = skipSpace(data, i + 1);
+            int valueEnd = valueEnd(data, valueStart);
+            members.put(key, new RawJSON(data, valueStart, valueEnd));
+
+            i = skipSpace(data, valueEnd);
+            if (at(i) == ',')
+                i = skipSpace(data, i + 1);
+            else if (at(i) == '}')
+                return members;
+            else
+                throw error("',' or '}'", data, i);
+        }
+    }
+
+    @Nullable
+    public RawJSON opt(String key) throws JSONException {
+        return getMembers().get(key);
+    }
+
+    public boolean optBoolean(String key, boolean defaultValue) throws JSONException {
+        RawJSON value = opt(key);
+        if (value == null)
+            return defaultValue;
+        String s = value.toString();
+        return "true".equals(s) || (!"false".equals(s) && defaultValue);
+    }
+
+    public JSONArray getJSONArray(String key) throws JSONException {
+        RawJSON value = opt(key);
+        if (value == null)
+            throw new JSONException("JSONObject[\"" + key + "\"] not found.");
+        return new JSONArray(value.toString());
+    }
+
+    // the elements of an array member, unparsed
+    public List<RawJSON> getElements(String key) throws JSONException {
+        RawJSON value = opt(key);
+        if (value == null)
+            throw new JSONException("JSONObject[\"" + key + "\"] not found.");
+        if (value.at(value.start) != '[')
+            throw error("'['", data, value.start);
+
+        ArrayList<RawJSON> ret = new ArrayList<>();
+        int i = skipSpace(data, value.start + 1);
+        if (value.at(i) == ']')
+            return ret;
+        while (true) {
+            int elementEnd = valueEnd(data, i);
+            ret.add(new RawJSON(data, i, elementEnd));
+
+            i = skipSpace(data, elementEnd);
+            if (value.at(i) == ',')
+                i = skipSpace(data, i + 1);
+            else if (value.at(i) == ']')
+                return ret;
+            else
+                throw error("',' or ']'", data, i);
+        }
+    }
+
+    public JSONObject toJSONObject() throws JSONException {
+        return new JSONObject(toString());
+    }
+
+    // same content as JSONUtils.compressJSON, straight from the received bytes
+    public ByteArrayOutputStream compress() throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(end - start);
+        try (GZIPOutputStream gz = new GZIPOutputStream(baos)) {
+            gz.write(data, start, end - start);
+        }
+        return baos;
+    }
+
+    @Override
+    public String toString() {
+        return new String(data, start, end - start, StandardCharsets.UTF_8);
+    }
+
+}
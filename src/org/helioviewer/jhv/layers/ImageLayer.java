@@ -22,6 +22,7 @@ import org.helioviewer.jhv.opengl.GLImage;
 import org.helioviewer.jhv.opengl.GLImage.DifferenceMode;
 import org.helioviewer.jhv.opengl.GLListener;
 import org.helioviewer.jhv.opengl.GLSLSolarShader;
+import org.helioviewer.jhv.opengl.SoftSolarRenderer;
 import org.helioviewer.jhv.time.JHVDate;
 import org.helioviewer.jhv.view.BaseView;
 import org.helioviewer.jhv.view.View;
@@ -195,6 +196,16 @@ public class ImageLayer extends AbstractLayer implements ImageDataHandler {
         GLListener.glslSolar.render(gl);
     }
 
+    // same as render, without OpenGL
+    public void renderSoft(Camera camera, Viewport vp, SoftSolarRenderer renderer) {
+        if (imageData == null) {
+            return;
+        }
+        if (!isVisible[vp.idx])
+            return;
+        renderer.render(camera, vp, Display.mode, glImage, imageData, prevImageData, baseImageData);
+    }
+
     @Override
     public Component getOptionsPanel() {
         return optionsPanel;
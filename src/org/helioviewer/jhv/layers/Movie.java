@@ -212,6 +212,10 @@ public class Movie {
         animationMode = mode;
     }
 
+    public static AnimationMode getAnimationMode() {
+        return animationMode;
+    }
+
     private static boolean recording;
     private static boolean notDone;
 
@@ -231,4 +235,17 @@ public class Movie {
         return recording;
     }
 
+    private static boolean batch;
+
+    // frames stepped by the batch export, views decode ahead at full resolution
+    public static void startBatch() {
+        batch = true;
+        recording = true;
+        animationMode = AnimationMode.Stop;
+    }
+
+    public static boolean isBatch() {
+        return batch;
+    }
+
 }
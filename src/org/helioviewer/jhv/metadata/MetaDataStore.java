@@ -0,0 +1,129 @@
+package org.helioviewer.jhv.metadata;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.helioviewer.jhv.JHVDirectory;
+import org.helioviewer.jhv.log.Log;
+
+/*
+ * Persistent per-frame metadata keyed by the cache key of the frame. Only the values looked up
+ * while building the HelioviewerMetaData are kept, which is enough to build it again without
+ * the XML. Records are appended to a single file, which is read at the first lookup.
+ */
+public class MetaDataStore {
+
+    private static final int VERSION = 1;
+    private static final long MAX_SIZE = 64 * 1024 * 1024;
+
+    private static final File cacheDir = new File(JHVDirectory.CACHE.getFile(), "MetaData-1");
+    private static final File file = new File(cacheDir, "records");
+
+    private static HashMap<Long, Map<String, String>> records;
+
+    private static void load() {
+        records = new HashMap<>();
+        if (!file.exists())
+            return;
+        if (file.length() > MAX_SIZE) {
+            file.delete();
+            return;
+        }
+
+        long good = 0;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file.toPath())))) {
+            long length = in.available();
+            if (in.readInt() != VERSION)
+                throw new Exception("Unknown version");
+            while (true) {
+                good = length - in.available();
+                long key = in.readLong();
+                int n = in.readInt();
+                HashMap<String, String> values = new HashMap<>(2 * n);
+                for (int i = 0; i < n; i++)
+                    values.put(in.readUTF().intern(), in.readUTF());
+                records.put(key, values);
+            }
+        } catch (EOFException e) { // drop a record cut short, so that appends stay readable
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                channel.truncate(good);
+            } catch (Exception ex) {
+                Log.warn("Metadata cache " + file + " discarded: " + ex.getMessage());
+                records.clear();
+                file.delete();
+            }
+        } catch (Exception e) {
+            Log.warn("Metadata cache " + file + " discarded: " + e.getMessage());
+            records.clear();
+            file.delete();
+        }
+    }
+
+    // fills the frames found, returns how many
+    public static synchronized int get(long[] keys, MetaData[] metaData) {
+        if (records == null)
+            load();
+
+        int found = 0;
+        for (int i = 0; i < Math.min(keys.length, metaData.length); i++) {
+            if (keys[i] == 0)
+                continue;
+            Map<String, String> values = records.get(keys[i]);
+            if (values == null)
+                continue;
+            try {
+                metaData[i] = new XMLMetaDataContainer(values).getHVMetaData(i, true);
+                found++;
+            } catch (Exception e) { // not expected, parse again
+                records.remove(keys[i]);
+            }
+        }
+        return found;
+    }
+
+    // frames parsed just now, under their key if not zero
+    public static synchronized void put(long[] keys, XMLMetaDataContainer[] parsed) {
+        if (records == null)
+            load();
+
+        try {
+            Files.createDirectories(cacheDir.toPath());
+            boolean empty = !file.exists() || file.length() == 0;
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)))) {
+                if (empty)
+                    out.writeInt(VERSION);
+                for (int i = 0; i < Math.min(keys.length, parsed.length); i++) {
+                    if (keys[i] == 0 || parsed[i] == null || records.containsKey(keys[i]))
+                        continue;
+
+                    Map<String, String> values = parsed[i].getUsedValues();
+                    out.writeLong(keys[i]);
+                    out.writeInt(values.size());
+                    for (Map.Entry<String, String> e : values.entrySet()) {
+                        out.writeUTF(e.getKey());
+                        out.writeUTF(e.getValue());
+                    }
+                    records.put(keys[i], values);
+                }
+            }
+        } catch (Exception e) {
+            Log.warn("Metadata cache write error: " + e.getMessage());
+        }
+    }
+
+    public static synchronized void clear() {
+        records = new HashMap<>();
+        file.delete();
+    }
+
+}
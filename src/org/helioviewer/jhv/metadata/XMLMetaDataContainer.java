@@ -1,38 +1,92 @@
 package org.helioviewer.jhv.metadata;
 
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 
 import javax.annotation.Nullable;
-
-import org.helioviewer.jhv.base.XMLUtils;
-
-import org.w3c.dom.CharacterData;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
 
 import com.google.common.primitives.Doubles;
 import com.google.common.primitives.Longs;
 
+// The text of the elements inside the meta element, collected in one streaming pass. As with a
+// DOM lookup, the first element of a name counts and it has a value only if it starts with text.
 public class XMLMetaDataContainer implements MetaDataContainer {
 
-    private final Element meta;
+    private static final XMLInputFactory xmlFactory = XMLInputFactory.newInstance();
+
+    static {
+        xmlFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        xmlFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+    }
+
+    private final Map<String, String> values;
+    private final HashMap<String, String> used = new HashMap<>(); // values looked up, for MetaDataStore
 
     public XMLMetaDataContainer(String xml) throws Exception {
-        meta = (Element) XMLUtils.parse(xml).getElementsByTagName("meta").item(0);
-        if (meta == null)
-            throw new Exception("XML metadata without meta tag");
+        values = parse(xml);
+    }
+
+    XMLMetaDataContainer(Map<String, String> _values) {
+        values = _values;
+    }
+
+    private static HashMap<String, String> parse(String xml) throws Exception {
+        HashMap<String, String> ret = new HashMap<>();
+        XMLStreamReader reader = xmlFactory.createXMLStreamReader(new StringReader(xml));
+        try {
+            int depth = 0; // inside meta if positive
+            String first = null; // element just started, if first of its name
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        String name = reader.getLocalName();
+                        if (depth > 0) {
+                            depth++;
+                            first = ret.containsKey(name) ? null : name;
+                            if (first != null)
+                                ret.put(name, null);
+                        } else if ("meta".equals(name))
+                            depth = 1;
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                    case XMLStreamConstants.SPACE:
+                    case XMLStreamConstants.COMMENT: // character data in DOM as well
+                        if (first != null)
+                            ret.put(first, reader.getText());
+                        first = null;
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        first = null;
+                        if (depth > 0 && --depth == 0)
+                            return ret;
+                        break;
+                    default:
+                        first = null;
+                        break;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        throw new Exception("XML metadata without meta tag");
     }
 
     @Nullable
     private String getValueFromXML(String key) {
-        Element line = (Element) meta.getElementsByTagName(key).item(0);
-        if (line == null)
-            return null;
-
-        Node child = line.getFirstChild();
-        if (child instanceof CharacterData)
-            return ((CharacterData) child).getData();
-        return null;
+        String value = values.get(key);
+        if (value != null)
+            used.put(key, value);
+        return value;
+    }
+
+    Map<String, String> getUsedValues() {
+        return used;
     }
 
     public HelioviewerMetaData getHVMetaData(int i, boolean normalizeResponse) {
@@ -114,13 +114,22 @@ public class GLImage {
             shader.bindCutOffValue(gl, -1);
     }
 
+    private LUT getCurrentLUT() {
+        return diffMode == DifferenceMode.None ? lut : gray;
+    }
+
+    // as uploaded by applyLUT
+    int[] getCurrentLut8() {
+        LUT currlut = getCurrentLUT();
+        return invertLUT ? currlut.getLut8Inv() : currlut.getLut8();
+    }
+
     private void applyLUT(GL2 gl) {
         lutTex.bind(gl);
 
-        LUT currlut = diffMode == DifferenceMode.None ? lut : gray;
+        LUT currlut = getCurrentLUT();
         if (lutChanged || lastLut != currlut || invertLUT != lastInverted) {
-            int[] intLUT = invertLUT ? currlut.getLut8Inv() : currlut.getLut8();
-            IntBuffer lutBuffer = IntBuffer.wrap(intLUT);
+            IntBuffer lutBuffer = IntBuffer.wrap(getCurrentLut8());
             lastLut = currlut;
             lastInverted = invertLUT;
 
@@ -230,6 +239,10 @@ public class GLImage {
         return blend;
     }
 
+    float[] getColor() {
+        return new float[]{red, green, blue};
+    }
+
     public boolean getRed() {
         return red != 0;
     }
@@ -21,16 +21,18 @@ public class GLSLLine extends VAO {
     }
 
     public void setData(GL2 gl, BufVertex buf) {
-        count = buf.getCount();
+        setData(gl, buf.toVertexBuffer(), buf.toColorBuffer(), buf.getCount());
+        buf.clear();
+    }
+
+    // prebuilt vertex and colour data, count vertices up to the limits
+    public void setData(GL2 gl, Buffer vertices, Buffer colors, int _count) {
+        count = _count;
         if (count == 0)
             return;
 
-        Buffer buffer;
-        buffer = buf.toVertexBuffer();
-        vbo[0].setBufferData(gl, buffer.limit(), buffer.capacity(), buffer);
-        buffer = buf.toColorBuffer();
-        vbo[1].setBufferData(gl, buffer.limit(), buffer.capacity(), buffer);
-        buf.clear();
+        vbo[0].setBufferData(gl, vertices.limit(), vertices.capacity(), vertices);
+        vbo[1].setBufferData(gl, colors.limit(), colors.capacity(), colors);
 
         count--;
     }
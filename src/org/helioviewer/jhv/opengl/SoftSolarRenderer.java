@@ -0,0 +1,570 @@
+package org.helioviewer.jhv.opengl;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import javax.annotation.Nullable;
+
+import org.helioviewer.jhv.base.Region;
+import org.helioviewer.jhv.camera.Camera;
+import org.helioviewer.jhv.display.Display;
+import org.helioviewer.jhv.display.Viewport;
+import org.helioviewer.jhv.imagedata.ImageBuffer;
+import org.helioviewer.jhv.imagedata.ImageData;
+import org.helioviewer.jhv.math.Quat;
+import org.helioviewer.jhv.math.Vec2;
+import org.helioviewer.jhv.metadata.MetaData;
+import org.helioviewer.jhv.opengl.GLImage.DifferenceMode;
+
+/*
+ * Java counterpart of the solar fragment shaders, for rendering without an OpenGL context.
+ * The uniforms are taken as ImageLayer and GLImage bind them to GLSLSolarShader. Tiles of the
+ * target are then shaded in parallel with linear texture filtering, and depth tested and
+ * blended into an 8-bit colour buffer as set up by GLListener. Per-pixel trigonometry uses
+ * StrictMath, so that the output does not depend on the JIT state.
+ */
+public class SoftSolarRenderer {
+
+    private static final int TILE = 64;
+
+    private static final double CLIP_SCALE_NARROW = 1. / (2. * 32.);
+    private static final double CLIP_SCALE_WIDE = 1. / (2. * 50. * 215.09151684811678);
+    private static final double BOOST = 1. / (0.2 * 2.);
+    private static final double QUAD_DEPTH = 0.5; // window depth of the full-screen quad at z=0
+
+    public final int width;
+    public final int height;
+
+    private final float[] rgba; // premultiplied, multiples of 1/255
+    private final float[] depth;
+
+    public SoftSolarRenderer(int _width, int _height) {
+        width = _width;
+        height = _height;
+        rgba = new float[4 * width * height];
+        depth = new float[width * height];
+        clear();
+    }
+
+    public void clear() {
+        Arrays.fill(rgba, 0);
+        Arrays.fill(depth, 1);
+    }
+
+    // colour buffer as read back by GLGrab, bottom row first
+    public void getBGR(ByteBuffer dst) {
+        for (int y = 0; y < height; y++) {
+            int src = 4 * width * y;
+            int pos = 3 * width * y;
+            for (int x = 0; x < width; x++, src += 4, pos += 3) {
+                dst.put(pos, to8bit(rgba[src + 2]));
+                dst.put(pos + 1, to8bit(rgba[src + 1]));
+                dst.put(pos + 2, to8bit(rgba[src]));
+            }
+        }
+    }
+
+    private static byte to8bit(float v) {
+        return (byte) (int) (v * 255 + .5f);
+    }
+
+    // mirrors ImageLayer.render, vp in window coordinates of this target
+    public void render(Camera camera, Viewport vp, Display.DisplayMode mode, GLImage glImage, ImageData imageData, @Nullable ImageData prevImageData, @Nullable ImageData baseImageData) {
+        Layer l = new Layer(camera, vp, mode, glImage, imageData, prevImageData, baseImageData);
+
+        int x0 = Math.max(0, vp.x), x1 = Math.min(width, vp.x + vp.width);
+        int y0 = Math.max(0, vp.yGL), y1 = Math.min(height, vp.yGL + vp.height);
+        if (x0 >= x1 || y0 >= y1)
+            return;
+
+        int tilesX = (x1 - x0 + TILE - 1) / TILE, tilesY = (y1 - y0 + TILE - 1) / TILE;
+        IntStream.range(0, tilesX * tilesY).parallel().forEach(t -> {
+            int tx = x0 + (t % tilesX) * TILE, ty = y0 + (t / tilesX) * TILE;
+            shadeTile(l, tx, Math.min(x1, tx + TILE), ty, Math.min(y1, ty + TILE));
+        });
+    }
+
+    private void shadeTile(Layer l, int x0, int x1, int y0, int y1) {
+        Fragment f = new Fragment();
+        for (int y = y0; y < y1; y++) {
+            for (int x = x0; x < x1; x++) {
+                if (!l.shade(x + .5, y + .5, f))
+                    continue;
+
+                int idx = y * width + x;
+                if (f.depth > depth[idx]) // GL_LEQUAL
+                    continue;
+                depth[idx] = (float) f.depth;
+
+                // GL_ONE, GL_ONE_MINUS_SRC_ALPHA
+                int p = 4 * idx;
+                double a = 1 - f.a;
+                rgba[p] = quantize(f.r + rgba[p] * a);
+                rgba[p + 1] = quantize(f.g + rgba[p + 1] * a);
+                rgba[p + 2] = quantize(f.b + rgba[p + 2] * a);
+                rgba[p + 3] = quantize(f.a + rgba[p + 3] * a);
+            }
+        }
+    }
+
+    private static float quantize(double v) {
+        return Math.round(clamp01(v) * 255) / 255f;
+    }
+
+    private static double clamp01(double v) {
+        return v < 0 ? 0 : (v > 1 ? 1 : v);
+    }
+
+    private static class Fragment {
+
+        double r, g, b, a;
+        double depth;
+
+        // texture coordinates and brightness factor
+        double tx, ty, dtx, dty;
+        double factor;
+
+        final double[] hit = new double[3];
+        final double[] rot = new double[3];
+        final double[] diffRot = new double[3];
+        final double[] normal = new double[3];
+
+    }
+
+    // single channel texture with GL_LINEAR and GL_CLAMP_TO_EDGE, normalised to [0, 1]
+    private static class Texture {
+
+        final int w;
+        final int h;
+        final Buffer buffer;
+        final ImageBuffer.Format format;
+
+        Texture(ImageBuffer ib) {
+            w = ib.width;
+            h = ib.height;
+            format = ib.format;
+            if (format == ImageBuffer.Format.ARGB32 && ib.buffer instanceof ByteBuffer) // packed as GL_UNSIGNED_INT_8_8_8_8_REV
+                buffer = ((ByteBuffer) ib.buffer).duplicate().order(ByteOrder.nativeOrder()).asIntBuffer();
+            else
+                buffer = ib.buffer;
+        }
+
+        private double texel(int x, int y) {
+            int i = y * w + x;
+            switch (format) {
+                case Gray8:
+                    return (((ByteBuffer) buffer).get(i) & 0xFF) / 255.;
+                case Gray16:
+                    return (((ShortBuffer) buffer).get(i) & 0xFFFF) / 65535.;
+                default: // red
+                    return ((((IntBuffer) buffer).get(i) >> 16) & 0xFF) / 255.;
+            }
+        }
+
+        double sample(double s, double t) {
+            double u = s * w - .5, v = t * h - .5;
+            int i = (int) Math.floor(u), j = (int) Math.floor(v);
+            double fu = u - i, fv = v - j;
+            int i0 = clamp(i, w), i1 = clamp(i + 1, w);
+            int j0 = clamp(j, h), j1 = clamp(j + 1, h);
+            return (texel(i0, j0) * (1 - fu) + texel(i1, j0) * fu) * (1 - fv) +
+                   (texel(i0, j1) * (1 - fu) + texel(i1, j1) * fu) * fv;
+        }
+
+        private static int clamp(int i, int n) {
+            return i < 0 ? 0 : (i >= n ? n - 1 : i);
+        }
+
+    }
+
+    // the uniforms of one layer and the fragment shaders using them
+    private static class Layer {
+
+        private static final double[] UNIT_Z = {0, 0, 1};
+
+        final Display.DisplayMode mode;
+        final float[] m; // cameraTransformationInverse
+        final double vpX, vpY, vpW, vpH, vpAspect;
+
+        final double slit0, slit1;
+        final double brightOffset, brightScale;
+        final double[] color = new double[4];
+        final boolean enhanced;
+        final double sharpenX, sharpenY, sharpenWeight;
+        final boolean isDiff, calculateDepth;
+
+        final float[] rect = new float[4];
+        final float[] diffRect = new float[4];
+        float hgln, hglnDiff;
+        final float[] hglt = new float[2];
+        final float[] hgltDiff = new float[2];
+        final float[] crota = new float[3];
+        final float[] crotaDiff = new float[3];
+
+        final float[] quat = new float[4];
+        final float[] diffQuat = new float[4];
+
+        final boolean sector;
+        final double sector1, sector2;
+        final double radius0, radius1;
+        final double polarRadius0, polarRadius1;
+        final double cutOffX, cutOffY, cutOffValue;
+
+        final Texture image;
+        final Texture diffImage;
+        final int[] lut;
+
+        Layer(Camera camera, Viewport vp, Display.DisplayMode _mode, GLImage glImage, ImageData imageData, @Nullable ImageData prevImageData, @Nullable ImageData baseImageData) {
+            mode = _mode;
+            polarRadius0 = (float) mode.scale.getYstart();
+            polarRadius1 = (float) mode.scale.getYstop();
+            m = camera.getTransformationInverse(vp.aspect).clone();
+            vpX = vp.x;
+            vpY = vp.yGL;
+            vpW = vp.width;
+            vpH = vp.height;
+            vpAspect = (float) vp.height / (float) vp.width;
+
+            // GLImage.applyFilters
+            DifferenceMode diffMode = glImage.getDifferenceMode();
+            ImageData diffData = null;
+            if (prevImageData != null && diffMode != DifferenceMode.Base) {
+                diffData = prevImageData;
+            } else if (baseImageData != null && diffMode == DifferenceMode.Base) {
+                diffData = baseImageData;
+            }
+            if (diffData != null)
+                setAngles(diffData, diffRect, hgltDiff, crotaDiff, true);
+
+            MetaData metaData = imageData.getMetaData();
+            setAngles(imageData, rect, hglt, crota, false);
+            calculateDepth = metaData.getCalculateDepth();
+            radius0 = (float) metaData.getInnerRadius();
+            radius1 = (float) (Display.getShowCorona() ? metaData.getOuterRadius() : 1);
+            sector = metaData.getSector0() != metaData.getSector1();
+            sector1 = (float) metaData.getSector0();
+            sector2 = (float) metaData.getSector1();
+            if (metaData.getCutOffValue() > 0) {
+                Vec2 cdir = metaData.getCutOffDirection();
+                cutOffX = (float) cdir.x;
+                cutOffY = (float) cdir.y;
+                cutOffValue = (float) metaData.getCutOffValue();
+            } else {
+                cutOffX = cutOffY = 0;
+                cutOffValue = -1;
+            }
+
+            slit0 = (float) glImage.getSlitLeft();
+            slit1 = (float) glImage.getSlitRight();
+            brightOffset = (float) glImage.getBrightOffset();
+            brightScale = (float) (glImage.getBrightScale() * metaData.getResponseFactor());
+            float[] rgb = glImage.getColor();
+            double opacity = glImage.getOpacity();
+            color[0] = (float) (rgb[0] * opacity);
+            color[1] = (float) (rgb[1] * opacity);
+            color[2] = (float) (rgb[2] * opacity);
+            color[3] = (float) (opacity * glImage.getBlend());
+            enhanced = glImage.getEnhanced();
+            ImageBuffer ib = imageData.getImageBuffer();
+            sharpenX = (float) (1. / ib.width);
+            sharpenY = (float) (1. / ib.height);
+            sharpenWeight = -2 * (float) glImage.getSharpen();
+            lut = glImage.getCurrentLut8();
+
+            isDiff = diffMode != DifferenceMode.None;
+            image = new Texture(ib);
+            // the GL path keeps the previous difference texture if there is no frame, the same as this one at the start
+            diffImage = isDiff ? new Texture(diffData == null ? ib : diffData.getImageBuffer()) : null;
+
+            // ImageLayer.render
+            Quat q = Quat.rotate(camera.getCurrentDragRotation(), imageData.getViewpoint().toQuat());
+            Quat.rotateWithConjugate(q, metaData.getCenterRotation()).setFloatArray(quat);
+            if (diffMode == DifferenceMode.Base && baseImageData != null) {
+                Quat.rotateWithConjugate(q, baseImageData.getMetaData().getCenterRotation()).setFloatArray(diffQuat);
+            } else if (diffMode == DifferenceMode.Running && prevImageData != null) {
+                Quat.rotateWithConjugate(q, prevImageData.getMetaData().getCenterRotation()).setFloatArray(diffQuat);
+            }
+        }
+
+        private void setAngles(ImageData data, float[] r, float[] lt, float[] cr, boolean diff) {
+            Region region = data.getRegion();
+            r[0] = (float) region.llx;
+            r[1] = (float) region.lly;
+            r[2] = (float) (1. / region.width);
+            r[3] = (float) (1. / region.height);
+
+            MetaData md = data.getMetaData();
+            lt[0] = (float) Math.sin(md.getViewpoint().lat);
+            lt[1] = (float) Math.cos(md.getViewpoint().lat);
+            float ln = (float) ((md.getViewpoint().lon + 2. * Math.PI) % (2. * Math.PI));
+            if (diff)
+                hglnDiff = ln;
+            else
+                hgln = ln;
+            cr[0] = (float) md.getCROTA();
+            cr[1] = (float) md.getSCROTA();
+            cr[2] = (float) md.getCCROTA();
+        }
+
+        // gl_FragCoord in, false for discard
+        boolean shade(double fx, double fy, Fragment f) {
+            double nx = 2 * (fx - vpX) / vpW - 1;
+            double ny = 2 * (fy - vpY) / vpH - 1;
+            // cameraTransformationInverse * vec4(nx, ny, -1, 1)
+            double ux = m[0] * nx + m[4] * ny - m[8] + m[12];
+            double uy = m[1] * nx + m[5] * ny - m[9] + m[13];
+
+            boolean ok;
+            switch (mode) {
+                case Orthographic:
+                    ok = ortho(ux, uy, f);
+                    break;
+                case Latitudinal:
+                    f.depth = QUAD_DEPTH;
+                    f.factor = 1;
+                    ok = radius0 <= 1 && scrPos(ux, uy, f) && lati(hgln, hglt, crota, rect, f, false) && (!isDiff || lati(hglnDiff, hgltDiff, crotaDiff, diffRect, f, true));
+                    break;
+                default:
+                    f.depth = QUAD_DEPTH;
+                    ok = scrPos(ux, uy, f) && polar(crota[0], rect, f, false) && (!isDiff || polar(crotaDiff[0], diffRect, f, true));
+                    break;
+            }
+            return ok && getColor(f);
+        }
+
+        // getScrPos, result in tx, ty
+        private boolean scrPos(double ux, double uy, Fragment f) {
+            f.tx = vpAspect * ux + .5;
+            f.ty = uy + .5;
+            return clampCoord(f.tx, f.ty);
+        }
+
+        private boolean clampCoord(double x, double y) {
+            return !(x < slit0 || y < 0 || x > slit1 || y > 1);
+        }
+
+        private static boolean clampTexture(double x, double y) {
+            return !(x < 0 || y < 0 || x > 1 || y > 1);
+        }
+
+        private boolean ortho(double ux, double uy, Fragment f) {
+            double radius2 = ux * ux + uy * uy;
+            boolean onDisk = radius2 <= 1;
+
+            double[] hit = f.hit, rot = f.rot;
+            if (onDisk) {
+                hit[0] = ux;
+                hit[1] = uy;
+                hit[2] = Math.sqrt(1 - radius2);
+                rotateVectorInverse(quat, hit, rot);
+                f.factor = 1;
+                f.depth = .5 - hit[2] * CLIP_SCALE_NARROW;
+            } else {
+                hit[0] = hit[1] = hit[2] = 0;
+                rot[0] = rot[1] = rot[2] = 0;
+                f.factor = Math.sqrt(radius2);
+                f.depth = 1;
+            }
+
+            if (rot[2] <= 0) { // off-limb or back
+                if (!intersectPlane(quat, ux, uy, onDisk, hit, f.normal))
+                    return false;
+                rotateVectorInverse(quat, hit, rot);
+                if (calculateDepth) // intersecting Euhforia planes
+                    f.depth = .5 - hit[2] * CLIP_SCALE_WIDE;
+            }
+
+            if (sector) {
+                double theta = StrictMath.atan2(rot[1], rot[0]);
+                if (theta < sector1 || theta > sector2)
+                    return false;
+            }
+
+            f.tx = (rot[0] - rect[0]) * rect[2];
+            f.ty = (-rot[1] - rect[1]) * rect[3];
+            if (!clampCoord(f.tx, f.ty))
+                return false;
+
+            double rad = Math.sqrt(rot[0] * rot[0] + rot[1] * rot[1]);
+            if (rad > radius1 || rad < radius0 || (cutOffValue >= 0 && cutOff(rot[0], rot[1])))
+                return false;
+
+            if (isDiff) {
+                double[] drot = f.diffRot;
+                rotateVectorInverse(diffQuat, hit, drot);
+                if (drot[2] <= 0) {
+                    if (!intersectPlane(diffQuat, ux, uy, onDisk, hit, f.normal))
+                        return false;
+                    rotateVectorInverse(diffQuat, hit, drot);
+                }
+
+                f.dtx = (drot[0] - diffRect[0]) * diffRect[2];
+                f.dty = (-drot[1] - diffRect[1]) * diffRect[3];
+                if (!clampCoord(f.dtx, f.dty))
+                    return false;
+
+                double drad = Math.sqrt(drot[0] * drot[0] + drot[1] * drot[1]);
+                return !(drad > radius1 || drad < radius0);
+            }
+            return true;
+        }
+
+        private boolean cutOff(double x, double y) {
+            double flat = Math.abs(x * cutOffX + y * cutOffY);
+            double flatAlt = Math.abs(-x * cutOffY + y * cutOffX);
+            return flat > cutOffValue || flatAlt > cutOffValue;
+        }
+
+        // hit point on the plane through the Sun center, false for discard
+        private static boolean intersectPlane(float[] q, double ux, double uy, boolean hideBack, double[] hit, double[] altNormal) {
+            rotateVector(q, UNIT_Z, altNormal);
+            if (hideBack && altNormal[2] <= 0)
+                return false;
+            hit[0] = ux;
+            hit[1] = uy;
+            hit[2] = -(altNormal[0] * ux + altNormal[1] * uy) / altNormal[2];
+            return true;
+        }
+
+        // vec + 2 * cross(cross(vec, q.xyz) + q.w * vec, q.xyz)
+        private static void rotateVectorInverse(float[] q, double[] v, double[] out) {
+            double cx = v[1] * q[2] - v[2] * q[1] + q[3] * v[0];
+            double cy = v[2] * q[0] - v[0] * q[2] + q[3] * v[1];
+            double cz = v[0] * q[1] - v[1] * q[0] + q[3] * v[2];
+            out[0] = v[0] + 2 * (cy * q[2] - cz * q[1]);
+            out[1] = v[1] + 2 * (cz * q[0] - cx * q[2]);
+            out[2] = v[2] + 2 * (cx * q[1] - cy * q[0]);
+        }
+
+        // vec + 2 * cross(q.xyz, cross(q.xyz, vec) + q.w * vec)
+        private static void rotateVector(float[] q, double[] v, double[] out) {
+            double cx = q[1] * v[2] - q[2] * v[1] + q[3] * v[0];
+            double cy = q[2] * v[0] - q[0] * v[2] + q[3] * v[1];
+            double cz = q[0] * v[1] - q[1] * v[0] + q[3] * v[2];
+            out[0] = v[0] + 2 * (q[1] * cz - q[2] * cy);
+            out[1] = v[1] + 2 * (q[2] * cx - q[0] * cz);
+            out[2] = v[2] + 2 * (q[0] * cy - q[1] * cx);
+        }
+
+        // get_polar_texcoord, screen position in tx, ty on entry
+        private boolean polar(double cr, float[] r, Fragment f, boolean diff) {
+            double sx = diff ? f.dtx : f.tx, sy = diff ? f.dty : f.ty;
+            double interpolated = polarRadius0 + sy * (polarRadius1 - polarRadius0);
+            if (mode == Display.DisplayMode.LogPolar)
+                interpolated = StrictMath.exp(interpolated);
+            if (interpolated > radius1 || interpolated < radius0)
+                return false;
+
+            double theta = -(sx * 2 * Math.PI + Math.PI / 2 - cr);
+            double px = StrictMath.cos(theta) * interpolated;
+            double py = StrictMath.sin(theta) * interpolated;
+            if (cutOffValue >= 0 && cutOff(py, px))
+                return false;
+
+            double tx = r[2] * (px - r[0]);
+            double ty = r[3] * (py - r[1]);
+            if (!clampTexture(tx, ty))
+                return false;
+
+            if (diff) {
+                f.dtx = tx;
+                f.dty = ty;
+            } else {
+                f.dtx = f.tx; // screen position for the difference image
+                f.dty = f.ty;
+                f.tx = tx;
+                f.ty = ty;
+                f.factor = interpolated > 1 ? interpolated : 1;
+            }
+            return true;
+        }
+
+        // get_lati_texcoord, screen position in tx, ty on entry
+        private boolean lati(float ln, float[] lt, float[] cr, float[] r, Fragment f, boolean diff) {
+            double sx = diff ? f.dtx : f.tx, sy = diff ? f.dty : f.ty;
+            double theta = sy * Math.PI;
+            double phi = Math.PI + ln + sx * 2 * Math.PI;
+
+            double x = StrictMath.sin(theta) * StrictMath.cos(phi);
+            double y = StrictMath.sin(theta) * StrictMath.sin(phi);
+            double z = StrictMath.cos(theta);
+
+            double slt = lt[0], clt = lt[1], scr = cr[1], ccr = cr[2];
+            double rx = clt * x - scr * slt * y - ccr * slt * z;
+            double ry = ccr * y - scr * z;
+            double rz = slt * x + scr * clt * y + ccr * clt * z;
+            if (rx < 0)
+                return false;
+
+            double tx = r[3] * (ry - r[0]);
+            double ty = r[3] * (rz - r[1]);
+            if (!clampTexture(tx, ty))
+                return false;
+
+            if (diff) {
+                f.dtx = tx;
+                f.dty = ty;
+            } else {
+                f.dtx = f.tx;
+                f.dty = f.ty;
+                f.tx = tx;
+                f.ty = ty;
+            }
+            return true;
+        }
+
+        private double fetch(Texture tex, double s, double t, double scale) {
+            return tex.sample(s, t) * scale + brightOffset;
+        }
+
+        private boolean getColor(Fragment f) {
+            double scale = brightScale;
+            if (enhanced)
+                scale *= f.factor * f.factor * f.factor;
+
+            boolean sharp = sharpenWeight != 0; // the mix drops the convolution otherwise
+            double v, conv = 0;
+            if (!isDiff) {
+                v = fetch(image, f.tx, f.ty, scale);
+                for (int i = 0; sharp && i < GLSLSolarShader.blurKernel.length; i++) {
+                    double ox = GLSLSolarShader.blurOffset[2 * i] * sharpenX, oy = GLSLSolarShader.blurOffset[2 * i + 1] * sharpenY;
+                    conv += fetch(image, f.tx + ox, f.ty + oy, scale) * GLSLSolarShader.blurKernel[i];
+                }
+            } else {
+                v = fetch(image, f.tx, f.ty, scale) - fetch(diffImage, f.dtx, f.dty, scale);
+                v = v * BOOST + .5;
+                for (int i = 0; sharp && i < GLSLSolarShader.blurKernel.length; i++) {
+                    double ox = GLSLSolarShader.blurOffset[2 * i] * sharpenX, oy = GLSLSolarShader.blurOffset[2 * i + 1] * sharpenY;
+                    conv += (fetch(image, f.tx + ox, f.ty + oy, scale) - fetch(diffImage, f.dtx + ox, f.dty + oy, scale)) * GLSLSolarShader.blurKernel[i];
+                }
+                conv = conv * BOOST + .5;
+            }
+            if (sharp)
+                v = v * (1 - sharpenWeight) + conv * sharpenWeight;
+
+            // texture(lut, v), linear with clamp to edge
+            int n = lut.length;
+            double u = clamp01(v) * n - .5;
+            int i0 = (int) Math.floor(u);
+            double fu = u - i0;
+            int c0 = lut[Math.max(0, Math.min(n - 1, i0))], c1 = lut[Math.max(0, Math.min(n - 1, i0 + 1))];
+
+            f.r = clamp01(lerp(c0 >> 16, c1 >> 16, fu) * color[0]);
+            f.g = clamp01(lerp(c0 >> 8, c1 >> 8, fu) * color[1]);
+            f.b = clamp01(lerp(c0, c1, fu) * color[2]);
+            f.a = clamp01(lerp(c0 >>> 24, c1 >>> 24, fu) * color[3]);
+            return true;
+        }
+
+        private static double lerp(int c0, int c1, double fu) {
+            return ((c0 & 0xFF) * (1 - fu) + (c1 & 0xFF) * fu) / 255.;
+        }
+
+    }
+
+}
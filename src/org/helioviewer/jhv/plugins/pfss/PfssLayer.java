@@ -13,7 +13,6 @@ import org.helioviewer.jhv.layers.AbstractLayer;
 import org.helioviewer.jhv.layers.Movie;
 import org.helioviewer.jhv.layers.TimespanListener;
 import org.helioviewer.jhv.math.MathUtils;
-import org.helioviewer.jhv.opengl.BufVertex;
 import org.helioviewer.jhv.opengl.GLSLLine;
 import org.helioviewer.jhv.plugins.pfss.data.PfssData;
 import org.helioviewer.jhv.plugins.pfss.data.PfssNewDataLoader;
@@ -28,9 +27,7 @@ public class PfssLayer extends AbstractLayer implements TimespanListener {
     private static final double LINEWIDTH = 2 * GLSLLine.LINEWIDTH_BASIC;
 
     private final PfssLayerOptions optionsPanel;
-    private final PfssLine pfssLine = new PfssLine();
     private final GLSLLine glslLine = new GLSLLine(true);
-    private final BufVertex lineBuf = new BufVertex(3276 * GLSLLine.stride); // pre-allocate 64k
     private PfssData previousPfssData;
 
     public PfssLayer(JSONObject jo) {
@@ -144,8 +141,9 @@ public class PfssLayer extends AbstractLayer implements TimespanListener {
             lastFixedColor = fixedColor;
             lastRadius = radius;
 
-            pfssLine.calculatePositions(data, detail, fixedColor, radius, lineBuf);
-            glslLine.setData(gl, lineBuf);
+            PfssLine lines = data.lines; // prebuilt, only the colours follow the options
+            int count = lines.getCount(detail);
+            glslLine.setData(gl, lines.getVertices(count), lines.getColors(fixedColor, radius, count), count);
 
             timeString = data.dateObs.toString();
             JHVFrame.getLayers().fireTimeUpdated(this);
@@ -1,89 +1,148 @@
 package org.helioviewer.jhv.plugins.pfss;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
 import java.nio.ShortBuffer;
 
 import org.helioviewer.jhv.base.Colors;
-import org.helioviewer.jhv.opengl.BufVertex;
-import org.helioviewer.jhv.plugins.pfss.data.PfssData;
 
-class PfssLine {
+// Field lines of one epoch decoded once into vertex and colour arrays. The lines are sorted by
+// detail class, so that each detail setting is a prefix of the arrays, while the radius cut and
+// the choice of colouring only touch the colours.
+public class PfssLine {
 
     private static final byte[] openFieldColor = Colors.Red;
     private static final byte[] loopColor = Colors.White;
     private static final byte[] insideFieldColor = Colors.Blue;
 
-    private final byte[] brightColor = new byte[4];
+    private static final int DETAIL_CLASSES = PfssSettings.MAX_DETAIL + 1;
+    private static final int VERTEX_BYTES = 16;
 
-    private void computeBrightColor(double b) {
+    private final byte[] vertices; // x, z, -y, 1 in native order
+    private final float[] radii; // line ends are never shown
+    private final byte[] brightColors;
+    private final byte[] fixedColors;
+    private final int[] detailCount = new int[DETAIL_CLASSES];
+
+    private final byte[] colors;
+    private boolean lastFixedColor;
+    private double lastRadius = -1;
+
+    private static double decode(ShortBuffer buf, int idx) {
+        return (buf.get(idx) + 32768.) * (2. / 65535.) - 1.;
+    }
+
+    private static void putBrightColor(byte[] dst, int pos, double b) {
         if (b > 0) {
             byte bb = (byte) (255 * (1. - b));
-            brightColor[0] = (byte) 255;
-            brightColor[1] = bb;
-            brightColor[2] = bb;
+            dst[pos] = (byte) 255;
+            dst[pos + 1] = bb;
+            dst[pos + 2] = bb;
         } else {
             byte bb = (byte) (255 * (1. + b));
-            brightColor[0] = bb;
-            brightColor[1] = bb;
-            brightColor[2] = (byte) 255;
+            dst[pos] = bb;
+            dst[pos + 1] = bb;
+            dst[pos + 2] = (byte) 255;
         }
-        brightColor[3] = (byte) 255;
+        dst[pos + 3] = (byte) 255;
     }
 
-    private static double decode(ShortBuffer buf, int idx) {
-        return (buf.get(idx) + 32768.) * (2. / 65535.) - 1.;
-    }
+    public PfssLine(ShortBuffer flinex, ShortBuffer fliney, ShortBuffer flinez, ShortBuffer flines, int pointsPerLine, double cphi, double sphi) {
+        int numLines = flinex.capacity() / pointsPerLine;
+        int numVertices = numLines * (pointsPerLine + 2);
+
+        vertices = new byte[VERTEX_BYTES * numVertices];
+        radii = new float[numVertices];
+        brightColors = new byte[4 * numVertices];
+        fixedColors = new byte[4 * numVertices];
+        colors = new byte[4 * numVertices];
+
+        FloatBuffer vbuf = ByteBuffer.wrap(vertices).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        int v = 0;
+        for (int c = 0; c < DETAIL_CLASSES; c++) {
+            for (int l = c; l < numLines; l += DETAIL_CLASSES) {
+                int first = l * pointsPerLine;
+                int last = first + pointsPerLine - 1;
+
+                byte[] oneColor;
+                double xo = 3. * decode(flinex, last);
+                double yo = 3. * decode(fliney, last);
+                double zo = 3. * decode(flinez, last);
+                double ro = Math.sqrt(xo * xo + yo * yo + zo * zo);
+                double x0 = 3. * decode(flinex, first);
+                double y0 = 3. * decode(fliney, first);
+                double z0 = 3. * decode(flinez, first);
+                double r0 = Math.sqrt(x0 * x0 + y0 * y0 + z0 * z0);
+                if (Math.abs(r0 - ro) < 2.5 - 1.0 - 0.2) {
+                    oneColor = loopColor;
+                } else if (decode(flines, first) < 0) {
+                    oneColor = insideFieldColor;
+                } else {
+                    oneColor = openFieldColor;
+                }
+
+                for (int i = first; i <= last; i++) {
+                    double x = 3. * decode(flinex, i);
+                    double y = 3. * decode(fliney, i);
+                    double z = 3. * decode(flinez, i);
 
-    public void calculatePositions(PfssData data, int detail, boolean fixedColor, double radius, BufVertex lineBuf) {
-        int pointsPerLine = data.pointsPerLine;
-        double cphi = data.cphi;
-        double sphi = data.sphi;
-        ShortBuffer flinex = data.flinex;
-        ShortBuffer fliney = data.fliney;
-        ShortBuffer flinez = data.flinez;
-        ShortBuffer flines = data.flines;
-        int dlength = flinex.capacity();
-
-        byte[] oneColor = loopColor;
-        for (int i = 0; i < dlength; i++) {
-            if (i / pointsPerLine % 9 <= detail) {
-                double x = 3. * decode(flinex, i);
-                double y = 3. * decode(fliney, i);
-                double z = 3. * decode(flinez, i);
-                double b = decode(flines, i);
-                computeBrightColor(b);
-
-                double helpx = cphi * x + sphi * y;
-                double helpy = -sphi * x + cphi * y;
-                x = helpx;
-                y = helpy;
-                double r = Math.sqrt(x * x + y * y + z * z);
-
-                if (i % pointsPerLine == 0) { // start line
-                    lineBuf.putVertex((float) x, (float) z, (float) -y, 1, Colors.Null);
-
-                    if (fixedColor) {
-                        double xo = 3. * decode(flinex, i + pointsPerLine - 1);
-                        double yo = 3. * decode(fliney, i + pointsPerLine - 1);
-                        double zo = 3. * decode(flinez, i + pointsPerLine - 1);
-                        double ro = Math.sqrt(xo * xo + yo * yo + zo * zo);
-
-                        if (Math.abs(r - ro) < 2.5 - 1.0 - 0.2) {
-                            oneColor = loopColor;
-                        } else if (b < 0) {
-                            oneColor = insideFieldColor;
-                        } else {
-                            oneColor = openFieldColor;
-                        }
-                    }
+                    double helpx = cphi * x + sphi * y;
+                    double helpy = -sphi * x + cphi * y;
+                    x = helpx;
+                    y = helpy;
+
+                    if (i == first) // start line
+                        v = putEnd(vbuf, v, x, y, z);
+
+                    vbuf.put(4 * v, (float) x).put(4 * v + 1, (float) z).put(4 * v + 2, (float) -y).put(4 * v + 3, 1);
+                    radii[v] = (float) Math.sqrt(x * x + y * y + z * z);
+                    putBrightColor(brightColors, 4 * v, decode(flines, i));
+                    System.arraycopy(oneColor, 0, fixedColors, 4 * v, 4);
+                    v++;
+
+                    if (i == last) // end line
+                        v = putEnd(vbuf, v, x, y, z);
                 }
+            }
+            detailCount[c] = v;
+        }
+    }
 
-                lineBuf.putVertex((float) x, (float) z, (float) -y, 1, r > radius ? Colors.Null : (fixedColor ? oneColor : brightColor));
+    private int putEnd(FloatBuffer vbuf, int v, double x, double y, double z) {
+        vbuf.put(4 * v, (float) x).put(4 * v + 1, (float) z).put(4 * v + 2, (float) -y).put(4 * v + 3, 1);
+        radii[v] = Float.POSITIVE_INFINITY;
+        return v + 1;
+    }
+
+    public int getCount(int detail) {
+        return detailCount[detail];
+    }
+
+    public ByteBuffer getVertices(int count) {
+        return (ByteBuffer) ByteBuffer.wrap(vertices).limit(VERTEX_BYTES * count);
+    }
 
-                if (i % pointsPerLine == pointsPerLine - 1) { // end line
-                    lineBuf.putVertex((float) x, (float) z, (float) -y, 1, Colors.Null);
+    // to be accessed only from the rendering thread, kept for the last settings
+    public ByteBuffer getColors(boolean fixedColor, double radius, int count) {
+        if (fixedColor != lastFixedColor || radius != lastRadius) {
+            lastFixedColor = fixedColor;
+            lastRadius = radius;
+
+            byte[] src = fixedColor ? fixedColors : brightColors;
+            for (int v = 0; v < radii.length; v++) {
+                int p = 4 * v;
+                if (radii[v] > radius) {
+                    colors[p] = colors[p + 1] = colors[p + 2] = colors[p + 3] = 0;
+                } else {
+                    colors[p] = src[p];
+                    colors[p + 1] = src[p + 1];
+                    colors[p + 2] = src[p + 2];
+                    colors[p + 3] = src[p + 3];
                 }
             }
         }
+        return (ByteBuffer) ByteBuffer.wrap(colors).limit(4 * count);
     }
 
 }
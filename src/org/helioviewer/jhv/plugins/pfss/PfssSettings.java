@@ -7,6 +7,8 @@ public class PfssSettings {
     public static final int MAX_DETAIL = 8;
     public static final double MAX_RADIUS = 2.5;
 
+    public static final int PREFETCH_EPOCHS = 4; // ahead of playback
+
     public static final String baseURL = "http://swhv.oma.be/magtest/pfss/";
     public static final String availabilityURL = "http://swhv.oma.be/availability/pfss/availability/availability.html";
 
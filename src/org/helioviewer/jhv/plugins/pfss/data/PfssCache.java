@@ -1,11 +1,15 @@
 package org.helioviewer.jhv.plugins.pfss.data;
 
+import java.util.HashSet;
 import java.util.Map;
 import java.util.TreeMap;
 
 import javax.annotation.Nullable;
 
+import org.helioviewer.jhv.layers.Movie;
 import org.helioviewer.jhv.plugins.pfss.PfssPlugin;
+import org.helioviewer.jhv.plugins.pfss.PfssSettings;
+import org.helioviewer.jhv.view.View.AnimationMode;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
@@ -14,35 +18,64 @@ public class PfssCache {
 
     private final TreeMap<Long, String> map = new TreeMap<>();
     private final Cache<String, PfssData> cache = CacheBuilder.newBuilder().softValues().build();
+    private final HashSet<String> pending = new HashSet<>();
 
     void put(Map<Long, String> urls) {
         map.putAll(urls);
     }
 
-    void putData(String url, PfssData data) {
-        cache.put(url, data);
+    // null if the load failed
+    void putData(String url, @Nullable PfssData data) {
+        pending.remove(url);
+        if (data != null)
+            cache.put(url, data);
     }
 
+    @Nullable
     private PfssData get(long time, String url) {
         PfssData ret = cache.getIfPresent(url);
-        if (ret == null) {
-            PfssPlugin.pfssDataPool.execute(new PfssDataLoader(time, url));
-        }
+        if (ret == null)
+            load(time, url);
         return ret;
     }
 
+    private void load(long time, String url) {
+        if (pending.add(url))
+            PfssPlugin.pfssDataPool.execute(new PfssDataLoader(time, url));
+    }
+
     @Nullable
     public PfssData getNearestData(long time) {
         Long c = map.ceilingKey(time);
         Long f = map.floorKey(time);
 
+        Long key;
         if (f != null && c != null)
-            return Math.abs(f - time) < Math.abs(time - c) ? get(f, map.get(f)) : get(c, map.get(c));
-        if (f == null && c != null)
-            return get(c, map.get(c));
-        if (f != null)
-            return get(f, map.get(f));
-        return null;
+            key = Math.abs(f - time) < Math.abs(time - c) ? f : c;
+        else
+            key = f == null ? c : f;
+        if (key == null)
+            return null;
+
+        if (Movie.isPlaying())
+            prefetch(key);
+        return get(key, map.get(key));
+    }
+
+    // the next epochs in the direction of play, within the movie timespan
+    private void prefetch(long key) {
+        boolean backward = Movie.getAnimationMode() == AnimationMode.SwingDown;
+        long start = Movie.getStartTime(), end = Movie.getEndTime();
+
+        Long next = key;
+        for (int i = 0; i < PfssSettings.PREFETCH_EPOCHS; i++) {
+            next = backward ? map.lowerKey(next) : map.higherKey(next);
+            if (next == null || next < start || next > end)
+                break;
+            String url = map.get(next);
+            if (cache.getIfPresent(url) == null)
+                load(next, url);
+        }
     }
 
     public void clear() {
@@ -4,6 +4,7 @@ import java.nio.ShortBuffer;
 
 import org.helioviewer.jhv.astronomy.Sun;
 import org.helioviewer.jhv.base.BufferUtils;
+import org.helioviewer.jhv.plugins.pfss.PfssLine;
 import org.helioviewer.jhv.time.JHVDate;
 
 public class PfssData {
@@ -18,20 +19,30 @@ public class PfssData {
     public final double cphi;
     public final double sphi;
 
-    public PfssData(JHVDate _dateObs, short[] _flinex, short[] _fliney, short[] _flinez, short[] _flines, int _pointsPerLine) {
-        dateObs = _dateObs;
+    public final PfssLine lines; // geometry built on the loading thread
 
-        int len = _flinex.length;
-        flinex = (ShortBuffer) BufferUtils.newShortBuffer(len).put(_flinex).rewind();
-        fliney = (ShortBuffer) BufferUtils.newShortBuffer(len).put(_fliney).rewind();
-        flinez = (ShortBuffer) BufferUtils.newShortBuffer(len).put(_flinez).rewind();
-        flines = (ShortBuffer) BufferUtils.newShortBuffer(len).put(_flines).rewind();
+    public PfssData(JHVDate _dateObs, short[] _flinex, short[] _fliney, short[] _flinez, short[] _flines, int _pointsPerLine) {
+        this(_dateObs, toBuffer(_flinex), toBuffer(_fliney), toBuffer(_flinez), toBuffer(_flines), _pointsPerLine);
+    }
 
+    // the buffers are used as they are, e.g. mapped from the disk cache
+    PfssData(JHVDate _dateObs, ShortBuffer _flinex, ShortBuffer _fliney, ShortBuffer _flinez, ShortBuffer _flines, int _pointsPerLine) {
+        dateObs = _dateObs;
+        flinex = _flinex;
+        fliney = _fliney;
+        flinez = _flinez;
+        flines = _flines;
         pointsPerLine = _pointsPerLine;
 
         double elon = Sun.getEarth(dateObs).lon;
         cphi = Math.cos(elon);
         sphi = Math.sin(elon);
+
+        lines = new PfssLine(flinex, fliney, flinez, flines, pointsPerLine, cphi, sphi);
+    }
+
+    private static ShortBuffer toBuffer(short[] a) {
+        return (ShortBuffer) BufferUtils.newShortBuffer(a.length).put(a).rewind();
     }
 
 }
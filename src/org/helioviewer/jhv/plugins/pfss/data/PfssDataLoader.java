@@ -27,6 +27,10 @@ class PfssDataLoader extends JHVWorker<PfssData, Void> {
     @Nullable
     @Override
     protected PfssData backgroundWork() {
+        PfssData cached = PfssDiskCache.get(time);
+        if (cached != null)
+            return cached;
+
         try (NetClient nc = NetClient.of(url); Fits fits = new Fits(nc.getStream())) {
             BasicHDU<?>[] hdus = fits.read();
             if (hdus == null || hdus.length < 2 || !(hdus[1] instanceof BinaryTableHDU))
@@ -53,7 +57,9 @@ class PfssDataLoader extends JHVWorker<PfssData, Void> {
             if (flinex.length != fliney.length || flinex.length != flinez.length || flinex.length != flines.length)
                 throw new Exception("Fieldline arrays not equal " + flinex.length + ' ' + fliney.length + ' ' + flinez.length + ' ' + flinex.length + ": " + url);
 
-            return new PfssData(date, flinex, fliney, flinez, flines, points);
+            PfssData data = new PfssData(date, flinex, fliney, flinez, flines, points);
+            PfssDiskCache.put(data);
+            return data;
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -63,17 +69,17 @@ class PfssDataLoader extends JHVWorker<PfssData, Void> {
     @Override
     protected void done() {
         PfssPlugin.downloads--;
+        PfssData pfssData = null;
         if (!isCancelled()) {
             try {
-                PfssData pfssData = get();
-                if (pfssData != null) {
-                    PfssPlugin.getPfsscache().putData(url, pfssData);
-                    MovieDisplay.display(); //!
-                }
+                pfssData = get();
             } catch (Exception e) {
                 e.printStackTrace();
             }
         }
+        PfssPlugin.getPfsscache().putData(url, pfssData);
+        if (pfssData != null)
+            MovieDisplay.display(); //!
     }
 
 }
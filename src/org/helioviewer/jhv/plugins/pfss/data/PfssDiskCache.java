@@ -0,0 +1,133 @@
+package org.helioviewer.jhv.plugins.pfss.data;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import javax.annotation.Nullable;
+
+import org.helioviewer.jhv.JHVDirectory;
+import org.helioviewer.jhv.io.FileUtils;
+import org.helioviewer.jhv.log.Log;
+import org.helioviewer.jhv.time.JHVDate;
+
+/*
+ * Decoded field lines of one PFSS epoch per file, keyed by DATE-OBS. A file is a small
+ * header followed by the four coordinate arrays, which are mapped back as they are.
+ */
+public class PfssDiskCache {
+
+    private static final int MAGIC = 0x50465353; // PFSS
+    private static final int VERSION = 1;
+    private static final int HEADER = 4 + 4 + 8 + 4 + 4;
+    private static final long MAX_SIZE = 512 * 1024 * 1024;
+
+    private static final File cacheDir = new File(JHVDirectory.CACHE.getFile(), "PFSS-1");
+
+    public static synchronized void clear() {
+        try {
+            if (cacheDir.exists())
+                FileUtils.deleteDir(cacheDir);
+        } catch (Exception e) {
+            Log.warn("PFSS cache clear error: " + e.getMessage());
+        }
+    }
+
+    public static long getSize() {
+        try {
+            return cacheDir.exists() ? FileUtils.diskUsage(cacheDir) : 0;
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    private static File getFile(long time) {
+        return new File(cacheDir, time + ".bin");
+    }
+
+    @Nullable
+    static PfssData get(long time) {
+        File file = getFile(time);
+        if (!file.exists())
+            return null;
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); // stays valid after close
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getLong() != time)
+                throw new Exception("Invalid header");
+            int points = buffer.getInt();
+            int len = buffer.getInt();
+            if (points <= 0 || len < 0 || buffer.capacity() != HEADER + 8L * len)
+                throw new Exception("Invalid size");
+
+            file.setLastModified(System.currentTimeMillis()); // for eviction
+            return new PfssData(new JHVDate(time), slice(buffer, 0, len), slice(buffer, 1, len), slice(buffer, 2, len), slice(buffer, 3, len), points);
+        } catch (Exception e) {
+            Log.warn("PFSS cache file " + file + " discarded: " + e.getMessage());
+            file.delete();
+        }
+        return null;
+    }
+
+    private static ShortBuffer slice(ByteBuffer buffer, int i, int len) {
+        ByteBuffer b = buffer.duplicate();
+        b.position(HEADER + 2 * i * len).limit(HEADER + 2 * (i + 1) * len);
+        return b.slice().order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+    }
+
+    static void put(PfssData data) {
+        long time = data.dateObs.milli;
+        int len = data.flinex.capacity();
+        try {
+            Files.createDirectories(cacheDir.toPath());
+            File tmp = File.createTempFile(time + "-", ".tmp", cacheDir);
+            try (FileChannel channel = FileChannel.open(tmp.toPath(), StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.allocate(HEADER + 8 * len).order(ByteOrder.LITTLE_ENDIAN);
+                buffer.putInt(MAGIC).putInt(VERSION).putLong(time).putInt(data.pointsPerLine).putInt(len);
+                for (ShortBuffer s : new ShortBuffer[]{data.flinex, data.fliney, data.flinez, data.flines}) {
+                    for (int i = 0; i < len; i++)
+                        buffer.putShort(s.get(i));
+                }
+                buffer.flip();
+                while (buffer.hasRemaining())
+                    channel.write(buffer);
+            }
+            Files.move(tmp.toPath(), getFile(time).toPath(), StandardCopyOption.REPLACE_EXISTING);
+            evict();
+        } catch (Exception e) {
+            Log.warn("PFSS cache write error: " + e.getMessage());
+        }
+    }
+
+    // least recently used files go first
+    private static synchronized void evict() {
+        File[] list = cacheDir.listFiles((dir, name) -> name.endsWith(".bin"));
+        if (list == null)
+            return;
+
+        long size = 0;
+        for (File f : list)
+            size += f.length();
+        if (size <= MAX_SIZE)
+            return;
+
+        Arrays.sort(list, Comparator.comparingLong(File::lastModified));
+        for (File f : list) {
+            size -= f.length();
+            f.delete(); // may still be mapped on some platforms
+            if (size <= MAX_SIZE)
+                break;
+        }
+    }
+
+}
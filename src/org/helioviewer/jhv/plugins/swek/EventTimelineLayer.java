@@ -6,13 +6,12 @@ import java.awt.Graphics2D;
 import java.awt.Point;
 import java.awt.Rectangle;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
-import java.util.SortedMap;
 
 import javax.annotation.Nullable;
 import javax.swing.ImageIcon;
 
-import org.helioviewer.jhv.base.interval.Interval;
 import org.helioviewer.jhv.events.JHVEventCache;
 import org.helioviewer.jhv.events.JHVEventHandler;
 import org.helioviewer.jhv.events.JHVEventParameter;
@@ -66,7 +65,7 @@ public class EventTimelineLayer extends AbstractTimelineLayer implements JHVEven
         if (!enabled)
             return;
 
-        Map<SWEKSupplier, SortedMap<Interval, JHVRelatedEvents>> events = JHVEventCache.getEvents(xAxis.start(), xAxis.end());
+        Map<SWEKSupplier, List<JHVRelatedEvents>> events = JHVEventCache.getEvents(xAxis.start(), xAxis.end());
         if (events.isEmpty())
             return;
 
@@ -74,8 +73,8 @@ public class EventTimelineLayer extends AbstractTimelineLayer implements JHVEven
         int nrLines = 0;
 
         eventUnderMouse = null;
-        for (SortedMap<Interval, JHVRelatedEvents> eventMap : events.values()) {
-            for (JHVRelatedEvents event : eventMap.values()) {
+        for (List<JHVRelatedEvents> eventList : events.values()) {
+            for (JHVRelatedEvents event : eventList) {
                 long eventStart = event.getStart();
                 long eventEnd = event.getEnd();
                 int i = 0;
@@ -11,7 +11,7 @@ import org.helioviewer.jhv.events.SWEKHandler;
 import org.helioviewer.jhv.events.SWEKParam;
 import org.helioviewer.jhv.events.SWEKSupplier;
 import org.helioviewer.jhv.database.EventDatabase;
-import org.helioviewer.jhv.io.JSONUtils;
+import org.helioviewer.jhv.io.RawJSON;
 import org.helioviewer.jhv.log.Log;
 import org.helioviewer.jhv.time.TimeUtils;
 import org.json.JSONArray;
@@ -24,13 +24,12 @@ public class ComesepHandler extends SWEKHandler {
     private static final String _baseurl = "http://swhv.oma.be/comesep/comeseprequestapi/getComesep.php?";
 
     @Override
-    protected boolean parseRemote(JSONObject eventJSON, SWEKSupplier supplier) {
+    protected boolean parseRemote(RawJSON eventJSON, SWEKSupplier supplier) {
         try {
-            JSONArray results = eventJSON.getJSONArray("results");
-            int len = results.length();
-            ArrayList<EventDatabase.Event2Db> event2db_list = new ArrayList<>(len);
-            for (int i = 0; i < len; i++) {
-                JSONObject result = results.getJSONObject(i);
+            List<RawJSON> results = eventJSON.getElements("results");
+            ArrayList<EventDatabase.Event2Db> event2db_list = new ArrayList<>(results.size());
+            for (RawJSON raw : results) {
+                JSONObject result = raw.toJSONObject();
 
                 long start = result.getLong("atearliest") * 1000;
                 long end = result.getLong("atlatest") * 1000;
@@ -46,7 +45,7 @@ public class ComesepHandler extends SWEKHandler {
 
                 long archiv = start;
                 String uid = result.getString("alertid");
-                try (ByteArrayOutputStream baos = JSONUtils.compressJSON(result)) {
+                try (ByteArrayOutputStream baos = raw.compress()) { // as received
                     event2db_list.add(new EventDatabase.Event2Db(baos.toByteArray(), start, end, archiv, uid, new ArrayList<>()));
                 }
             }
@@ -58,7 +57,7 @@ public class ComesepHandler extends SWEKHandler {
     }
 
     @Override
-    protected boolean parseAssociations(JSONObject eventJSON) {
+    protected boolean parseAssociations(RawJSON eventJSON) {
         JSONArray associations = eventJSON.getJSONArray("associations");
         int len = associations.length();
         Pair<?, ?>[] assocs = new Pair<?, ?>[len];
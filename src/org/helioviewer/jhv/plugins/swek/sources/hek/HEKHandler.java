@@ -11,7 +11,6 @@ import java.util.Locale;
 import java.util.Map;
 
 import org.helioviewer.jhv.base.Pair;
-import org.helioviewer.jhv.base.conversion.GOESLevel;
 import org.helioviewer.jhv.database.EventDatabase;
 import org.helioviewer.jhv.database.JHVDatabaseParam;
 import org.helioviewer.jhv.events.JHVEvent;
@@ -20,7 +19,7 @@ import org.helioviewer.jhv.events.SWEKHandler;
 import org.helioviewer.jhv.events.SWEKOperand;
 import org.helioviewer.jhv.events.SWEKParam;
 import org.helioviewer.jhv.events.SWEKSupplier;
-import org.helioviewer.jhv.io.JSONUtils;
+import org.helioviewer.jhv.io.RawJSON;
 import org.helioviewer.jhv.log.Log;
 import org.helioviewer.jhv.time.TimeUtils;
 import org.json.JSONArray;
@@ -31,17 +30,21 @@ import org.json.JSONObject;
 public class HEKHandler extends SWEKHandler {
 
     private static final String _baseURL = "http://www.lmsal.com/hek/her?";
+    private static final int PAGES_IN_FLIGHT = 3;
 
     @Override
-    protected boolean parseRemote(JSONObject eventJSON, SWEKSupplier supplier) {
+    protected int getPagesInFlight() {
+        return PAGES_IN_FLIGHT;
+    }
+
+    @Override
+    protected boolean parseRemote(RawJSON eventJSON, SWEKSupplier supplier) {
         try {
-            JSONArray results = eventJSON.getJSONArray("result");
-            int len = results.length();
-            ArrayList<EventDatabase.Event2Db> event2db_list = new ArrayList<>(len);
-            for (int i = 0; i < len; i++) {
-                JSONObject result = results.getJSONObject(i);
-                if (result.has("fl_goescls"))
-                    result.put("fl_val", GOESLevel.getFloatValue(result.getString("fl_goescls")));
+            List<RawJSON> results = eventJSON.getElements("result");
+            ArrayList<EventDatabase.Event2Db> event2db_list = new ArrayList<>(results.size());
+            for (RawJSON raw : results) {
+                JSONObject result = raw.toJSONObject();
+                HEKParser.addFlareValue(result); // for the database fields, the stored JSON gets it when read back
 
                 long start = TimeUtils.parse(result.getString("event_starttime"));
                 long end = TimeUtils.parse(result.getString("event_endtime"));
@@ -75,7 +78,7 @@ public class HEKHandler extends SWEKHandler {
                         }
                     }
                 }
-                try (ByteArrayOutputStream baos = JSONUtils.compressJSON(result)) {
+                try (ByteArrayOutputStream baos = raw.compress()) { // as received
                     event2db_list.add(new EventDatabase.Event2Db(baos.toByteArray(), start, end, archiv, uid, paramList));
                 }
             }
@@ -87,7 +90,7 @@ public class HEKHandler extends SWEKHandler {
     }
 
     @Override
-    protected boolean parseAssociations(JSONObject eventJSON) {
+    protected boolean parseAssociations(RawJSON eventJSON) {
         JSONArray associations = eventJSON.getJSONArray("association");
         int len = associations.length();
         Pair<?, ?>[] assocs = new Pair<?, ?>[len];
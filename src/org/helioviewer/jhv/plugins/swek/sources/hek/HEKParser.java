@@ -11,6 +11,7 @@ import java.util.Scanner;
 import javax.annotation.Nullable;
 
 import org.helioviewer.jhv.astronomy.Sun;
+import org.helioviewer.jhv.base.conversion.GOESLevel;
 import org.helioviewer.jhv.events.JHVEvent;
 import org.helioviewer.jhv.events.JHVEventParameter;
 import org.helioviewer.jhv.events.JHVPositionInformation;
@@ -27,7 +28,13 @@ class HEKParser {
 
     private static final ThreadLocal<DecimalFormat> formatter1 = ThreadLocal.withInitial(() -> MathUtils.numberFormatter("0", 1));
 
+    static void addFlareValue(JSONObject result) {
+        if (result.has("fl_goescls") && !result.has("fl_val"))
+            result.put("fl_val", GOESLevel.getFloatValue(result.getString("fl_goescls")));
+    }
+
     static void parseResult(JSONObject result, JHVEvent currentEvent, boolean full) throws JSONException {
+        addFlareValue(result);
         List<Vec3> hgsBoundedBox = null;
         List<Vec3> hgsBoundCC = null;
         Vec3 hgsCentralPoint = null;
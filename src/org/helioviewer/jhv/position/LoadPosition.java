@@ -69,12 +69,19 @@ public class LoadPosition extends JHVWorker<PositionResponse, Void> {
     @Nullable
     @Override
     protected PositionResponse backgroundWork() {
-        try (NetClient nc = NetClient.of(toString(), true)) {
-            JSONObject result = JSONUtils.get(nc.getReader());
-            if (nc.isSuccessful())
-                return new PositionResponse(result);
-            else
-                report = result.optString("faultstring", "Invalid network response");
+        PositionStore store = PositionStore.get(observer, target, frame);
+        try {
+            for (long[] span : store.missing(start, end, deltat)) { // only what was not seen before
+                try (NetClient nc = NetClient.of(getURL(span[0], span[1]), true)) {
+                    JSONObject result = JSONUtils.get(nc.getReader());
+                    if (nc.isSuccessful())
+                        store.add(span[0], span[1], deltat, new PositionResponse(result));
+                    else {
+                        report = result.optString("faultstring", "Invalid network response");
+                        return null;
+                    }
+                }
+            }
         } catch (UnknownHostException e) {
             Log.debug("Unknown host, network down?", e);
         } catch (IOException e) {
@@ -82,7 +89,16 @@ public class LoadPosition extends JHVWorker<PositionResponse, Void> {
         } catch (Exception e) {
             report = e.getMessage();
         }
-        return null;
+
+        if (!store.missing(start, end, deltat).isEmpty()) { // don't interpolate across what could not be fetched
+            if (report == null)
+                report = "Failed: incomplete response";
+            return null;
+        }
+
+        PositionResponse response = store.slice(start, end); // also offline, if seen before
+        report = response == null ? "Empty response" : null;
+        return response;
     }
 
     @Override
@@ -104,10 +120,14 @@ public class LoadPosition extends JHVWorker<PositionResponse, Void> {
         }
     }
 
+    private String getURL(long from, long to) {
+        return baseURL + "ref=" + frame + "&observer=" + observer.getUrlName() + "&target=" + target.getUrlName() +
+                "&utc=" + TimeUtils.format(from) + "&utc_end=" + TimeUtils.format(to) + "&deltat=" + deltat;
+    }
+
     @Override
     public String toString() {
-        return baseURL + "ref=" + frame + "&observer=" + observer.getUrlName() + "&target=" + target.getUrlName() +
-                "&utc=" + TimeUtils.format(start) + "&utc_end=" + TimeUtils.format(end) + "&deltat=" + deltat;
+        return getURL(start, end);
     }
 
     public static LoadPosition execute(StatusReceiver _receiver, SpaceObject _observer, SpaceObject _target, Frame _frame, long _start, long _end) {
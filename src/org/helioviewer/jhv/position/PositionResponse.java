@@ -12,21 +12,12 @@ import org.json.JSONObject;
 
 public class PositionResponse {
 
-    private static class PositionCartesian {
-        final long milli;
-        final double x;
-        final double y;
-        final double z;
-
-        PositionCartesian(long _milli, double _x, double _y, double _z) {
-            milli = _milli;
-            x = _x;
-            y = _y;
-            z = _z;
-        }
-    }
+    // sorted by time
+    final long[] milli;
+    final double[] x;
+    final double[] y;
+    final double[] z;
 
-    private final PositionCartesian[] position;
     private final long positionStart;
     private final long positionEnd;
 
@@ -36,7 +27,10 @@ public class PositionResponse {
         if (len == 0)
             throw new Exception("Empty response");
 
-        position = new PositionCartesian[len];
+        milli = new long[len];
+        x = new double[len];
+        y = new double[len];
+        z = new double[len];
         for (int i = 0; i < len; i++) {
             JSONObject posObject = res.getJSONObject(i);
             Iterator<String> iterKeys = posObject.keys();
@@ -46,13 +40,22 @@ public class PositionResponse {
             String date = iterKeys.next();
             JSONArray posArray = posObject.getJSONArray(date);
 
-            double x = posArray.getDouble(0) * Sun.RadiusKMeterInv;
-            double y = posArray.getDouble(1) * Sun.RadiusKMeterInv;
-            double z = posArray.getDouble(2) * Sun.RadiusKMeterInv;
-            position[i] = new PositionCartesian(TimeUtils.parse(date), x, y, z);
+            milli[i] = TimeUtils.parse(date);
+            x[i] = posArray.getDouble(0) * Sun.RadiusKMeterInv;
+            y[i] = posArray.getDouble(1) * Sun.RadiusKMeterInv;
+            z[i] = posArray.getDouble(2) * Sun.RadiusKMeterInv;
         }
-        positionStart = position[0].milli;
-        positionEnd = position[position.length - 1].milli;
+        positionStart = milli[0];
+        positionEnd = milli[len - 1];
+    }
+
+    PositionResponse(long[] _milli, double[] _x, double[] _y, double[] _z) {
+        milli = _milli;
+        x = _x;
+        y = _y;
+        z = _z;
+        positionStart = milli[0];
+        positionEnd = milli[milli.length - 1];
     }
 
     public long interpolateTime(long t, long start, long end) {
@@ -65,37 +68,64 @@ public class PositionResponse {
         }
     }
 
+    // index of the last sample at or before time, such that there is a next one
+    private int locate(long time) {
+        int lo = 0, hi = milli.length - 2;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (milli[mid] <= time)
+                lo = mid;
+            else
+                hi = mid - 1;
+        }
+        return lo;
+    }
+
+    // slope at sample i of the parabola through it and its neighbours, for uneven sampling
+    private double slope(double[] v, int i) {
+        int n = milli.length;
+        if (n == 2)
+            return (v[1] - v[0]) / (milli[1] - milli[0]);
+
+        int j = MathUtils.clip(i, 1, n - 2); // middle of the three samples
+        double h0 = milli[j] - milli[j - 1];
+        double h1 = milli[j + 1] - milli[j];
+        double d0 = (v[j] - v[j - 1]) / h0;
+        double d1 = (v[j + 1] - v[j]) / h1;
+        if (i < j)
+            return ((2 * h0 + h1) * d0 - h0 * d1) / (h0 + h1);
+        if (i > j)
+            return ((2 * h1 + h0) * d1 - h1 * d0) / (h0 + h1);
+        return (d0 * h1 + d1 * h0) / (h0 + h1);
+    }
+
+    // cubic Hermite between samples i and i + 1
+    private double interpolate(double[] v, int i, long time) {
+        if (milli.length == 1)
+            return v[0];
+
+        double h = milli[i + 1] - milli[i];
+        double s = (time - milli[i]) / h;
+        double s2 = s * s, s3 = s2 * s;
+        return (2 * s3 - 3 * s2 + 1) * v[i] + (s3 - 2 * s2 + s) * h * slope(v, i) +
+                (-2 * s3 + 3 * s2) * v[i + 1] + (s3 - s2) * h * slope(v, i + 1);
+    }
+
     public Position getRelativeInterpolated(long t, long start, long end) {
         long time = interpolateTime(t, start, end);
-
-        double x, y, z;
-        if (positionStart == positionEnd) {
-            x = position[0].x;
-            y = position[0].y;
-            z = position[0].z;
-        } else {
-            double interpolatedIndex = (time - positionStart) / (double) (positionEnd - positionStart) * position.length;
-            int i = (int) interpolatedIndex;
-            i = MathUtils.clip(i, 0, position.length - 1);
-            int inext = Math.min(i + 1, position.length - 1);
-
-            long tstart = position[i].milli;
-            long tend = position[inext].milli;
-
-            double alpha = tend == tstart ? 1. : ((time - tstart) / (double) (tend - tstart)) % 1.;
-            x = (1. - alpha) * position[i].x + alpha * position[inext].x;
-            y = (1. - alpha) * position[i].y + alpha * position[inext].y;
-            z = (1. - alpha) * position[i].z + alpha * position[inext].z;
-        }
+        int i = locate(time);
+        double px = interpolate(x, i, time);
+        double py = interpolate(y, i, time);
+        double pz = interpolate(z, i, time);
 
         double dist, hgln, hglt;
-        dist = Math.sqrt(x * x + y * y + z * z);
+        dist = Math.sqrt(px * px + py * py + pz * pz);
         if (dist == 0) {
             hgln = 0;
             hglt = 0;
         } else {
-            hgln = Math.atan2(y, x);
-            hglt = Math.asin(z / dist);
+            hgln = Math.atan2(py, px);
+            hglt = Math.asin(pz / dist);
         }
 
         JHVDate date = new JHVDate(time);
@@ -105,66 +135,34 @@ public class PositionResponse {
 
     public Vec3 getInterpolatedHG(long t, long start, long end) {
         long time = interpolateTime(t, start, end);
-
-        double x, y, z;
-        if (positionStart == positionEnd) {
-            x = position[0].x;
-            y = position[0].y;
-            z = position[0].z;
-        } else {
-            double interpolatedIndex = (time - positionStart) / (double) (positionEnd - positionStart) * position.length;
-            int i = (int) interpolatedIndex;
-            i = MathUtils.clip(i, 0, position.length - 1);
-            int inext = Math.min(i + 1, position.length - 1);
-
-            long tstart = position[i].milli;
-            long tend = position[inext].milli;
-
-            double alpha = tend == tstart ? 1. : ((time - tstart) / (double) (tend - tstart)) % 1.;
-            x = (1. - alpha) * position[i].x + alpha * position[inext].x;
-            y = (1. - alpha) * position[i].y + alpha * position[inext].y;
-            z = (1. - alpha) * position[i].z + alpha * position[inext].z;
-        }
+        int i = locate(time);
+        double px = interpolate(x, i, time);
+        double py = interpolate(y, i, time);
+        double pz = interpolate(z, i, time);
 
         double dist, hgln, hglt;
-        dist = Math.sqrt(x * x + y * y + z * z);
+        dist = Math.sqrt(px * px + py * py + pz * pz);
         if (dist == 0) {
             hgln = 0;
             hglt = 0;
         } else {
-            hgln = Math.atan2(y, x);
-            hglt = Math.asin(z / dist);
+            hgln = Math.atan2(py, px);
+            hglt = Math.asin(pz / dist);
         }
         return new Vec3(dist, hgln, hglt);
     }
 
     public double getInterpolated(float[] xyz, long t, long start, long end) {
         long time = interpolateTime(t, start, end);
-
-        double x, y, z;
-        if (positionStart == positionEnd) {
-            x = position[0].x;
-            y = position[0].y;
-            z = position[0].z;
-        } else {
-            double interpolatedIndex = (time - positionStart) / (double) (positionEnd - positionStart) * position.length;
-            int i = (int) interpolatedIndex;
-            i = MathUtils.clip(i, 0, position.length - 1);
-            int inext = Math.min(i + 1, position.length - 1);
-
-            long tstart = position[i].milli;
-            long tend = position[inext].milli;
-
-            double alpha = tend == tstart ? 1. : ((time - tstart) / (double) (tend - tstart)) % 1.;
-            x = (1. - alpha) * position[i].x + alpha * position[inext].x;
-            y = (1. - alpha) * position[i].y + alpha * position[inext].y;
-            z = (1. - alpha) * position[i].z + alpha * position[inext].z;
-        }
-        xyz[0] = (float) x;
-        xyz[1] = (float) y;
-        xyz[2] = (float) z;
-
-        return Math.sqrt(x * x + y * y + z * z);
+        int i = locate(time);
+        double px = interpolate(x, i, time);
+        double py = interpolate(y, i, time);
+        double pz = interpolate(z, i, time);
+
+        xyz[0] = (float) px;
+        xyz[1] = (float) py;
+        xyz[2] = (float) pz;
+        return Math.sqrt(px * px + py * py + pz * pz);
     }
 
 }
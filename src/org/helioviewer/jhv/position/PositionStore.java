@@ -0,0 +1,260 @@
+package org.helioviewer.jhv.position;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import org.helioviewer.jhv.JHVDirectory;
+import org.helioviewer.jhv.JHVGlobals;
+import org.helioviewer.jhv.astronomy.Frame;
+import org.helioviewer.jhv.astronomy.SpaceObject;
+import org.helioviewer.jhv.io.FileUtils;
+import org.helioviewer.jhv.log.Log;
+
+/*
+ * Downloaded positions per observer, target and frame, kept as sorted primitive columns
+ * together with the time spans they cover and the cadence they were requested at. Requests
+ * only go to the network for the parts not yet covered at the same or a finer cadence.
+ * A store is written out a while after its last change, such that a series of downloads
+ * costs one write, and the least recently used files are dropped beyond the size budget.
+ */
+public class PositionStore {
+
+    private static final int VERSION = 1;
+    private static final long MAX_SIZE = 256 * 1024 * 1024;
+    private static final long SAVE_DELAY = 10; // seconds
+    private static final File cacheDir = new File(JHVDirectory.CACHE.getFile(), "Position-1");
+
+    private static final HashMap<String, PositionStore> stores = new HashMap<>();
+
+    private final File file;
+
+    private long[] milli = new long[0];
+    private double[] x = new double[0];
+    private double[] y = new double[0];
+    private double[] z = new double[0];
+    private final ArrayList<long[]> spans = new ArrayList<>(); // start, end, deltat
+    private boolean saveScheduled;
+
+    static synchronized PositionStore get(SpaceObject observer, SpaceObject target, Frame frame) {
+        String name = (observer.getUrlName() + '_' + target.getUrlName() + '_' + frame).replaceAll("[^A-Za-z0-9_-]", "_");
+        return stores.computeIfAbsent(name, PositionStore::new);
+    }
+
+    public static synchronized void clear() {
+        stores.clear();
+        try {
+            FileUtils.deleteDir(cacheDir);
+        } catch (Exception e) {
+            Log.warn("Position cache clear error: " + e.getMessage());
+        }
+    }
+
+    public static long getSize() {
+        try {
+            return cacheDir.exists() ? FileUtils.diskUsage(cacheDir) : 0;
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    private PositionStore(String name) {
+        file = new File(cacheDir, name + ".bin");
+        if (file.exists()) {
+            try {
+                load();
+                file.setLastModified(System.currentTimeMillis()); // for eviction
+            } catch (Exception e) {
+                Log.warn("Position cache " + file + " discarded: " + e.getMessage());
+                spans.clear();
+                milli = new long[0];
+                x = y = z = new double[0];
+                file.delete();
+            }
+        }
+    }
+
+    // parts of [start, end] not covered at the cadence deltat or finer
+    synchronized List<long[]> missing(long start, long end, long deltat) {
+        ArrayList<long[]> usable = new ArrayList<>();
+        for (long[] span : spans)
+            if (span[2] <= deltat && span[1] >= start && span[0] <= end)
+                usable.add(span);
+        usable.sort(Comparator.comparingLong(s -> s[0]));
+
+        ArrayList<long[]> ret = new ArrayList<>();
+        long t = start;
+        for (long[] span : usable) {
+            if (span[0] > t)
+                ret.add(new long[]{t, span[0]});
+            t = Math.max(t, span[1]);
+            if (t >= end)
+                break;
+        }
+        if (t < end || usable.isEmpty())
+            ret.add(new long[]{t, end});
+        return ret;
+    }
+
+    // a newer sample replaces an existing one at the same time
+    synchronized void add(long start, long end, long deltat, PositionResponse response) {
+        int n = milli.length, len = response.milli.length;
+        long[] mMilli = new long[n + len];
+        double[] mx = new double[n + len];
+        double[] my = new double[n + len];
+        double[] mz = new double[n + len];
+
+        int i = 0, j = 0, k = 0;
+        while (i < n || j < len) {
+            if (j == len || (i < n && milli[i] < response.milli[j])) {
+                mMilli[k] = milli[i];
+                mx[k] = x[i];
+                my[k] = y[i];
+                mz[k++] = z[i++];
+            } else {
+                if (i < n && milli[i] == response.milli[j])
+                    i++;
+                mMilli[k] = response.milli[j];
+                mx[k] = response.x[j];
+                my[k] = response.y[j];
+                mz[k++] = response.z[j++];
+            }
+        }
+        milli = Arrays.copyOf(mMilli, k);
+        x = Arrays.copyOf(mx, k);
+        y = Arrays.copyOf(my, k);
+        z = Arrays.copyOf(mz, k);
+
+        addSpan(start, end, deltat);
+        if (!saveScheduled) {
+            saveScheduled = true;
+            JHVGlobals.getReaperService().schedule(this::saveAndEvict, SAVE_DELAY, TimeUnit.SECONDS);
+        }
+    }
+
+    // overlapping or adjacent spans of the same cadence are merged, spans covered by a finer one dropped
+    private void addSpan(long start, long end, long deltat) {
+        spans.add(new long[]{start, end, deltat});
+        spans.sort(Comparator.<long[]>comparingLong(s -> s[2]).thenComparingLong(s -> s[0]));
+
+        ArrayList<long[]> merged = new ArrayList<>(spans.size());
+        for (long[] span : spans) {
+            long[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && last[2] == span[2] && span[0] <= last[1])
+                last[1] = Math.max(last[1], span[1]);
+            else if (merged.stream().noneMatch(m -> m[0] <= span[0] && m[1] >= span[1])) // finer cadences come first
+                merged.add(span);
+        }
+        spans.clear();
+        spans.addAll(merged);
+    }
+
+    @Nullable
+    synchronized PositionResponse slice(long start, long end) {
+        int from = lowerBound(start), to = lowerBound(end + 1);
+        if (from >= to)
+            return null;
+        return new PositionResponse(Arrays.copyOfRange(milli, from, to), Arrays.copyOfRange(x, from, to), Arrays.copyOfRange(y, from, to), Arrays.copyOfRange(z, from, to));
+    }
+
+    private int lowerBound(long t) {
+        int lo = 0, hi = milli.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (milli[mid] < t)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    private void load() throws Exception {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (in.readInt() != VERSION)
+                throw new Exception("Unknown version");
+
+            int numSpans = in.readInt();
+            for (int i = 0; i < numSpans; i++)
+                spans.add(new long[]{in.readLong(), in.readLong(), in.readLong()});
+
+            int n = in.readInt();
+            milli = new long[n];
+            x = new double[n];
+            y = new double[n];
+            z = new double[n];
+            for (int i = 0; i < n; i++) {
+                milli[i] = in.readLong();
+                x[i] = in.readDouble();
+                y[i] = in.readDouble();
+                z[i] = in.readDouble();
+            }
+        }
+    }
+
+    private synchronized void saveAndEvict() {
+        saveScheduled = false;
+        try {
+            save();
+        } catch (Exception e) {
+            Log.warn("Position cache write error: " + e.getMessage());
+        }
+        evict();
+    }
+
+    // least recently used files go first, as PfssDiskCache
+    private static void evict() {
+        File[] list = cacheDir.listFiles((dir, name) -> name.endsWith(".bin"));
+        if (list == null)
+            return;
+
+        long size = 0;
+        for (File f : list)
+            size += f.length();
+        if (size <= MAX_SIZE)
+            return;
+
+        Arrays.sort(list, Comparator.comparingLong(File::lastModified));
+        for (File f : list) {
+            size -= f.length();
+            f.delete();
+            if (size <= MAX_SIZE)
+                break;
+        }
+    }
+
+    private void save() throws Exception {
+        Files.createDirectories(cacheDir.toPath());
+        File tmp = new File(cacheDir, file.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp.toPath())))) {
+            out.writeInt(VERSION);
+            out.writeInt(spans.size());
+            for (long[] span : spans) {
+                out.writeLong(span[0]);
+                out.writeLong(span[1]);
+                out.writeLong(span[2]);
+            }
+            out.writeInt(milli.length);
+            for (int i = 0; i < milli.length; i++) {
+                out.writeLong(milli[i]);
+                out.writeDouble(x[i]);
+                out.writeDouble(y[i]);
+                out.writeDouble(z[i]);
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+}
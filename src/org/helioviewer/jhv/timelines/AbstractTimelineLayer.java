@@ -5,6 +5,8 @@ import java.awt.Point;
 import javax.annotation.Nullable;
 
 import org.helioviewer.jhv.timelines.draw.ClickableDrawable;
+import org.helioviewer.jhv.timelines.draw.TilePainter;
+import org.helioviewer.jhv.timelines.draw.TimeAxis;
 
 public abstract class AbstractTimelineLayer implements TimelineLayer {
 
@@ -41,6 +43,17 @@ public abstract class AbstractTimelineLayer implements TimelineLayer {
         return null;
     }
 
+    @Nullable
+    @Override
+    public TilePainter getTilePainter(TimeAxis tileAxis, int tileWidth) {
+        return null;
+    }
+
+    @Override
+    public int getTileVersion() {
+        return 0;
+    }
+
     @Override
     public boolean isPropagated() {
         return false;
@@ -9,6 +9,7 @@ import java.awt.Rectangle;
 import javax.annotation.Nullable;
 
 import org.helioviewer.jhv.timelines.draw.ClickableDrawable;
+import org.helioviewer.jhv.timelines.draw.TilePainter;
 import org.helioviewer.jhv.timelines.draw.TimeAxis;
 import org.helioviewer.jhv.timelines.draw.YAxis;
 import org.json.JSONObject;
@@ -39,6 +40,13 @@ public interface TimelineLayer {
 
     void draw(Graphics2D g, Rectangle graphArea, TimeAxis timeAxis, Point mousePosition);
 
+    // snapshot of the data in the time range of a tile, null if nothing is drawn in tiles
+    @Nullable
+    TilePainter getTilePainter(TimeAxis tileAxis, int tileWidth);
+
+    // changes when the tiles have to be painted again for reasons other than the y-axis
+    int getTileVersion();
+
     YAxis getYAxis();
 
     void fetchData(TimeAxis selectedAxis);
@@ -5,10 +5,11 @@ import java.awt.Component;
 import java.awt.Graphics2D;
 import java.awt.Point;
 import java.awt.Rectangle;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
+import javax.annotation.Nullable;
+
 import org.helioviewer.jhv.base.conversion.GOESLevel;
 import org.helioviewer.jhv.base.interval.Interval;
 import org.helioviewer.jhv.base.interval.RequestCache;
@@ -16,10 +17,12 @@ import org.helioviewer.jhv.opengl.GLInfo;
 import org.helioviewer.jhv.timelines.AbstractTimelineLayer;
 import org.helioviewer.jhv.timelines.draw.DrawConstants;
 import org.helioviewer.jhv.timelines.draw.DrawController;
+import org.helioviewer.jhv.timelines.draw.TilePainter;
 import org.helioviewer.jhv.timelines.draw.TimeAxis;
 import org.helioviewer.jhv.timelines.draw.YAxis;
 import org.helioviewer.jhv.timelines.propagation.PropagationModel;
 import org.helioviewer.jhv.timelines.propagation.PropagationModelRadial;
+import org.helioviewer.jhv.time.TimeUtils;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
@@ -38,8 +41,8 @@ public class Band extends AbstractTimelineLayer {
     private int[] warnLevels;
     private String[] warnLabels;
 
-    private final ArrayList<GraphPolyline> graphPolylines = new ArrayList<>();
     private PropagationModel propagationModel = new PropagationModelRadial(0);
+    private int tileVersion;
 
     public Band(BandType _bandType) {
         if (_bandType.getBandCacheType().equals("BandCacheAll")) {
@@ -137,6 +140,7 @@ public class Band extends AbstractTimelineLayer {
 
     public void setDataColor(Color c) {
         graphColor = c;
+        tileVersion++;
         DrawController.drawRequest();
     }
 
@@ -171,22 +175,50 @@ public class Band extends AbstractTimelineLayer {
             return;
 
         g.setColor(graphColor);
-        graphPolylines.forEach(line -> g.drawPolyline(line.xPoints(), line.yPoints(), line.length())); // polylines
-
-//      for (GraphPolyline line : graphPolylines) { // dots
-//          int length = line.length();
-//          int[] xPoints = line.xPoints();
-//          int[] yPoints = line.yPoints();
-//          for (int i = 0; i < length; i++)
-//              g.drawLine(xPoints[i], yPoints[i], xPoints[i], yPoints[i]);
-//      }
-
         for (int j = 0; j < warnLevels.length; j++) {
             g.drawLine(graphArea.x, warnLevels[j], graphArea.x + graphArea.width, warnLevels[j]);
             g.drawString(warnLabels[j], graphArea.x, warnLevels[j] - 2);
         }
     }
 
+    @Nullable
+    @Override
+    public TilePainter getTilePainter(TimeAxis tileAxis, int tileWidth) {
+        if (!enabled)
+            return null;
+
+        // lines leaving the tile need the samples on either side
+        long margin = tileAxis.end() - tileAxis.start() + 2 * TimeUtils.MINUTE_IN_MILLIS;
+        long start = propagationModel.getObservationTime(tileAxis.start() - margin);
+        long end = propagationModel.getObservationTime(tileAxis.end() + margin);
+        double width = SUPER_SAMPLE * GLInfo.pixelScaleFloat[0] * tileWidth * (end - start) / (double) (tileAxis.end() - tileAxis.start());
+        List<List<DateValue>> values = bandCache.getValues(width, start, end);
+
+        Color color = graphColor;
+        YAxis axis = yAxis.copy();
+        PropagationModel model = propagationModel;
+        return (g, tileArea, xAxis) -> {
+            g.setColor(color);
+            for (List<DateValue> list : values) {
+                if (!list.isEmpty()) {
+                    IntArray dates = new IntArray(list.size());
+                    IntArray vals = new IntArray(list.size());
+                    for (DateValue dv : list) {
+                        dates.put(xAxis.value2pixel(tileArea.x, tileArea.width, model.getViewpointTime(dv.milli)));
+                        vals.put(axis.value2pixel(tileArea.y, tileArea.height, dv.value));
+                    }
+                    GraphPolyline line = new GraphPolyline(dates, vals);
+                    g.drawPolyline(line.xPoints(), line.yPoints(), line.length());
+                }
+            }
+        };
+    }
+
+    @Override
+    public int getTileVersion() {
+        return tileVersion;
+    }
+
     private void updateWarnLevels(Rectangle graphArea) {
         Map<String, Double> unconvertedWarnLevels = bandType.getWarnLevels();
         for (int i = 0; i < warnLabels.length; i++)
@@ -195,24 +227,7 @@ public class Band extends AbstractTimelineLayer {
 
     private void updateGraphsData() {
         if (enabled) {
-            Rectangle graphArea = DrawController.getGraphArea();
-            updateWarnLevels(graphArea);
-            graphPolylines.clear();
-
-            TimeAxis timeAxis = DrawController.selectedAxis;
-            long start = propagationModel.getObservationTime(timeAxis.start());
-            long end = propagationModel.getObservationTime(timeAxis.end());
-            for (List<DateValue> list : bandCache.getValues(SUPER_SAMPLE * GLInfo.pixelScaleFloat[0] * graphArea.width, start, end)) {
-                if (!list.isEmpty()) {
-                    IntArray dates = new IntArray(list.size());
-                    IntArray values = new IntArray(list.size());
-                    for (DateValue dv : list) {
-                        dates.put(timeAxis.value2pixel(graphArea.x, graphArea.width, propagationModel.getViewpointTime(dv.milli)));
-                        values.put(yAxis.value2pixel(graphArea.y, graphArea.height, dv.value));
-                    }
-                    graphPolylines.add(new GraphPolyline(dates, values));
-                }
-            }
+            updateWarnLevels(DrawController.getGraphArea());
         }
     }
 
@@ -256,6 +271,7 @@ public class Band extends AbstractTimelineLayer {
 
     void addToCache(float[] values, long[] dates) {
         bandCache.addToCache(yAxis, values, dates);
+        tileVersion++;
         updateGraphsData();
         DrawController.drawRequest();
     }
@@ -287,6 +303,7 @@ public class Band extends AbstractTimelineLayer {
 
     void setPropagationModel(PropagationModel _propagationModel) {
         propagationModel = _propagationModel;
+        tileVersion++;
         DrawController.graphAreaChanged();
     }
 
@@ -1,16 +1,19 @@
 package org.helioviewer.jhv.timelines.band;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
 
 import org.helioviewer.jhv.timelines.draw.YAxis;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
+// Samples kept sorted by time in parallel primitive columns
 class BandCacheAll implements BandCache {
 
-    private final List<DateValue> datevals = new ArrayList<>();
+    private long[] dates = new long[0];
+    private float[] values = new float[0];
+    private int size;
     private boolean hasData;
 
     @Override
@@ -19,22 +22,73 @@ class BandCacheAll implements BandCache {
     }
 
     @Override
-    public void addToCache(YAxis yAxis, float[] values, long[] dates) {
-        int len = values.length;
-        if (len > 0) {
-            hasData = true;
-        }
-        int MAX_SIZE = 10000;
-        if (datevals.size() >= MAX_SIZE) {
+    public void addToCache(YAxis yAxis, float[] newValues, long[] newDates) {
+        int len = newValues.length;
+        if (len == 0)
             return;
-        }
+        hasData = true;
 
-        for (int i = 0; i < len; i++) {
-            if (datevals.size() >= MAX_SIZE)
+        long[] d = new long[len];
+        float[] v = new float[len];
+        Integer[] order = null;
+        for (int i = 1; i < len; i++) {
+            if (newDates[i] < newDates[i - 1]) {
+                order = new Integer[len];
+                for (int j = 0; j < len; j++)
+                    order[j] = j;
+                Arrays.sort(order, (a, b) -> Long.compare(newDates[a], newDates[b]));
                 break;
-            datevals.add(new DateValue(dates[i], yAxis.clip(values[i])));
+            }
+        }
+        for (int i = 0; i < len; i++) {
+            int idx = order == null ? i : order[i];
+            d[i] = newDates[idx];
+            v[i] = yAxis.clip(newValues[idx]);
+        }
+        merge(d, v);
+    }
+
+    // merge-insert, a new sample replaces an existing one at the same time
+    private void merge(long[] d, float[] v) {
+        int len = d.length;
+        long[] mDates = new long[size + len];
+        float[] mValues = new float[size + len];
+
+        int i = 0, j = 0, k = 0;
+        while (i < size || j < len) {
+            if (j == len || (i < size && dates[i] < d[j])) {
+                mDates[k] = dates[i];
+                mValues[k++] = values[i++];
+            } else {
+                if (i < size && dates[i] == d[j])
+                    i++;
+                if (k > 0 && mDates[k - 1] == d[j]) // duplicate within the new samples
+                    k--;
+                mDates[k] = d[j];
+                mValues[k++] = v[j++];
+            }
+        }
+        dates = mDates;
+        values = mValues;
+        size = k;
+    }
+
+    // index of the first sample at or after ts
+    private int lowerBound(long ts) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (dates[mid] < ts)
+                lo = mid + 1;
+            else
+                hi = mid;
         }
-        Collections.sort(datevals);
+        return lo;
+    }
+
+    // index after the last sample at or before ts
+    private int upperBound(long ts) {
+        return ts == Long.MAX_VALUE ? size : lowerBound(ts + 1);
     }
 
     @Override
@@ -42,10 +96,11 @@ class BandCacheAll implements BandCache {
         float min = Float.POSITIVE_INFINITY;
         float max = Float.NEGATIVE_INFINITY;
 
-        for (DateValue dv : datevals) {
-            if (dv.value != YAxis.BLANK && start <= dv.milli && dv.milli <= end) {
-                min = Math.min(dv.value, min);
-                max = Math.max(dv.value, max);
+        for (int i = lowerBound(start), last = upperBound(end); i < last; i++) {
+            float value = values[i];
+            if (value != YAxis.BLANK) {
+                min = Math.min(value, min);
+                max = Math.max(value, max);
             }
         }
         return new float[]{min, max};
@@ -55,12 +110,46 @@ class BandCacheAll implements BandCache {
     public List<List<DateValue>> getValues(double graphWidth, long start, long end) {
         List<List<DateValue>> ret = new ArrayList<>();
         List<DateValue> list = new ArrayList<>();
-        for (DateValue dv : datevals) {
-            if (dv.value == YAxis.BLANK) {
-                ret.add(list);
-                list = new ArrayList<>();
-            } else if (start <= dv.milli && dv.milli <= end) {
-                list.add(dv);
+
+        int first = lowerBound(start), last = upperBound(end);
+        int buckets = (int) Math.max(1, graphWidth);
+        if (last - first <= 2 * buckets) {
+            for (int i = first; i < last; i++) {
+                if (values[i] == YAxis.BLANK) {
+                    ret.add(list);
+                    list = new ArrayList<>();
+                } else {
+                    list.add(new DateValue(dates[i], values[i]));
+                }
+            }
+        } else { // downsample to the min/max of the samples falling in each pixel
+            double step = (end - start + 1) / (double) buckets;
+            int i = first;
+            while (i < last) {
+                long bucketEnd = Math.max(dates[i] + 1, start + (long) (((long) ((dates[i] - start) / step) + 1) * step));
+                int minIdx = -1, maxIdx = -1;
+                boolean blank = false;
+                for (; i < last && dates[i] < bucketEnd; i++) {
+                    float value = values[i];
+                    if (value == YAxis.BLANK) {
+                        blank = true;
+                    } else {
+                        if (minIdx < 0 || value < values[minIdx])
+                            minIdx = i;
+                        if (maxIdx < 0 || value > values[maxIdx])
+                            maxIdx = i;
+                    }
+                }
+                if (minIdx >= 0) {
+                    int a = Math.min(minIdx, maxIdx), b = Math.max(minIdx, maxIdx);
+                    list.add(new DateValue(dates[a], values[a]));
+                    if (b != a)
+                        list.add(new DateValue(dates[b], values[b]));
+                }
+                if (blank) {
+                    ret.add(list);
+                    list = new ArrayList<>();
+                }
             }
         }
         ret.add(list);
@@ -75,7 +164,8 @@ class BandCacheAll implements BandCache {
     @Override
     public void serialize(JSONObject jo, double f) {
         JSONArray ja = new JSONArray();
-        datevals.forEach(dv -> dv.serialize(ja, f));
+        for (int i = 0; i < size; i++)
+            ja.put(new JSONArray().put(dates[i] / 1000).put(values[i] * f));
         jo.put("data", ja);
     }
 
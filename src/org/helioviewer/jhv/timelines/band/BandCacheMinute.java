@@ -1,8 +1,8 @@
 package org.helioviewer.jhv.timelines.band;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 
 import org.helioviewer.jhv.time.TimeUtils;
@@ -40,17 +40,19 @@ class BandCacheMinute implements BandCache {
         }
 
         boolean max = yAxis.preferMax();
+        HashSet<DataChunk> changed = new HashSet<>();
         for (int i = 0; i < len; i++) {
             long key = date2key(dates[i]);
             DataChunk cache = cacheMap.computeIfAbsent(key, DataChunk::new);
             cache.setValue(max, (int) ((dates[i] % MILLIS_PER_CHUNK) / MILLIS_PER_TICK), yAxis.clip(values[i]));
+            changed.add(cache);
         }
+        changed.forEach(DataChunk::updateLevels);
     }
 
     @Override
     public float[] getBounds(long start, long end) {
-        float min = Float.POSITIVE_INFINITY;
-        float max = Float.NEGATIVE_INFINITY;
+        float[] bounds = {Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY};
 
         long key = date2key(start);
         long keyEnd = date2key(end);
@@ -60,18 +62,9 @@ class BandCacheMinute implements BandCache {
             if (cache == null) {
                 continue;
             }
-            float[] values = cache.getValues(0);
-            long[] dates = cache.getDates(0);
-
-            for (int i = 0; i < values.length; i++) {
-                float value = values[i];
-                if (value != YAxis.BLANK && start <= dates[i] && dates[i] <= end /* ? */) {
-                    min = Math.min(value, min);
-                    max = Math.max(value, max);
-                }
-            }
+            cache.getBounds(start, end, bounds);
         }
-        return new float[]{min, max};
+        return bounds;
     }
 
     @Override
@@ -91,6 +84,7 @@ class BandCacheMinute implements BandCache {
 
         List<List<DateValue>> ret = new ArrayList<>();
         List<DateValue> list = new ArrayList<>();
+        float prevMean = YAxis.BLANK;
 
         long key = date2key(start);
         long keyEnd = date2key(end);
@@ -100,18 +94,28 @@ class BandCacheMinute implements BandCache {
             if (cache == null) {
                 continue;
             }
-            float[] values = cache.getValues(level);
-            long[] dates = cache.getDates(level);
-            int i = 0;
-            while (i < values.length) {
-                float value = values[i];
-                if (value == YAxis.BLANK) {
+            int[] count = cache.count[level];
+            float[] min = cache.min[level];
+            float[] max = cache.max[level];
+            for (int i = 0; i < count.length; i++) {
+                if (count[i] == 0) {
                     ret.add(list);
                     list = new ArrayList<>();
+                    prevMean = YAxis.BLANK;
                 } else {
-                    list.add(new DateValue(dates[i], value));
+                    long date = cache.getDate(level, i);
+                    float mean = cache.sum[level][i] / count[i];
+                    if (min[i] == max[i]) {
+                        list.add(new DateValue(date, max[i]));
+                    } else if (prevMean == YAxis.BLANK || mean >= prevMean) { // min/max envelope following the trend
+                        list.add(new DateValue(date, min[i]));
+                        list.add(new DateValue(date, max[i]));
+                    } else {
+                        list.add(new DateValue(date, max[i]));
+                        list.add(new DateValue(date, min[i]));
+                    }
+                    prevMean = mean;
                 }
-                i++;
             }
         }
         ret.add(list);
@@ -123,12 +127,9 @@ class BandCacheMinute implements BandCache {
         long key = date2key(ts);
         DataChunk cache = cacheMap.get(key);
         if (cache != null) {
-            long[] dates = cache.getDates(0);
-            int len = dates.length;
-            int idx = (int) ((len - 1) * 1. * (ts - dates[0]) / (dates[len - 1] - dates[0]) + 0.5);
-
-            if (idx >= 0 && idx < len) {
-                return cache.getValues(0)[idx];
+            int idx = (int) ((ts - cache.startDate) / (double) MILLIS_PER_TICK + 0.5);
+            if (idx >= 0 && idx < CHUNKED_SIZE && cache.count[0][idx] != 0) {
+                return cache.max[0][idx];
             }
         }
         return YAxis.BLANK;
@@ -141,56 +142,115 @@ class BandCacheMinute implements BandCache {
         jo.put("data", ja);
     }
 
+    // Each level halves the resolution of the previous one, buckets keep min, max, sum and count of the samples
     private static class DataChunk {
 
-        private final float[][] values = new float[MAX_LEVEL][];
-        private final long[][] dates = new long[MAX_LEVEL][];
+        private final float[][] min = new float[MAX_LEVEL][];
+        private final float[][] max = new float[MAX_LEVEL][];
+        private final float[][] sum = new float[MAX_LEVEL][];
+        private final int[][] count = new int[MAX_LEVEL][];
+        private final long startDate;
+
+        private int dirtyLo = Integer.MAX_VALUE;
+        private int dirtyHi = -1;
 
         DataChunk(long key) {
             int factor = 1;
             for (int i = 0; i < MAX_LEVEL; i++) {
-                values[i] = new float[(int) CHUNKED_SIZE / factor];
-                Arrays.fill(values[i], YAxis.BLANK);
-                dates[i] = new long[(int) CHUNKED_SIZE / factor];
+                int len = (int) ((CHUNKED_SIZE + factor - 1) / factor);
+                min[i] = new float[len];
+                max[i] = new float[len];
+                sum[i] = new float[len];
+                count[i] = new int[len];
                 factor *= FACTOR_STEP;
             }
+            startDate = key * MILLIS_PER_CHUNK;
+        }
 
-            long startdate = key * MILLIS_PER_CHUNK;
-            factor = 1;
-            for (int j = 0; j < values.length; j++) {
-                for (int i = 0; i < values[j].length; i++) {
-                    dates[j][i] = startdate + i * MILLIS_PER_TICK * factor;
-                }
-                factor *= FACTOR_STEP;
+        long getDate(int level, int idx) {
+            return startDate + ((long) idx << level) * MILLIS_PER_TICK;
+        }
+
+        // level 0 holds at most one sample per tick, coarser levels are derived by updateLevels
+        void setValue(boolean preferMax, int tick, float value) {
+            if (value == YAxis.BLANK) {
+                if (!preferMax)
+                    count[0][tick] = 0;
+            } else if (count[0][tick] == 0 || !preferMax || value > max[0][tick]) {
+                min[0][tick] = value;
+                max[0][tick] = value;
+                sum[0][tick] = value;
+                count[0][tick] = 1;
             }
+            dirtyLo = Math.min(dirtyLo, tick);
+            dirtyHi = Math.max(dirtyHi, tick);
         }
 
-        void setValue(boolean max, int minuteOfDay, float value) {
-            int factor = 1;
-            for (int i = 0; i < values.length; i++) {
-                int idx = minuteOfDay / factor;
-                if (idx >= values[i].length) {
-                    idx = values[i].length - 1;
+        void updateLevels() {
+            int lo = dirtyLo, hi = dirtyHi;
+            for (int l = 1; l < MAX_LEVEL && lo <= hi; l++) {
+                lo >>= 1;
+                hi >>= 1;
+                int[] pc = count[l - 1];
+                float[] pmin = min[l - 1], pmax = max[l - 1], psum = sum[l - 1];
+                for (int i = lo; i <= hi; i++) {
+                    int c = 0;
+                    float mn = Float.POSITIVE_INFINITY, mx = Float.NEGATIVE_INFINITY, sm = 0;
+                    for (int j = 2 * i; j <= 2 * i + 1 && j < pc.length; j++) {
+                        if (pc[j] != 0) {
+                            c += pc[j];
+                            mn = Math.min(mn, pmin[j]);
+                            mx = Math.max(mx, pmax[j]);
+                            sm += psum[j];
+                        }
+                    }
+                    count[l][i] = c;
+                    min[l][i] = mn;
+                    max[l][i] = mx;
+                    sum[l][i] = sm;
                 }
-                values[i][idx] = max ? Math.max(values[i][idx], value) : value;
-                factor *= FACTOR_STEP;
             }
-
+            dirtyLo = Integer.MAX_VALUE;
+            dirtyHi = -1;
         }
 
-        float[] getValues(int level) {
-            return values[level];
+        // covers the range with the coarsest buckets lying entirely inside it
+        void getBounds(long start, long end, float[] bounds) {
+            long lo = Math.max(0, (start - startDate + MILLIS_PER_TICK - 1) / MILLIS_PER_TICK);
+            long hi = Math.min(CHUNKED_SIZE - 1, Math.floorDiv(end - startDate, MILLIS_PER_TICK));
+            if (lo > hi)
+                return;
+
+            int a = (int) lo, b = (int) hi;
+            for (int l = 0; a <= b; l++) {
+                if (l == MAX_LEVEL - 1) {
+                    for (int i = a; i <= b; i++)
+                        bucketBounds(l, i, bounds);
+                    break;
+                }
+                if ((a & 1) == 1)
+                    bucketBounds(l, a++, bounds);
+                if ((b & 1) == 0)
+                    bucketBounds(l, b--, bounds);
+                if (a > b)
+                    break;
+                a >>= 1;
+                b >>= 1;
+            }
         }
 
-        long[] getDates(int level) {
-            return dates[level];
+        private void bucketBounds(int level, int idx, float[] bounds) {
+            if (count[level][idx] != 0) {
+                bounds[0] = Math.min(bounds[0], min[level][idx]);
+                bounds[1] = Math.max(bounds[1], max[level][idx]);
+            }
         }
 
         void serialize(JSONArray ja, double f) {
-            long[] d = dates[0];
-            float[] v = values[0];
-            for (int i = 0; i < v.length; i++)
-                ja.put(new JSONArray().put(d[i] / 1000).put(f * v[i]));
+            int[] c = count[0];
+            float[] v = max[0];
+            for (int i = 0; i < c.length; i++)
+                ja.put(new JSONArray().put(getDate(0, i) / 1000).put(f * (c[i] == 0 ? YAxis.BLANK : v[i])));
         }
 
     }
@@ -3,7 +3,7 @@ package org.helioviewer.jhv.timelines.band;
 import javax.annotation.Nullable;
 
 import org.helioviewer.jhv.base.interval.Interval;
-import org.helioviewer.jhv.io.JSONUtils;
+import org.helioviewer.jhv.io.NetClient;
 import org.helioviewer.jhv.threads.JHVWorker;
 import org.helioviewer.jhv.time.TimeUtils;
 
@@ -20,8 +20,8 @@ class BandDownloadTask extends JHVWorker<BandResponse, Void> {
     @Nullable
     @Override
     protected BandResponse backgroundWork() {
-        try {
-            return new BandResponse(JSONUtils.get(buildRequest(interval, band.getBandType())));
+        try (NetClient nc = NetClient.of(buildRequest(interval, band.getBandType()))) {
+            return BandResponse.read(nc.getSource());
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -1,10 +1,23 @@
 package org.helioviewer.jhv.timelines.band;
 
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+
 import org.json.JSONArray;
 import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ByteString;
 
 class BandResponse {
 
+    // compact binary variant, big-endian: magic, version, timeline, bandType JSON, multiplier, count, count x (seconds, value)
+    private static final ByteString BINARY_MAGIC = ByteString.encodeUtf8("JHVB");
+    private static final int BINARY_VERSION = 1;
+
     final String bandName;
     final BandType bandType;
     final long[] dates;
@@ -32,4 +45,279 @@ class BandResponse {
         }
     }
 
+    private BandResponse(String _bandName, BandType _bandType, long[] _dates, float[] _values) {
+        bandName = _bandName;
+        bandType = _bandType;
+        dates = _dates;
+        values = _values;
+    }
+
+    // decodes the samples straight into primitive arrays as the body arrives, without building a JSON tree
+    static BandResponse read(BufferedSource source) throws IOException {
+        if (source.request(BINARY_MAGIC.size()) && source.rangeEquals(0, BINARY_MAGIC))
+            return readBinary(source);
+        return new StreamParser(source).parse();
+    }
+
+    private static BandResponse readBinary(BufferedSource source) throws IOException {
+        source.skip(BINARY_MAGIC.size());
+        int version = source.readInt();
+        if (version != BINARY_VERSION)
+            throw new IOException("Unsupported binary band version " + version);
+
+        String name = source.readUtf8(source.readShort() & 0xFFFF);
+        int typeLength = source.readInt();
+        BandType type = typeLength > 0 ? new BandType(new JSONObject(source.readUtf8(typeLength))) : null;
+        double multiplier = Double.longBitsToDouble(source.readLong());
+
+        int count = source.readInt();
+        if (count < 0)
+            throw new IOException("Invalid binary band count " + count);
+        long[] dates = new long[count];
+        float[] values = new float[count];
+        for (int i = 0; i < count; i++) {
+            dates[i] = source.readLong() * 1000;
+            values[i] = (float) (Float.intBitsToFloat(source.readInt()) * multiplier);
+            if ((i & 0xFFFF) == 0 && Thread.currentThread().isInterrupted())
+                throw new InterruptedIOException();
+        }
+        return new BandResponse(name, type, dates, values);
+    }
+
+    // minimal pull parser over the UTF-8 bytes; only "data" is decoded by hand, the other members are small
+    private static class StreamParser {
+
+        private static final double[] POW10 = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+                1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+        private static final int MAX_EXACT_DIGITS = 15;
+
+        private final BufferedSource source;
+        private final StringBuilder number = new StringBuilder();
+
+        private long[] dates = new long[4096];
+        private float[] values = new float[4096];
+        private int size;
+
+        StreamParser(BufferedSource _source) {
+            source = _source;
+        }
+
+        BandResponse parse() throws IOException {
+            String name = "";
+            BandType type = null;
+            double multiplier = 1;
+            double dataMultiplier = 1;
+
+            expect('{');
+            if (peek() == '}')
+                source.skip(1);
+            else {
+                while (true) {
+                    String key = readKey();
+                    expect(':');
+                    if ("data".equals(key) && peek() == '[') {
+                        dataMultiplier = multiplier;
+                        readData(multiplier);
+                    } else {
+                        Object value = new JSONTokener(readRaw()).nextValue();
+                        if ("timeline".equals(key) && value instanceof String)
+                            name = (String) value;
+                        else if ("bandType".equals(key) && value instanceof JSONObject)
+                            type = new BandType((JSONObject) value);
+                        else if ("multiplier".equals(key) && value instanceof Number)
+                            multiplier = ((Number) value).doubleValue();
+                    }
+
+                    int c = next();
+                    if (c == '}')
+                        break;
+                    if (c != ',')
+                        throw error("',' or '}'", c);
+                }
+            }
+
+            if (multiplier != dataMultiplier) { // multiplier came after the data
+                double f = multiplier / dataMultiplier;
+                for (int i = 0; i < size; i++)
+                    values[i] = (float) (values[i] * f);
+            }
+            return new BandResponse(name, type, Arrays.copyOf(dates, size), Arrays.copyOf(values, size));
+        }
+
+        // [[ts, value], ...]
+        private void readData(double multiplier) throws IOException {
+            expect('[');
+            if (peek() == ']') {
+                source.skip(1);
+                return;
+            }
+
+            while (true) {
+                expect('[');
+                long ts = (long) readNumber();
+                expect(',');
+                double value = readNumber();
+                int c;
+                while ((c = next()) == ',') // ignore extra members
+                    readRaw();
+                if (c != ']')
+                    throw error("']'", c);
+
+                if (size == dates.length) {
+                    dates = Arrays.copyOf(dates, 2 * size);
+                    values = Arrays.copyOf(values, 2 * size);
+                }
+                dates[size] = ts * 1000;
+                values[size] = (float) (value * multiplier);
+                size++;
+                if ((size & 0xFFFF) == 0 && Thread.currentThread().isInterrupted())
+                    throw new InterruptedIOException();
+
+                c = next();
+                if (c == ']')
+                    return;
+                if (c != ',')
+                    throw error("',' or ']'", c);
+            }
+        }
+
+        // exact for up to 15 significant digits and small exponents, as any double is then exactly representable
+        private double readNumber() throws IOException {
+            number.setLength(0);
+
+            long mantissa = 0;
+            int digits = 0, exponent = 0;
+            boolean negative = false, any = false;
+
+            int c = peek();
+            if (c == '-') {
+                negative = true;
+                c = read();
+            }
+            while (c >= '0' && c <= '9') {
+                any = true;
+                if (digits > 0 || c != '0') {
+                    if (digits < 18)
+                        mantissa = 10 * mantissa + (c - '0');
+                    else
+                        exponent++;
+                    digits++;
+                }
+                c = read();
+            }
+            if (c == '.') {
+                c = read();
+                while (c >= '0' && c <= '9') {
+                    any = true;
+                    if (digits > 0 || c != '0') {
+                        if (digits < 18) {
+                            mantissa = 10 * mantissa + (c - '0');
+                            exponent--;
+                        }
+                        digits++;
+                    } else
+                        exponent--;
+                    c = read();
+                }
+            }
+            if (c == 'e' || c == 'E') {
+                c = read();
+                boolean negExp = c == '-';
+                if (c == '-' || c == '+')
+                    c = read();
+                int e = 0;
+                while (c >= '0' && c <= '9') {
+                    e = Math.min(10 * e + (c - '0'), 100000);
+                    c = read();
+                }
+                exponent += negExp ? -e : e;
+            }
+            if (!any)
+                throw error("number", c);
+
+            double v;
+            if (mantissa == 0)
+                v = 0;
+            else if (digits <= MAX_EXACT_DIGITS && exponent >= 0 && exponent < POW10.length)
+                v = mantissa * POW10[exponent];
+            else if (digits <= MAX_EXACT_DIGITS && exponent < 0 && -exponent < POW10.length)
+                v = mantissa / POW10[-exponent];
+            else
+                return Double.parseDouble(number.toString());
+            return negative ? -v : v;
+        }
+
+        // consumes and records one byte of a number, returns the following one without consuming it
+        private int read() throws IOException {
+            number.append((char) source.readByte());
+            return source.request(1) ? source.getBuffer().getByte(0) : -1;
+        }
+
+        // member names are plain ASCII in practice
+        private String readKey() throws IOException {
+            if (peek() != '"')
+                throw error("'\"'", peek());
+            return (String) new JSONTokener(readRaw()).nextValue();
+        }
+
+        // raw text of one value, for JSONTokener
+        private String readRaw() throws IOException {
+            Buffer raw = new Buffer();
+            int depth = 0;
+            boolean inString = false;
+
+            int c = peek();
+            if (c != '"' && c != '{' && c != '[') { // scalar
+                while (source.request(1) && (c = source.getBuffer().getByte(0)) != ',' && c != '}' && c != ']' && c > ' ')
+                    raw.writeByte(source.readByte());
+                return raw.readUtf8();
+            }
+
+            do {
+                c = source.readByte();
+                raw.writeByte(c);
+                if (inString) {
+                    if (c == '\\')
+                        raw.writeByte(source.readByte());
+                    else if (c == '"')
+                        inString = false;
+                } else if (c == '"')
+                    inString = true;
+                else if (c == '{' || c == '[')
+                    depth++;
+                else if (c == '}' || c == ']')
+                    depth--;
+            } while (inString || depth > 0);
+            return raw.readUtf8();
+        }
+
+        private int peek() throws IOException {
+            while (true) {
+                source.require(1);
+                int c = source.getBuffer().getByte(0);
+                if (c == ' ' || c == '\n' || c == '\r' || c == '\t')
+                    source.skip(1);
+                else
+                    return c;
+            }
+        }
+
+        private int next() throws IOException {
+            int c = peek();
+            source.skip(1);
+            return c;
+        }
+
+        private void expect(char e) throws IOException {
+            int c = next();
+            if (c != e)
+                throw error("'" + e + "'", c);
+        }
+
+        private static IOException error(String expected, int c) {
+            return new IOException("Malformed band data: expected " + expected + ", got " + (c < 0 ? "end of input" : "'" + (char) c + "'"));
+        }
+
+    }
+
 }
@@ -1,10 +1,6 @@
 package org.helioviewer.jhv.timelines.band;
 
-import javax.annotation.Nonnull;
-
-import org.json.JSONArray;
-
-class DateValue implements Comparable<DateValue> {
+class DateValue {
 
     final long milli;
     final float value;
@@ -14,15 +10,6 @@ class DateValue implements Comparable<DateValue> {
         value = _value;
     }
 
-    void serialize(JSONArray ja, double f) {
-        ja.put(new JSONArray().put(milli / 1000).put(value * f));
-    }
-
-    @Override
-    public int compareTo(@Nonnull DateValue o) {
-        return Long.compare(milli, o.milli);
-    }
-
     @Override
     public boolean equals(Object o) {
         if (!(o instanceof DateValue))
@@ -0,0 +1,11 @@
+package org.helioviewer.jhv.timelines.draw;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+
+// Data of a timeline layer taken on the event thread, painted into a tile on the tile renderer
+public interface TilePainter {
+
+    void paint(Graphics2D g, Rectangle tileArea, TimeAxis tileAxis);
+
+}
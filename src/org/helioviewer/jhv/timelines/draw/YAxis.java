@@ -33,6 +33,11 @@ public class YAxis {
         scaledMaxBound = scale(max);
     }
 
+    // detached from further changes, for painting off the event thread
+    public YAxis copy() {
+        return new YAxis(start, end, scale);
+    }
+
     public double start() {
         return start;
     }
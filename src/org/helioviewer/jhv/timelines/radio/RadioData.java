@@ -9,6 +9,8 @@ import java.awt.geom.Rectangle2D;
 import java.awt.image.DataBuffer;
 import java.awt.image.IndexColorModel;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 
 import javax.annotation.Nullable;
@@ -23,6 +25,7 @@ import org.helioviewer.jhv.time.TimeUtils;
 import org.helioviewer.jhv.timelines.AbstractTimelineLayer;
 import org.helioviewer.jhv.timelines.Timelines;
 import org.helioviewer.jhv.timelines.draw.DrawController;
+import org.helioviewer.jhv.timelines.draw.TilePainter;
 import org.helioviewer.jhv.timelines.draw.TimeAxis;
 import org.helioviewer.jhv.timelines.draw.YAxis;
 import org.helioviewer.jhv.timelines.draw.YAxis.YAxisPositiveIdentityScale;
@@ -40,7 +43,12 @@ public class RadioData extends AbstractTimelineLayer {
     private static final int MAX_AMOUNT_OF_DAYS = 3;
     private static final int DAYS_IN_CACHE = MAX_AMOUNT_OF_DAYS + 4;
 
-    private static final RemovalListener<Long, RadioJ2KData> removalListener = removed -> removed.getValue().removeData();
+    private static int tileVersion;
+
+    private static final RemovalListener<Long, RadioJ2KData> removalListener = removed -> {
+        removed.getValue().removeData();
+        tileVersion++;
+    };
     private static final Cache<Long, RadioJ2KData> cache = CacheBuilder.newBuilder().maximumSize(DAYS_IN_CACHE).removalListener(removalListener).build();
 
     private final RadioOptionsPanel optionsPanel;
@@ -72,6 +80,11 @@ public class RadioData extends AbstractTimelineLayer {
     static void setLUT(LUT lut) {
         colorModel = createIndexColorModelFromLUT(lut);
         cache.asMap().values().forEach(data -> data.changeColormap(colorModel));
+        dataChanged();
+    }
+
+    static void dataChanged() {
+        tileVersion++;
         DrawController.drawRequest();
     }
 
@@ -81,6 +94,7 @@ public class RadioData extends AbstractTimelineLayer {
 
     private static void clearCache() {
         cache.invalidateAll();
+        RadioOverview.clear();
     }
 
     private void requestAndOpenIntervals(long start) {
@@ -127,6 +141,7 @@ public class RadioData extends AbstractTimelineLayer {
                 RadioJ2KData data = get();
                 if (data != null) {
                     cache.put(date, data);
+                    dataChanged();
                     data.requestData(DrawController.selectedAxis);
                 }
             } catch (InterruptedException | ExecutionException e) {
@@ -170,7 +185,7 @@ public class RadioData extends AbstractTimelineLayer {
 
     @Override
     public boolean isDownloading() {
-        return isDownloading != 0;
+        return isDownloading != 0 || RadioOverview.isDownloading();
     }
 
     @Override
@@ -195,36 +210,82 @@ public class RadioData extends AbstractTimelineLayer {
 
     @Override
     public void fetchData(TimeAxis selectedAxis) {
-        if (enabled && selectedAxis.end() - selectedAxis.start() <= TimeUtils.DAY_IN_MILLIS * MAX_AMOUNT_OF_DAYS) {
+        if (!enabled)
+            return;
+
+        if (!isTooBig(selectedAxis)) {
             cache.asMap().values().forEach(data -> data.requestData(selectedAxis));
             requestAndOpenIntervals(selectedAxis.start());
+        } else if (!isTooBigForOverview(selectedAxis)) {
+            RadioOverview.requestData(selectedAxis, this);
         }
     }
 
+    private static boolean isTooBig(TimeAxis timeAxis) {
+        return timeAxis.end() - timeAxis.start() > TimeUtils.DAY_IN_MILLIS * MAX_AMOUNT_OF_DAYS;
+    }
+
+    private static boolean isTooBigForOverview(TimeAxis timeAxis) {
+        return timeAxis.end() - timeAxis.start() > TimeUtils.DAY_IN_MILLIS * RadioOverview.MAX_DAYS;
+    }
+
     @Override
     public void draw(Graphics2D g, Rectangle graphArea, TimeAxis timeAxis, Point mousePosition) {
         if (!enabled)
             return;
+        if (!isTooBigForOverview(timeAxis)) {
+            drawLabels(g, graphArea, timeAxis);
+            return;
+        }
 
-        if (timeAxis.end() - timeAxis.start() <= TimeUtils.DAY_IN_MILLIS * MAX_AMOUNT_OF_DAYS) {
-            drawString(g, graphArea, timeAxis, "No data available");
-            cache.asMap().values().forEach(data -> data.draw(g, graphArea, timeAxis));
-        } else {
-            String text1 = "The selected interval is too big.";
-            Rectangle2D r1 = g.getFontMetrics().getStringBounds(text1, g);
+        String text1 = "The selected interval is too big.";
+        Rectangle2D r1 = g.getFontMetrics().getStringBounds(text1, g);
+
+        String text2 = "Reduce the interval to see the radio spectrograms.";
+        Rectangle2D r2 = g.getFontMetrics().getStringBounds(text2, g);
+
+        int x1 = (int) (graphArea.x + 0.5 * graphArea.width - 0.5 * r1.getWidth());
+        int y1 = (int) (graphArea.y + 0.5 * graphArea.height - 1.5 * r1.getHeight());
+        int x2 = (int) (graphArea.x + 0.5 * graphArea.width - 0.5 * r2.getWidth());
+        int y2 = (int) (graphArea.y + 0.5 * graphArea.height + 0.5 * r2.getHeight());
+
+        g.setColor(Color.black);
+        g.drawString(text1, x1, y1);
+        g.drawString(text2, x2, y2);
+    }
 
-            String text2 = "Reduce the interval to see the radio spectrograms.";
-            Rectangle2D r2 = g.getFontMetrics().getStringBounds(text2, g);
+    @Nullable
+    @Override
+    public TilePainter getTilePainter(TimeAxis tileAxis, int tileWidth) {
+        TimeAxis selectedAxis = DrawController.selectedAxis;
+        if (!enabled || isTooBigForOverview(selectedAxis))
+            return null;
 
-            int x1 = (int) (graphArea.x + 0.5 * graphArea.width - 0.5 * r1.getWidth());
-            int y1 = (int) (graphArea.y + 0.5 * graphArea.height - 1.5 * r1.getHeight());
-            int x2 = (int) (graphArea.x + 0.5 * graphArea.width - 0.5 * r2.getWidth());
-            int y2 = (int) (graphArea.y + 0.5 * graphArea.height + 0.5 * r2.getHeight());
+        YAxis axis = yAxis.copy();
+        if (isTooBig(selectedAxis)) {
+            List<RadioPyramid> pyramids = RadioOverview.getPyramids(tileAxis);
+            IndexColorModel cm = colorModel;
+            return (g, tileArea, xAxis) -> {
+                fillBackground(g, tileArea, xAxis);
+                pyramids.forEach(pyramid -> pyramid.draw(g, tileArea, xAxis, axis, cm));
+            };
+        }
 
-            g.setColor(Color.black);
-            g.drawString(text1, x1, y1);
-            g.drawString(text2, x2, y2);
+        ArrayList<TilePainter> painters = new ArrayList<>();
+        for (RadioJ2KData data : cache.asMap().values()) {
+            TilePainter painter = data.getTilePainter(axis);
+            if (painter != null)
+                painters.add(painter);
         }
+        return (g, tileArea, xAxis) -> {
+            fillBackground(g, tileArea, xAxis);
+            painters.forEach(painter -> painter.paint(g, tileArea, xAxis));
+        };
+    }
+
+    @Override
+    public int getTileVersion() {
+        return tileVersion;
     }
 
     @Override
@@ -237,21 +298,45 @@ public class RadioData extends AbstractTimelineLayer {
         yAxis.reset(400, 20);
     }
 
-    static void drawString(Graphics2D g, Rectangle ga, TimeAxis xAxis, String text) {
+    private static void fillBackground(Graphics2D g, Rectangle ga, TimeAxis xAxis) {
         int dx0 = xAxis.value2pixel(ga.x, ga.width, xAxis.start());
         int dx1 = xAxis.value2pixel(ga.x, ga.width, xAxis.end());
-        int dwidth = dx1 - dx0;
         g.setColor(Color.GRAY);
-        g.fillRect(dx0, ga.y, dwidth, ga.height);
-        g.setColor(Color.WHITE);
+        g.fillRect(dx0, ga.y, dx1 - dx0, ga.height);
+    }
+
+    // once over the whole area after the tiles, in the gaps between the spectrograms
+    private static void drawLabels(Graphics2D g, Rectangle ga, TimeAxis xAxis) {
+        ArrayList<long[]> covered = new ArrayList<>();
+        boolean fetching;
+        if (isTooBig(xAxis)) {
+            RadioOverview.getPyramids(xAxis).forEach(pyramid -> covered.add(new long[]{pyramid.startDate, pyramid.endDate}));
+            fetching = RadioOverview.isDownloading();
+        } else {
+            fetching = false;
+            for (RadioJ2KData data : cache.asMap().values()) {
+                if (data.hasData())
+                    covered.add(new long[]{data.startDate, data.endDate});
+                else if (data.isFetching() && data.startDate < xAxis.end() && data.endDate > xAxis.start())
+                    fetching = true;
+            }
+        }
+        String text = fetching ? "Fetching data" : "No data available";
 
         Rectangle2D r = g.getFontMetrics().getStringBounds(text, g);
         int tWidth = (int) r.getWidth();
         int tHeight = (int) r.getHeight();
         int y = ga.y + ga.height / 2 - tHeight / 2;
+        int dx0 = xAxis.value2pixel(ga.x, ga.width, xAxis.start());
+        int dx1 = xAxis.value2pixel(ga.x, ga.width, xAxis.end());
 
-        for (int x = dx0 + tWidth / 2; x < dx1; x += tWidth + tWidth / 2)
-            g.drawString(text, x, y);
+        g.setColor(Color.WHITE);
+        for (int x = dx0 + tWidth / 2; x < dx1; x += tWidth + tWidth / 2) {
+            long t0 = xAxis.pixel2value(ga.x, ga.width, x);
+            long t1 = xAxis.pixel2value(ga.x, ga.width, x + tWidth);
+            if (covered.stream().noneMatch(c -> c[0] < t1 && c[1] > t0))
+                g.drawString(text, x, y);
+        }
     }
 
 }
@@ -0,0 +1,159 @@
+package org.helioviewer.jhv.timelines.radio;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import javax.annotation.Nullable;
+
+import org.helioviewer.jhv.JHVDirectory;
+import org.helioviewer.jhv.io.FileUtils;
+import org.helioviewer.jhv.log.Log;
+
+/*
+ * Spectrogram pyramids of one Callisto day per file, keyed by the day. A file is a small
+ * header with the width of each level followed by the levels, which are mapped back as they are.
+ */
+public class RadioDiskCache {
+
+    private static final int MAGIC = 0x52414449; // RADI
+    private static final int VERSION = 1;
+    private static final int HEADER = 4 + 4 + 8 + 8 + 8 + 8 + 8 + 4 + 4;
+    private static final long MAX_SIZE = 1024 * 1024 * 1024;
+
+    private static final File cacheDir = new File(JHVDirectory.CACHE.getFile(), "Radio-1");
+
+    public static synchronized void clear() {
+        try {
+            if (cacheDir.exists())
+                FileUtils.deleteDir(cacheDir);
+        } catch (Exception e) {
+            Log.warn("Radio cache clear error: " + e.getMessage());
+        }
+    }
+
+    public static long getSize() {
+        try {
+            return cacheDir.exists() ? FileUtils.diskUsage(cacheDir) : 0;
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    private static File getFile(long date) {
+        return new File(cacheDir, date + ".bin");
+    }
+
+    @Nullable
+    static RadioPyramid get(long date) {
+        File file = getFile(date);
+        if (!file.exists())
+            return null;
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); // stays valid after close
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getLong() != date)
+                throw new Exception("Invalid header");
+            long startDate = buffer.getLong();
+            long endDate = buffer.getLong();
+            double startFreq = buffer.getDouble();
+            double endFreq = buffer.getDouble();
+            int height = buffer.getInt();
+            int n = buffer.getInt();
+            if (height <= 0 || n <= 0 || n > 32)
+                throw new Exception("Invalid size");
+
+            int[] widths = new int[n];
+            long size = HEADER + 4L * n;
+            for (int i = 0; i < n; i++) {
+                widths[i] = buffer.getInt();
+                if (widths[i] <= 0)
+                    throw new Exception("Invalid size");
+                size += (long) widths[i] * height;
+            }
+            if (buffer.capacity() != size)
+                throw new Exception("Invalid size");
+
+            ByteBuffer[] levels = new ByteBuffer[n];
+            int pos = HEADER + 4 * n;
+            for (int i = 0; i < n; i++) {
+                ByteBuffer b = buffer.duplicate();
+                b.position(pos).limit(pos + widths[i] * height);
+                levels[i] = b.slice();
+                pos += widths[i] * height;
+            }
+
+            file.setLastModified(System.currentTimeMillis()); // for eviction
+            return new RadioPyramid(startDate, endDate, startFreq, endFreq, height, widths, levels);
+        } catch (Exception e) {
+            Log.warn("Radio cache file " + file + " discarded: " + e.getMessage());
+            file.delete();
+        }
+        return null;
+    }
+
+    static void put(long date, RadioPyramid pyramid) {
+        int n = pyramid.getLevels();
+        long size = HEADER + 4L * n;
+        for (int i = 0; i < n; i++)
+            size += (long) pyramid.getWidth(i) * pyramid.height;
+
+        try {
+            Files.createDirectories(cacheDir.toPath());
+            File tmp = File.createTempFile(date + "-", ".tmp", cacheDir);
+            try (FileChannel channel = FileChannel.open(tmp.toPath(), StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER + 4 * n).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC).putInt(VERSION).putLong(date);
+                header.putLong(pyramid.startDate).putLong(pyramid.endDate).putDouble(pyramid.startFreq).putDouble(pyramid.endFreq);
+                header.putInt(pyramid.height).putInt(n);
+                for (int i = 0; i < n; i++)
+                    header.putInt(pyramid.getWidth(i));
+                header.flip();
+                while (header.hasRemaining())
+                    channel.write(header);
+                for (int i = 0; i < n; i++) {
+                    ByteBuffer level = pyramid.getLevel(i);
+                    while (level.hasRemaining())
+                        channel.write(level);
+                }
+                if (channel.size() != size)
+                    throw new Exception("Short write");
+            }
+            Files.move(tmp.toPath(), getFile(date).toPath(), StandardCopyOption.REPLACE_EXISTING);
+            evict();
+        } catch (Exception e) {
+            Log.warn("Radio cache write error: " + e.getMessage());
+        }
+    }
+
+    // least recently used files go first
+    private static synchronized void evict() {
+        File[] list = cacheDir.listFiles((dir, name) -> name.endsWith(".bin"));
+        if (list == null)
+            return;
+
+        long size = 0;
+        for (File f : list)
+            size += f.length();
+        if (size <= MAX_SIZE)
+            return;
+
+        Arrays.sort(list, Comparator.comparingLong(File::lastModified));
+        for (File f : list) {
+            size -= f.length();
+            f.delete(); // may still be mapped on some platforms
+            if (size <= MAX_SIZE)
+                break;
+        }
+    }
+
+}
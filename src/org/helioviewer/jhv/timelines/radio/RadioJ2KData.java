@@ -5,6 +5,8 @@ import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.awt.image.ColorModel;
 
+import javax.annotation.Nullable;
+
 import org.helioviewer.jhv.base.Region;
 import org.helioviewer.jhv.base.image.NIOImageFactory;
 import org.helioviewer.jhv.imagedata.ImageBuffer;
@@ -13,8 +15,9 @@ import org.helioviewer.jhv.imagedata.ImageDataHandler;
 import org.helioviewer.jhv.log.Log;
 import org.helioviewer.jhv.metadata.XMLMetaDataContainer;
 import org.helioviewer.jhv.time.TimeUtils;
-import org.helioviewer.jhv.timelines.draw.DrawController;
+import org.helioviewer.jhv.timelines.draw.TilePainter;
 import org.helioviewer.jhv.timelines.draw.TimeAxis;
+import org.helioviewer.jhv.timelines.draw.YAxis;
 import org.helioviewer.jhv.view.j2k.J2KViewCallisto;
 import org.helioviewer.jhv.view.j2k.image.ResolutionSet;
 
@@ -22,8 +25,8 @@ class RadioJ2KData implements ImageDataHandler {
 
     private J2KViewCallisto view;
 
-    private final long startDate;
-    private final long endDate;
+    final long startDate;
+    final long endDate;
     private final double startFreq;
     private final double endFreq;
     private final int j2kWidth;
@@ -75,7 +78,7 @@ class RadioJ2KData implements ImageDataHandler {
 
         region = imageData.getRegion();
         bufferedImage = NIOImageFactory.createIndexed(imageBuffer.buffer, w, h, RadioData.getColorModel());
-        DrawController.drawRequest();
+        RadioData.dataChanged();
     }
 
     void requestData(TimeAxis xAxis) {
@@ -158,30 +161,37 @@ class RadioJ2KData implements ImageDataHandler {
         return new Rectangle(x0, y0, width, height);
     }
 
-    void draw(Graphics2D g, Rectangle ga, TimeAxis xAxis) {
+    // the image and region are replaced, never modified, when new data arrives
+    @Nullable
+    TilePainter getTilePainter(YAxis yAxis) {
         if (!willDraw)
-            return;
+            return null;
 
-        if (hasData()) {
+        BufferedImage image = bufferedImage;
+        Region r = region;
+        return (g, ga, xAxis) -> draw(g, ga, xAxis, yAxis, image, r);
+    }
+
+    private void draw(Graphics2D g, Rectangle ga, TimeAxis xAxis, YAxis yAxis, @Nullable BufferedImage image, Region r) {
+        if (image != null) {
             int sx0 = 0;
             int sy0 = 0;
-            int sx1 = bufferedImage.getWidth();
-            int sy1 = bufferedImage.getHeight();
-            long imStart = (long) (startDate + (endDate - startDate) * region.llx / j2kWidth);
-            long imEnd = (long) (startDate + (endDate - startDate) * region.urx / j2kWidth);
+            int sx1 = image.getWidth();
+            int sy1 = image.getHeight();
+            long imStart = (long) (startDate + (endDate - startDate) * r.llx / j2kWidth);
+            long imEnd = (long) (startDate + (endDate - startDate) * r.urx / j2kWidth);
 
-            double freqimStart = (startFreq + (endFreq - startFreq) * region.lly / j2kHeight);
-            double freqimEnd = (startFreq + (endFreq - startFreq) * region.ury / j2kHeight);
+            double freqimStart = (startFreq + (endFreq - startFreq) * r.lly / j2kHeight);
+            double freqimEnd = (startFreq + (endFreq - startFreq) * r.ury / j2kHeight);
 
             int dx0 = xAxis.value2pixel(ga.x, ga.width, imStart);
             int dx1 = xAxis.value2pixel(ga.x, ga.width, imEnd);
 
-            int dy0 = RadioData.yAxis.value2pixel(ga.y, ga.height, freqimStart);
-            int dy1 = RadioData.yAxis.value2pixel(ga.y, ga.height, freqimEnd);
+            int dy0 = yAxis.value2pixel(ga.y, ga.height, freqimStart);
+            int dy1 = yAxis.value2pixel(ga.y, ga.height, freqimEnd);
 
-            g.drawImage(bufferedImage, dx0, dy0, dx1, dy1, sx0, sy0, sx1, sy1, null);
-        } else
-            RadioData.drawString(g, ga, xAxis, "Fetching data");
+            g.drawImage(image, dx0, dy0, dx1, dy1, sx0, sy0, sx1, sy1, null);
+        }
     }
 
     void changeColormap(ColorModel cm) {
@@ -195,4 +205,8 @@ class RadioJ2KData implements ImageDataHandler {
         return bufferedImage != null;
     }
 
+    boolean isFetching() {
+        return willDraw && bufferedImage == null;
+    }
+
 }
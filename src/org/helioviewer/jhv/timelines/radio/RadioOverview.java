@@ -0,0 +1,220 @@
+package org.helioviewer.jhv.timelines.radio;
+
+import java.awt.EventQueue;
+import java.awt.Rectangle;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import org.helioviewer.jhv.JHVGlobals;
+import org.helioviewer.jhv.imagedata.ImageBuffer;
+import org.helioviewer.jhv.imagedata.ImageData;
+import org.helioviewer.jhv.imagedata.ImageDataHandler;
+import org.helioviewer.jhv.io.APIRequest;
+import org.helioviewer.jhv.io.NetFileCache;
+import org.helioviewer.jhv.log.Log;
+import org.helioviewer.jhv.metadata.XMLMetaDataContainer;
+import org.helioviewer.jhv.threads.JHVThread;
+import org.helioviewer.jhv.time.TimeUtils;
+import org.helioviewer.jhv.timelines.TimelineLayer;
+import org.helioviewer.jhv.timelines.Timelines;
+import org.helioviewer.jhv.timelines.draw.TimeAxis;
+import org.helioviewer.jhv.view.j2k.J2KViewCallisto;
+import org.helioviewer.jhv.view.j2k.image.ResolutionSet;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/*
+ * Intervals longer than the detailed radio view are composed from the pyramids of the days.
+ * A missing day is decoded once as a whole, reduced in time to the levels of its pyramid and
+ * written to the disk cache, from where it is mapped in later sessions. Accessed on the event thread.
+ */
+class RadioOverview {
+
+    static final int MAX_DAYS = 186;
+
+    private static final int MAX_WIDTH = 4096; // of the finest level
+    private static final int DECODE_TIMEOUT = 120; // s, the decoder doesn't report failures
+    private static final ExecutorService loadExecutor = Executors.newFixedThreadPool(2, new JHVThread.NamedThreadFactory("Radio Pyramid"));
+
+    private static final Cache<Long, RadioPyramid> cache = CacheBuilder.newBuilder().maximumSize(2 * MAX_DAYS).build();
+    private static final HashSet<Long> requested = new HashSet<>();
+    private static final HashSet<Long> missing = new HashSet<>(); // no data for the day
+
+    static void requestData(TimeAxis xAxis, TimelineLayer layer) {
+        long end = Math.min(TimeUtils.floorDay(xAxis.end()), TimeUtils.floorDay(System.currentTimeMillis()));
+        for (long date = TimeUtils.floorDay(xAxis.start()); date <= end; date += TimeUtils.DAY_IN_MILLIS) {
+            if (cache.getIfPresent(date) != null || missing.contains(date) || requested.contains(date))
+                continue;
+            if (requested.isEmpty())
+                Timelines.getLayers().downloadStarted(layer);
+            requested.add(date);
+
+            long day = date;
+            loadExecutor.execute(() -> load(day, layer));
+        }
+    }
+
+    static boolean isDownloading() {
+        return !requested.isEmpty();
+    }
+
+    static void clear() {
+        cache.invalidateAll();
+        missing.clear();
+    }
+
+    static List<RadioPyramid> getPyramids(TimeAxis xAxis) {
+        ArrayList<RadioPyramid> list = new ArrayList<>();
+        for (long date = TimeUtils.floorDay(xAxis.start()); date <= xAxis.end(); date += TimeUtils.DAY_IN_MILLIS) {
+            RadioPyramid pyramid = cache.getIfPresent(date);
+            if (pyramid != null)
+                list.add(pyramid);
+        }
+        return list;
+    }
+
+    private static void done(long date, @Nullable RadioPyramid pyramid, boolean noData, TimelineLayer layer) {
+        requested.remove(date);
+        if (pyramid != null)
+            cache.put(date, pyramid);
+        else if (noData)
+            missing.add(date);
+        if (requested.isEmpty())
+            Timelines.getLayers().downloadFinished(layer);
+        RadioData.dataChanged();
+    }
+
+    // a day still growing, as today's file, or cut short is not persisted and is decoded again next session
+    private static boolean isComplete(long date, long endDate) {
+        return date < TimeUtils.floorDay(System.currentTimeMillis()) && endDate >= date + TimeUtils.DAY_IN_MILLIS - TimeUtils.MINUTE_IN_MILLIS;
+    }
+
+    private static void load(long date, TimelineLayer layer) {
+        RadioPyramid pyramid = date < TimeUtils.floorDay(System.currentTimeMillis()) ? RadioDiskCache.get(date) : null;
+        if (pyramid != null) {
+            EventQueue.invokeLater(() -> done(date, pyramid, false, layer));
+            return;
+        }
+
+        J2KViewCallisto view = null;
+        try {
+            APIRequest req = new APIRequest("ROB", APIRequest.CallistoID, date, date, APIRequest.CADENCE_ANY);
+            view = new J2KViewCallisto(NetFileCache.get(new URI(req.toFileRequest())), req, null);
+
+            ResolutionSet.ResolutionLevel resLevel = view.getResolutionLevel(0, 0);
+            XMLMetaDataContainer hvMetaData = new XMLMetaDataContainer(view.getXMLMetaData());
+            double endFreq = hvMetaData.getRequiredDouble("STARTFRQ");
+            double startFreq = hvMetaData.getRequiredDouble("END-FREQ");
+            long startDate = TimeUtils.parse(hvMetaData.getRequiredString("DATE-OBS"));
+            long endDate = TimeUtils.parse(hvMetaData.getRequiredString("DATE-END"));
+            if (startDate != date) { // as RadioJ2KData, didn't get the day
+                view.abolish();
+                EventQueue.invokeLater(() -> done(date, null, true, layer));
+                return;
+            }
+
+            double factor = 1;
+            while (resLevel.width * factor > MAX_WIDTH)
+                factor /= 2;
+
+            Decoder decoder = new Decoder(date, view, startDate, endDate, startFreq, endFreq, layer);
+            Rectangle region = new Rectangle(0, 0, resLevel.width, resLevel.height);
+            double decodeFactor = factor;
+            EventQueue.invokeLater(() -> decoder.decode(region, decodeFactor));
+        } catch (Exception e) {
+            Log.warn("Radio overview " + TimeUtils.formatDate(date) + ": " + e.getMessage());
+            if (view != null)
+                view.abolish();
+            EventQueue.invokeLater(() -> done(date, null, false, layer));
+        }
+    }
+
+    private static class Decoder implements ImageDataHandler {
+
+        private final long date;
+        private final J2KViewCallisto view;
+        private final long startDate;
+        private final long endDate;
+        private final double startFreq;
+        private final double endFreq;
+        private final TimelineLayer layer;
+
+        private boolean finished;
+
+        Decoder(long _date, J2KViewCallisto _view, long _startDate, long _endDate, double _startFreq, double _endFreq, TimelineLayer _layer) {
+            date = _date;
+            view = _view;
+            startDate = _startDate;
+            endDate = _endDate;
+            startFreq = _startFreq;
+            endFreq = _endFreq;
+            layer = _layer;
+        }
+
+        void decode(Rectangle region, double factor) {
+            view.setDataHandler(this);
+            view.setRegion(region);
+            view.decode(null, 1, factor);
+            JHVGlobals.getReaperService().schedule(() -> EventQueue.invokeLater(this::timeout), DECODE_TIMEOUT, TimeUnit.SECONDS);
+        }
+
+        private void timeout() {
+            if (finished)
+                return;
+            finished = true;
+
+            Log.warn("Radio overview " + TimeUtils.formatDate(date) + ": decode timed out");
+            view.setDataHandler(null);
+            view.abolish();
+            done(date, null, false, layer);
+        }
+
+        @Override
+        public void handleData(ImageData imageData) {
+            if (finished)
+                return;
+            finished = true;
+            view.setDataHandler(null);
+
+            ImageBuffer imageBuffer = imageData.getImageBuffer();
+            int w = imageBuffer.width;
+            int h = imageBuffer.height;
+            if (w < 1 || h < 1 || imageBuffer.format != ImageBuffer.Format.Gray8) {
+                Log.error("Radio overview: unexpected image " + w + 'x' + h + ' ' + imageBuffer.format);
+                view.abolish();
+                done(date, null, true, layer);
+                return;
+            }
+
+            byte[] data = new byte[w * h];
+            ByteBuffer buffer = ((ByteBuffer) imageBuffer.buffer).duplicate();
+            buffer.position(0);
+            buffer.get(data);
+            view.abolish();
+
+            loadExecutor.execute(() -> {
+                RadioPyramid pyramid = RadioPyramid.create(startDate, endDate, startFreq, endFreq, data, w, h);
+                RadioPyramid result = pyramid;
+                if (isComplete(date, endDate)) {
+                    RadioDiskCache.put(date, pyramid);
+                    RadioPyramid mapped = RadioDiskCache.get(date); // off the heap
+                    if (mapped != null)
+                        result = mapped;
+                }
+                RadioPyramid loaded = result;
+                EventQueue.invokeLater(() -> done(date, loaded, false, layer));
+            });
+        }
+
+    }
+
+}
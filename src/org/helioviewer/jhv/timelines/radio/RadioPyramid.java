@@ -0,0 +1,104 @@
+package org.helioviewer.jhv.timelines.radio;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+import org.helioviewer.jhv.base.image.NIOImageFactory;
+import org.helioviewer.jhv.timelines.draw.TimeAxis;
+import org.helioviewer.jhv.timelines.draw.YAxis;
+
+// Spectrogram of one day at decreasing resolutions in time, the rows are the same at every level
+class RadioPyramid {
+
+    private static final int MIN_WIDTH = 16;
+
+    final long startDate;
+    final long endDate;
+    final double startFreq;
+    final double endFreq;
+    final int height;
+
+    private final int[] widths;
+    private final ByteBuffer[] levels;
+
+    RadioPyramid(long _startDate, long _endDate, double _startFreq, double _endFreq, int _height, int[] _widths, ByteBuffer[] _levels) {
+        startDate = _startDate;
+        endDate = _endDate;
+        startFreq = _startFreq;
+        endFreq = _endFreq;
+        height = _height;
+        widths = _widths;
+        levels = _levels;
+    }
+
+    // each level halves the previous one in time, the maximum keeps the bursts visible
+    static RadioPyramid create(long startDate, long endDate, double startFreq, double endFreq, byte[] data, int width, int height) {
+        ArrayList<byte[]> list = new ArrayList<>();
+        ArrayList<Integer> wlist = new ArrayList<>();
+        list.add(data);
+        wlist.add(width);
+
+        byte[] prev = data;
+        int w = width;
+        while (w > MIN_WIDTH) {
+            int nw = (w + 1) / 2;
+            byte[] next = new byte[nw * height];
+            for (int y = 0; y < height; y++) {
+                int src = y * w, dst = y * nw;
+                for (int x = 0; x < nw; x++) {
+                    int a = prev[src + 2 * x] & 0xFF;
+                    int b = 2 * x + 1 < w ? prev[src + 2 * x + 1] & 0xFF : a;
+                    next[dst + x] = (byte) Math.max(a, b);
+                }
+            }
+            list.add(next);
+            wlist.add(nw);
+            prev = next;
+            w = nw;
+        }
+
+        int n = list.size();
+        int[] widths = new int[n];
+        ByteBuffer[] levels = new ByteBuffer[n];
+        for (int i = 0; i < n; i++) {
+            widths[i] = wlist.get(i);
+            levels[i] = ByteBuffer.wrap(list.get(i));
+        }
+        return new RadioPyramid(startDate, endDate, startFreq, endFreq, height, widths, levels);
+    }
+
+    int getLevels() {
+        return levels.length;
+    }
+
+    int getWidth(int level) {
+        return widths[level];
+    }
+
+    ByteBuffer getLevel(int level) {
+        return levels[level].duplicate();
+    }
+
+    // from the coarsest level at least as wide as the day on the device
+    void draw(Graphics2D g, Rectangle ga, TimeAxis xAxis, YAxis yAxis, IndexColorModel cm) {
+        int dx0 = xAxis.value2pixel(ga.x, ga.width, startDate);
+        int dx1 = xAxis.value2pixel(ga.x, ga.width, endDate);
+        int dy0 = yAxis.value2pixel(ga.y, ga.height, startFreq);
+        int dy1 = yAxis.value2pixel(ga.y, ga.height, endFreq);
+        if (dx1 <= dx0)
+            return;
+
+        double needed = (dx1 - dx0) * g.getTransform().getScaleX();
+        int level = 0;
+        while (level + 1 < widths.length && widths[level + 1] >= needed)
+            level++;
+
+        BufferedImage image = NIOImageFactory.createIndexed(getLevel(level), widths[level], height, cm);
+        g.drawImage(image, dx0, dy0, dx1, dy1, 0, 0, widths[level], height, null);
+    }
+
+}
@@ -20,6 +20,7 @@ import java.awt.event.MouseWheelListener;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
+import java.util.List;
 
 import javax.swing.JComponent;
 import javax.swing.event.MouseInputListener;
@@ -50,6 +51,7 @@ public class ChartDrawGraphPane extends JComponent implements MouseInputListener
     private Point mouseDragPosition;
 
     private BufferedImage screenImage;
+    private final ChartTileCache tiles = new ChartTileCache(this::drawRequest);
 
     private final Stroke boldStroke = new BasicStroke(2);
     private final Stroke thinStroke = new BasicStroke(0.5f);
@@ -117,9 +119,7 @@ public class ChartDrawGraphPane extends JComponent implements MouseInputListener
     @Override
     protected void paintComponent(Graphics g1) {
         Rectangle graphArea = DrawController.getGraphArea();
-
-        boolean axisHighlightChanged = toggleAxisHightlight(graphArea);
-        if (redrawGraphArea || axisHighlightChanged) {
+        if (redrawGraphArea) {
             redrawGraphArea = false;
             redrawGraph(graphArea);
         }
@@ -142,12 +142,44 @@ public class ChartDrawGraphPane extends JComponent implements MouseInputListener
         int height = sy * (int) graphSize.getHeight();
 
         if (width > 0 && height > 0) {
+            toggleAxisHightlight(graphArea);
+
+            TimeAxis xAxis = DrawController.selectedAxis;
+            List<TimelineLayer> layers = TimelineLayers.get();
+            ChartTileCache.Tile[][] layerTiles = new ChartTileCache.Tile[layers.size()][];
+            boolean complete = true;
+
+            // tile k holds the absolute pixels [k * TILE_WIDTH, (k + 1) * TILE_WIDTH) of the time axis at this scale
+            double millisPerPixel = 0;
+            long p0 = 0, first = 0;
+            tiles.begin();
+            if (graphArea.width > 0 && graphArea.height > 0) {
+                millisPerPixel = (xAxis.end() - xAxis.start()) / (double) graphArea.width;
+                p0 = Math.round(xAxis.start() / millisPerPixel);
+                first = Math.floorDiv(p0, ChartTileCache.TILE_WIDTH);
+                int count = (int) (Math.floorDiv(p0 + graphArea.width - 1, ChartTileCache.TILE_WIDTH) - first + 1);
+
+                for (int i = 0; i < layerTiles.length; i++) {
+                    TimelineLayer tl = layers.get(i);
+                    if (!tl.isEnabled())
+                        continue;
+                    ChartTileCache.Tile[] row = new ChartTileCache.Tile[count];
+                    for (int j = 0; j < count; j++) {
+                        row[j] = tiles.get(tl, first + j, millisPerPixel, graphArea.height, sx, sy);
+                        complete = complete && row[j] != null;
+                    }
+                    layerTiles[i] = row;
+                }
+            }
+
             if (width != lastWidth || height != lastHeight) {
                 screenImage = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration().createCompatibleImage(width, height, Transparency.OPAQUE);
                 ExportMovie.EVEImage = screenImage;
 
                 lastWidth = width;
                 lastHeight = height;
+            } else if (!complete) { // keep the previous image until the tiles are painted
+                return;
             }
 
             Graphics2D fullG = screenImage.createGraphics();
@@ -159,18 +191,25 @@ public class ChartDrawGraphPane extends JComponent implements MouseInputListener
 
             Graphics2D plotG = (Graphics2D) fullG.create();
             plotG.setClip(graphArea);
-            drawData(fullG, plotG, graphArea, DrawController.selectedAxis);
+            for (int i = 0; i < layerTiles.length; i++) {
+                ChartTileCache.Tile[] row = layerTiles[i];
+                if (row != null) {
+                    for (int j = 0; j < row.length; j++) {
+                        if (row[j] != null && row[j].image != null) {
+                            int x = (int) (graphArea.x + (first + j) * ChartTileCache.TILE_WIDTH - p0);
+                            plotG.drawImage(row[j].image, x, graphArea.y, ChartTileCache.TILE_WIDTH, graphArea.height, null);
+                        }
+                    }
+                }
+                layers.get(i).draw(plotG, graphArea, xAxis, mousePosition);
+            }
+            drawLabels(fullG, graphArea, xAxis);
 
             plotG.dispose();
             fullG.dispose();
         }
     }
 
-    private void drawData(Graphics2D fullG, Graphics2D plotG, Rectangle graphArea, TimeAxis xAxis) {
-        TimelineLayers.get().forEach(layer -> layer.draw(plotG, graphArea, xAxis, mousePosition));
-        drawLabels(fullG, graphArea, xAxis);
-    }
-
     private static void drawBackground(Graphics2D g, int width, int height) {
         g.setColor(DrawConstants.SELECTED_INTERVAL_BACKGROUND_COLOR);
         g.fillRect(0, 0, width, height);
@@ -416,7 +455,10 @@ public class ChartDrawGraphPane extends JComponent implements MouseInputListener
     public void mouseExited(MouseEvent e) {
         JHVEventCache.highlight(null);
         mousePosition = null;
-        repaint();
+        if (toggleAxisHightlight(DrawController.getGraphArea()))
+            drawRequest();
+        else
+            repaint();
     }
 
     @Override
@@ -503,10 +545,10 @@ public class ChartDrawGraphPane extends JComponent implements MouseInputListener
             setCursor(Cursor.getDefaultCursor());
         }
 
-        if (highlightChanged(mousePosition)) {
+        if (highlightChanged(mousePosition) || toggleAxisHightlight(DrawController.getGraphArea())) {
             drawRequest();
         } else {
-            repaint(); // for timeline values
+            repaint(0, 0, getWidth(), DrawConstants.GRAPH_TOP_SPACE); // for timeline values
         }
     }
 
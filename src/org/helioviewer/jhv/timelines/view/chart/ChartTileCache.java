@@ -0,0 +1,169 @@
+package org.helioviewer.jhv.timelines.view.chart;
+
+import java.awt.EventQueue;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.Nullable;
+
+import org.helioviewer.jhv.log.Log;
+import org.helioviewer.jhv.threads.JHVThread;
+import org.helioviewer.jhv.timelines.TimelineLayer;
+import org.helioviewer.jhv.timelines.draw.DrawConstants;
+import org.helioviewer.jhv.timelines.draw.TilePainter;
+import org.helioviewer.jhv.timelines.draw.TimeAxis;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/*
+ * Plot area of the timelines split in tiles of fixed width, aligned in time at the current scale.
+ * A tile is painted once per layer, y-axis range, time range and pixel scale on the renderer
+ * threads, such that panning only paints the newly exposed tiles. Accessed on the event thread.
+ */
+class ChartTileCache {
+
+    static final int TILE_WIDTH = 128;
+
+    private static final long MAX_PIXELS = 16 * 1024 * 1024;
+    private static final int WORKERS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+    private static final ExecutorService renderExecutor = Executors.newFixedThreadPool(WORKERS, new JHVThread.NamedThreadFactory("Timeline Tile Renderer"));
+
+    static class Tile {
+
+        @Nullable
+        final BufferedImage image;
+
+        Tile(@Nullable BufferedImage _image) {
+            image = _image;
+        }
+
+    }
+
+    private static final Tile EMPTY = new Tile(null);
+
+    private final Cache<Key, Tile> cache = CacheBuilder.newBuilder()
+            .maximumWeight(MAX_PIXELS)
+            .weigher((Key k, Tile v) -> v.image == null ? 1 : v.image.getWidth() * v.image.getHeight())
+            .build();
+    private final HashSet<Key> pending = new HashSet<>();
+    private final Runnable onReady;
+
+    // tiles of the last two compositions, queued ones are skipped once not wanted anymore
+    private volatile Set<Key> wanted = ConcurrentHashMap.newKeySet();
+    private volatile Set<Key> prevWanted = Collections.emptySet();
+
+    ChartTileCache(Runnable _onReady) {
+        onReady = _onReady;
+    }
+
+    // null if not painted yet, in which case it is queued
+    @Nullable
+    Tile get(TimelineLayer tl, long index, double millisPerPixel, int height, int sx, int sy) {
+        Key key = new Key(tl, index, millisPerPixel, height, sx, sy);
+        wanted.add(key);
+
+        Tile tile = cache.getIfPresent(key);
+        if (tile != null || pending.contains(key))
+            return tile;
+
+        TimeAxis tileAxis = new TimeAxis((long) (index * TILE_WIDTH * millisPerPixel), (long) ((index + 1) * TILE_WIDTH * millisPerPixel));
+        TilePainter painter = tl.getTilePainter(tileAxis, TILE_WIDTH);
+        if (painter == null) {
+            cache.put(key, EMPTY);
+            return EMPTY;
+        }
+
+        pending.add(key);
+        renderExecutor.execute(() -> {
+            Tile result = null;
+            if (wanted.contains(key) || prevWanted.contains(key)) {
+                try {
+                    result = new Tile(paint(painter, tileAxis, height, sx, sy));
+                } catch (Exception e) {
+                    Log.error("Timeline tile error", e);
+                    result = EMPTY;
+                }
+            }
+            Tile painted = result;
+            EventQueue.invokeLater(() -> {
+                pending.remove(key);
+                if (painted != null) {
+                    cache.put(key, painted);
+                    onReady.run();
+                }
+            });
+        });
+        return null;
+    }
+
+    // before the tiles of a composition are asked for
+    void begin() {
+        prevWanted = wanted;
+        wanted = ConcurrentHashMap.newKeySet();
+    }
+
+    private static BufferedImage paint(TilePainter painter, TimeAxis tileAxis, int height, int sx, int sy) {
+        BufferedImage image = new BufferedImage(sx * TILE_WIDTH, sy * height, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setFont(DrawConstants.font);
+        g.scale(sx, sy);
+
+        Rectangle tileArea = new Rectangle(0, 0, TILE_WIDTH, height);
+        g.setClip(tileArea);
+        painter.paint(g, tileArea, tileAxis);
+        g.dispose();
+        return image;
+    }
+
+    private static class Key {
+
+        final TimelineLayer layer;
+        final int version;
+        final double yStart;
+        final double yEnd;
+        final long index;
+        final double millisPerPixel;
+        final int height;
+        final int sx;
+        final int sy;
+
+        Key(TimelineLayer _layer, long _index, double _millisPerPixel, int _height, int _sx, int _sy) {
+            layer = _layer;
+            version = layer.getTileVersion();
+            yStart = layer.getYAxis().start();
+            yEnd = layer.getYAxis().end();
+            index = _index;
+            millisPerPixel = _millisPerPixel;
+            height = _height;
+            sx = _sx;
+            sy = _sy;
+        }
+
+        @Override
+        public boolean equals(Object o) { // same layer instance
+            if (!(o instanceof Key))
+                return false;
+            Key k = (Key) o;
+            return layer == k.layer && version == k.version && yStart == k.yStart && yEnd == k.yEnd && index == k.index &&
+                    millisPerPixel == k.millisPerPixel && height == k.height && sx == k.sx && sy == k.sy;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(layer) + Objects.hash(version, yStart, yEnd, index, millisPerPixel, height, sx, sy);
+        }
+
+    }
+
+}
@@ -87,6 +87,11 @@ public class BaseView implements View {
         return false;
     }
 
+    @Override
+    public boolean isFrameComplete(int frame) {
+        return true;
+    }
+
     @Override
     public boolean isMultiFrame() {
         return maxFrame > 0;
@@ -46,6 +46,9 @@ public interface View {
 
     boolean isComplete();
 
+    // full resolution data of the frame is available
+    boolean isFrameComplete(int frame);
+
     AtomicBoolean getFrameCacheStatus(int frame);
 
     JHVDate getFrameTime(int frame);
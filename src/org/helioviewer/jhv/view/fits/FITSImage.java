@@ -1,8 +1,19 @@
 package org.helioviewer.jhv.view.fits;
 
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
 import java.net.URI;
 import java.nio.ByteBuffer;
 import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import javax.annotation.Nullable;
 
 import nom.tam.fits.BasicHDU;
 import nom.tam.fits.Fits;
@@ -15,131 +26,150 @@ import nom.tam.util.Cursor;
 import org.helioviewer.jhv.io.NetClient;
 import org.helioviewer.jhv.imagedata.ImageBuffer;
 import org.helioviewer.jhv.imagedata.ImageData;
-import org.helioviewer.jhv.math.MathUtils;
 import org.helioviewer.jhv.log.Log;
 
+// Rows are read on demand, memory-mapped for uncompressed local files, and decimated
+// by block means into a pyramid of levels which are built lazily and softly cached
 class FITSImage {
 
     private static final double GAMMA = 1 / 2.2;
     private static final long BLANK = 0; // in case it doesn't exist, very unlikely value
+    private static final int MIN_LEVEL_SIZE = 64;
 
-    String xml;
-    ImageData imageData;
+    final String xml;
+    final int width;
+    final int height;
+    final int numLevels;
 
-    FITSImage(URI uri) throws Exception {
-        try (NetClient nc = NetClient.of(uri); Fits f = new Fits(nc.getStream())) {
-            BasicHDU<?>[] hdus = f.read();
-            // this is cumbersome
-            for (BasicHDU<?> hdu : hdus) {
-                if (hdu instanceof CompressedImageHDU) {
-                    xml = getHeaderAsXML(hdu.getHeader());
-                    readHDU(((CompressedImageHDU) hdu).asImageHDU());
-                    return;
-                }
-            }
-            for (BasicHDU<?> hdu : hdus) {
-                if (hdu instanceof ImageHDU) {
-                    xml = getHeaderAsXML(hdu.getHeader());
-                    readHDU(hdu);
-                    return;
-                }
-            }
-        }
+    private final int bpp;
+    private final long blank;
+    private final double bzero;
+    private final double bscale;
+    private final RowSource source;
+
+    private final float min;
+    private final Transfer transfer;
+
+    // read without locking, such that the event thread doesn't wait for a level being built
+    private final AtomicReferenceArray<SoftReference<ImageBuffer>> levels;
+    private final Object buildLock = new Object();
+
+    private interface RowSource {
+        // pixels of FITS row j, possibly read into buf
+        Object getRow(int j, Object buf);
     }
 
-    private static float getValue(int bpp, Object lineData, int i, long blank, double bzero, double bscale) {
-        double v = ImageData.BAD_PIXEL;
-        switch (bpp) {
-            case BasicHDU.BITPIX_SHORT:
-                v = ((short[]) lineData)[i];
-                break;
-            case BasicHDU.BITPIX_INT:
-                v = ((int[]) lineData)[i];
-                break;
-            case BasicHDU.BITPIX_LONG:
-                v = ((long[]) lineData)[i];
-                break;
-            case BasicHDU.BITPIX_FLOAT:
-                v = ((float[]) lineData)[i];
-                break;
-            case BasicHDU.BITPIX_DOUBLE:
-                v = ((double[]) lineData)[i];
-                break;
-        }
-        return (blank != BLANK && v == blank) || !Double.isFinite(v) ? ImageData.BAD_PIXEL : (float) (bzero + v * bscale);
+    private interface IntRows {
+        // pixels of output row y, top-down
+        void getRow(int y, int[] row);
     }
 
-    private static float[] sampleImage(int bpp, int width, int height, Object[] pixelData, long blank, double bzero, double bscale, int[] npix) {
-        int stepW = 4 * width / 1024;
-        int stepH = 4 * height / 1024;
-        float[] sampleData = new float[(width / stepW) * (height / stepH)];
+    // The transfer function tabulated through its inverse: thresholds[p] is the smallest offset
+    // from min which quantizes to p, and the bins narrow the search, so that the result is the
+    // same as evaluating pow or log1p for every pixel; lut[p] is the physical value at the
+    // center of p, also for values only reached by the block means of the coarser levels
+    private static class Transfer {
 
-        int k = 0;
-        for (int j = 0; j < height; j += stepH) {
-            Object lineData = pixelData[j];
-            for (int i = 0; i < width; i += stepW) {
-                float v = getValue(bpp, lineData, i, blank, bzero, bscale);
-                if (v != ImageData.BAD_PIXEL)
-                    sampleData[k++] = v;
+        private static final int LEVELS = 65536;
+        private static final int BINS = 65536;
+
+        private final double[] thresholds = new double[LEVELS];
+        private final int[] start = new int[BINS + 1];
+        private final double binScale;
+        private final float[] lut = new float[LEVELS];
+
+        Transfer(double min, double scale, boolean log) {
+            for (int p = 0; p < LEVELS; p++) {
+                lut[p] = (float) (min + inverse(p / scale, log));
+                if (p > 0)
+                    thresholds[p] = inverse((p - .5) / scale, log);
+            }
+            binScale = BINS / thresholds[LEVELS - 1];
+
+            int p = 0;
+            for (int b = 0; b <= BINS; b++) {
+                double x = b / binScale;
+                while (p < LEVELS - 1 && thresholds[p + 1] <= x)
+                    p++;
+                start[b] = p;
             }
         }
-        npix[0] = k;
-        return sampleData;
-    }
-/*
-    private static float[] getMinMax(int bpp, int width, int height, Object[] pixelData, long blank, double bzero, double bscale) {
-        float min = Float.MAX_VALUE;
-        float max = -Float.MAX_VALUE;
-
-        for (int j = 0; j < height; j++) {
-            Object lineData = pixelData[j];
-            for (int i = 0; i < width; i++) {
-                float v = getValue(bpp, lineData, i, blank, bzero, bscale);
-                if (v != ImageData.BAD_PIXEL) {
-                    if (v > max)
-                        max = v;
-                    if (v < min)
-                        min = v;
-                }
+
+        private static double inverse(double y, boolean log) {
+            return log ? Math.expm1(y) : Math.pow(y, 1 / GAMMA);
+        }
+
+        int quantize(double x) {
+            if (!(x >= thresholds[1])) // also NaN
+                return 0;
+            if (x >= thresholds[LEVELS - 1])
+                return LEVELS - 1;
+
+            int b = (int) (x * binScale);
+            int lo = start[b], hi = start[b + 1];
+            while (lo < hi) {
+                int mid = (lo + hi + 1) >>> 1;
+                if (thresholds[mid] <= x)
+                    lo = mid;
+                else
+                    hi = mid - 1;
             }
+            // bin edges are subject to rounding
+            while (lo > 0 && thresholds[lo] > x)
+                lo--;
+            while (lo < LEVELS - 1 && thresholds[lo + 1] <= x)
+                lo++;
+            return lo;
         }
-        return new float[]{min, max};
+
     }
-*/
-    private void readHDU(BasicHDU<?> hdu) throws Exception {
-        int[] axes = hdu.getAxes();
-        if (axes == null || axes.length != 2)
-            throw new Exception("Only 2D FITS files supported");
-        int height = axes[0];
-        int width = axes[1];
 
-        int bpp = hdu.getBitPix();
-        Object kernel = hdu.getKernel();
-        if (!(kernel instanceof Object[]))
-            throw new Exception("Cannot retrieve pixel data");
-        Object[] pixelData = (Object[]) kernel;
+    FITSImage(URI uri) throws Exception {
+        File file = "file".equals(uri.getScheme()) ? new File(uri) : null;
+        // data reading is deferred for local uncompressed files
+        try (NetClient nc = file == null ? NetClient.of(uri) : null; Fits f = file == null ? new Fits(nc.getStream()) : new Fits(file)) {
+            BasicHDU<?> hdu = findImage(f.read());
+            boolean compressed = hdu instanceof CompressedImageHDU;
+
+            xml = getHeaderAsXML(hdu.getHeader());
+            if (compressed)
+                hdu = ((CompressedImageHDU) hdu).asImageHDU();
+
+            int[] axes = hdu.getAxes();
+            if (axes == null || axes.length != 2)
+                throw new Exception("Only 2D FITS files supported");
+            height = axes[0];
+            width = axes[1];
+            bpp = hdu.getBitPix();
 
-        long blank = BLANK;
-        try {
-            blank = hdu.getBlankValue();
-        } catch (Exception ignore) {
+            long _blank = BLANK;
+            try {
+                _blank = hdu.getBlankValue();
+            } catch (Exception ignore) {
+            }
+            blank = _blank;
+            bzero = hdu.getBZero();
+            bscale = hdu.getBScale();
+
+            long offset = hdu.getData().getFileOffset();
+            long size = (long) width * height * Math.abs(bpp) / 8;
+            if (file != null && !compressed && offset >= 0 && size <= Integer.MAX_VALUE)
+                source = mapRows(file, offset, (int) size);
+            else
+                source = kernelRows(hdu);
         }
 
+        numLevels = getNumLevels(width, height);
+        levels = new AtomicReferenceArray<>(numLevels);
+
         if (bpp == BasicHDU.BITPIX_BYTE) {
-            byte[][] inData = (byte[][]) pixelData;
-            byte[] outData = new byte[width * height];
-            for (int j = 0; j < height; j++) {
-                System.arraycopy(inData[j], 0, outData, width * (height - 1 - j), width);
-            }
-            imageData = new ImageData(new ImageBuffer(width, height, ImageBuffer.Format.Gray8, ByteBuffer.wrap(outData)));
+            min = 0;
+            transfer = null;
             return;
         }
 
-        double bzero = hdu.getBZero();
-        double bscale = hdu.getBScale();
-
         int[] npix = {0};
-        float[] sampleData = sampleImage(bpp, width, height, pixelData, blank, bzero, bscale, npix);
+        float[] sampleData = sampleImage(npix);
 
         float[] zLow = {0};
         float[] zHigh = {0};
@@ -148,7 +178,6 @@ class FITSImage {
         // System.out.println(">>> " + npix[0] + " " + zLow[0] + " " + zMax[0]);
 
         float[] minmax = {zLow[0], zMax[0]};
-        //float[] minmax = getMinMax(bpp, width, height, pixelData, blank, bzero, bscale);
         if (minmax[0] >= minmax[1]) {
             Log.debug("min >= max :" + minmax[0] + ' ' + minmax[1]);
             minmax[1] = minmax[0] + 1;
@@ -156,41 +185,292 @@ class FITSImage {
         double range = minmax[1] - minmax[0];
         // System.out.println(">>> " + minmax[0] + ' ' + minmax[1]);
 
-        short[] outData = new short[width * height];
-        float[] lut = new float[65536];
+        min = minmax[0];
+        boolean log = bpp == BasicHDU.BITPIX_DOUBLE;
+        transfer = new Transfer(min, log ? 65535. / Math.log1p(range) : 65535. / Math.pow(range, GAMMA), log);
+    }
+
+    // header of the image which would be displayed, without reading pixel data for local files
+    static String readXML(URI uri) throws Exception {
+        File file = "file".equals(uri.getScheme()) ? new File(uri) : null;
+        try (NetClient nc = file == null ? NetClient.of(uri) : null; Fits f = file == null ? new Fits(nc.getStream()) : new Fits(file)) {
+            return getHeaderAsXML(findImage(f.read()).getHeader());
+        }
+    }
+
+    private static BasicHDU<?> findImage(BasicHDU<?>[] hdus) throws Exception {
+        // this is cumbersome
+        for (BasicHDU<?> hdu : hdus) {
+            if (hdu instanceof CompressedImageHDU)
+                return hdu;
+        }
+        for (BasicHDU<?> hdu : hdus) {
+            if (hdu instanceof ImageHDU)
+                return hdu;
+        }
+        throw new Exception("No image found");
+    }
+
+    private RowSource mapRows(File file, long offset, int size) throws IOException {
+        ByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, offset, size); // stays valid after close
+        }
+
+        int rowBytes = width * Math.abs(bpp) / 8;
+        return (j, buf) -> {
+            ByteBuffer row = mapped.duplicate(); // big-endian, as FITS
+            row.position(j * rowBytes);
+            switch (bpp) {
+                case BasicHDU.BITPIX_BYTE:
+                    row.get((byte[]) buf);
+                    break;
+                case BasicHDU.BITPIX_SHORT:
+                    row.asShortBuffer().get((short[]) buf);
+                    break;
+                case BasicHDU.BITPIX_INT:
+                    row.asIntBuffer().get((int[]) buf);
+                    break;
+                case BasicHDU.BITPIX_LONG:
+                    row.asLongBuffer().get((long[]) buf);
+                    break;
+                case BasicHDU.BITPIX_FLOAT:
+                    row.asFloatBuffer().get((float[]) buf);
+                    break;
+                case BasicHDU.BITPIX_DOUBLE:
+                    row.asDoubleBuffer().get((double[]) buf);
+                    break;
+            }
+            return buf;
+        };
+    }
+
+    private static RowSource kernelRows(BasicHDU<?> hdu) throws Exception {
+        Object kernel = hdu.getKernel();
+        if (!(kernel instanceof Object[]))
+            throw new Exception("Cannot retrieve pixel data");
+        Object[] pixelData = (Object[]) kernel;
+        return (j, buf) -> pixelData[j];
+    }
+
+    @Nullable
+    private Object newRow() {
         switch (bpp) {
+            case BasicHDU.BITPIX_BYTE:
+                return new byte[width];
             case BasicHDU.BITPIX_SHORT:
+                return new short[width];
             case BasicHDU.BITPIX_INT:
+                return new int[width];
             case BasicHDU.BITPIX_LONG:
+                return new long[width];
+            case BasicHDU.BITPIX_FLOAT:
+                return new float[width];
+            case BasicHDU.BITPIX_DOUBLE:
+                return new double[width];
+        }
+        return null;
+    }
+
+    // whole row at once, without dispatching on the type for each pixel
+    private void getValues(Object lineData, float[] values) {
+        switch (bpp) {
+            case BasicHDU.BITPIX_SHORT: {
+                short[] data = (short[]) lineData;
+                for (int i = 0; i < width; i++)
+                    values[i] = blank != BLANK && data[i] == blank ? ImageData.BAD_PIXEL : (float) (bzero + data[i] * bscale);
+                break;
+            }
+            case BasicHDU.BITPIX_INT: {
+                int[] data = (int[]) lineData;
+                for (int i = 0; i < width; i++)
+                    values[i] = blank != BLANK && data[i] == blank ? ImageData.BAD_PIXEL : (float) (bzero + data[i] * bscale);
+                break;
+            }
+            case BasicHDU.BITPIX_LONG: {
+                long[] data = (long[]) lineData;
+                for (int i = 0; i < width; i++)
+                    values[i] = blank != BLANK && data[i] == blank ? ImageData.BAD_PIXEL : (float) (bzero + data[i] * bscale);
+                break;
+            }
             case BasicHDU.BITPIX_FLOAT: {
-                double scale = 65535. / Math.pow(range, GAMMA);
-                for (int j = 0; j < height; j++) {
-                    Object lineData = pixelData[j];
-                    for (int i = 0; i < width; i++) {
-                        float v = getValue(bpp, lineData, i, blank, bzero, bscale);
-                        int p = (int) MathUtils.clip(scale * Math.pow(v - minmax[0], GAMMA) + .5, 0, 65535);
-                        lut[p] = v;
-                        outData[width * (height - 1 - j) + i] = v == ImageData.BAD_PIXEL ? 0 : (short) p;
-                    }
+                float[] data = (float[]) lineData;
+                for (int i = 0; i < width; i++) {
+                    float v = data[i];
+                    values[i] = !Float.isFinite(v) || (blank != BLANK && (double) v == blank) ? ImageData.BAD_PIXEL : (float) (bzero + v * bscale);
                 }
                 break;
             }
             case BasicHDU.BITPIX_DOUBLE: {
-                double scale = 65535. / Math.log1p(range);
-                for (int j = 0; j < height; j++) {
-                    Object lineData = pixelData[j];
-                    for (int i = 0; i < width; i++) {
-                        float v = getValue(bpp, lineData, i, blank, bzero, bscale);
-                        int p = (int) MathUtils.clip(scale * Math.log1p(v - minmax[0]) + .5, 0, 65535);
-                        lut[p] = v;
-                        outData[width * (height - 1 - j) + i] = v == ImageData.BAD_PIXEL ? 0 : (short) p;
-                    }
+                double[] data = (double[]) lineData;
+                for (int i = 0; i < width; i++) {
+                    double v = data[i];
+                    values[i] = !Double.isFinite(v) || (blank != BLANK && v == blank) ? ImageData.BAD_PIXEL : (float) (bzero + v * bscale);
                 }
                 break;
             }
         }
-        imageData = new ImageData(new ImageBuffer(width, height, ImageBuffer.Format.Gray16, ShortBuffer.wrap(outData)));
-        imageData.setPhysicalLUT(lut);
+    }
+
+    // only the sampled rows are read
+    private float[] sampleImage(int[] npix) {
+        int stepW = Math.max(1, 4 * width / 1024);
+        int stepH = Math.max(1, 4 * height / 1024);
+        float[] sampleData = new float[((width + stepW - 1) / stepW) * ((height + stepH - 1) / stepH)];
+
+        Object buf = newRow();
+        float[] values = new float[width];
+        int k = 0;
+        for (int j = 0; j < height; j += stepH) {
+            getValues(source.getRow(j, buf), values);
+            for (int i = 0; i < width; i += stepW) {
+                float v = values[i];
+                if (v != ImageData.BAD_PIXEL)
+                    sampleData[k++] = v;
+            }
+        }
+        npix[0] = k;
+        return sampleData;
+    }
+
+    // FITS row to display values; bad pixels are 0
+    private void quantizeRow(Object lineData, float[] values, int[] out) {
+        if (bpp == BasicHDU.BITPIX_BYTE) {
+            byte[] data = (byte[]) lineData;
+            for (int i = 0; i < width; i++)
+                out[i] = data[i] & 0xFF;
+            return;
+        }
+
+        getValues(lineData, values);
+        for (int i = 0; i < width; i++) {
+            float v = values[i];
+            if (v == ImageData.BAD_PIXEL)
+                out[i] = 0;
+            else
+                out[i] = transfer.quantize(v - min);
+        }
+    }
+
+    static int levelSize(int size, int level) {
+        return (size + (1 << level) - 1) >> level;
+    }
+
+    static int getNumLevels(int width, int height) {
+        int n = 1;
+        while (Math.max(levelSize(width, n), levelSize(height, n)) >= MIN_LEVEL_SIZE)
+            n++;
+        return n;
+    }
+
+    // coarsest level with at least the requested height
+    static int getLevel(int height, int numLevels, int reqHeight) {
+        for (int i = 1; i < numLevels; i++) {
+            if (levelSize(height, i) < reqHeight)
+                return i - 1;
+        }
+        return numLevels - 1;
+    }
+
+    int getLevel(int reqHeight) {
+        return getLevel(height, numLevels, reqHeight);
+    }
+
+    @Nullable
+    ImageBuffer getCachedLevel(int level) {
+        SoftReference<ImageBuffer> ref = levels.get(level);
+        return ref == null ? null : ref.get();
+    }
+
+    ImageBuffer getImageBuffer(int level) {
+        ImageBuffer ib = getCachedLevel(level);
+        if (ib != null)
+            return ib;
+
+        synchronized (buildLock) { // a level is built once
+            ib = getCachedLevel(level);
+            if (ib == null) {
+                ib = buildLevel(level);
+                levels.set(level, new SoftReference<>(ib));
+            }
+        }
+        return ib;
+    }
+
+    private ImageBuffer buildLevel(int level) {
+        ImageBuffer ib = null;
+        for (int i = level - 1; i >= 0 && ib == null; i--) { // derive from a finer level, if any
+            ImageBuffer finer = getCachedLevel(i);
+            if (finer != null)
+                ib = decimate(() -> (y, row) -> getBufferRow(finer, y, row), finer.width, finer.height, level - i);
+        }
+        if (ib == null) {
+            ib = decimate(() -> {
+                Object buf = newRow();
+                float[] values = new float[width];
+                return (y, row) -> quantizeRow(source.getRow(height - 1 - y, buf), values, row);
+            }, width, height, level);
+        }
+        return ib;
+    }
+
+    @Nullable
+    float[] getPhysicalLUT() {
+        return transfer == null ? null : transfer.lut;
+    }
+
+    // bands of output rows are processed in parallel, each with its own row reader and buffers;
+    // the shared state is read-only, so the result is the same as decimating serially
+    private ImageBuffer decimate(Supplier<IntRows> rowsFactory, int w, int h, int steps) {
+        int f = 1 << steps;
+        int lw = levelSize(w, steps);
+        int lh = levelSize(h, steps);
+
+        boolean gray8 = bpp == BasicHDU.BITPIX_BYTE;
+        byte[] out8 = gray8 ? new byte[lw * lh] : null;
+        short[] out16 = gray8 ? null : new short[lw * lh];
+
+        int bands = Math.min(lh, 4 * ForkJoinPool.getCommonPoolParallelism());
+        IntStream.range(0, bands).parallel().forEach(band -> {
+            IntRows rows = rowsFactory.get();
+            int[] row = new int[w];
+            long[] sum = new long[lw];
+            for (int oy = band * lh / bands, end = (band + 1) * lh / bands; oy < end; oy++) {
+                int y0 = oy * f;
+                int y1 = Math.min(y0 + f, h);
+                for (int y = y0; y < y1; y++) {
+                    rows.getRow(y, row);
+                    for (int x = 0; x < w; x++)
+                        sum[x >> steps] += row[x];
+                }
+
+                int line = oy * lw;
+                for (int ox = 0; ox < lw; ox++) {
+                    int n = (Math.min((ox + 1) * f, w) - ox * f) * (y1 - y0);
+                    int v = (int) (sum[ox] / n);
+                    if (gray8)
+                        out8[line + ox] = (byte) v;
+                    else
+                        out16[line + ox] = (short) v;
+                    sum[ox] = 0;
+                }
+            }
+        });
+        return gray8 ? new ImageBuffer(lw, lh, ImageBuffer.Format.Gray8, ByteBuffer.wrap(out8)) :
+                new ImageBuffer(lw, lh, ImageBuffer.Format.Gray16, ShortBuffer.wrap(out16));
+    }
+
+    private static void getBufferRow(ImageBuffer ib, int y, int[] row) {
+        int line = y * ib.width;
+        if (ib.buffer instanceof ShortBuffer) {
+            ShortBuffer b = (ShortBuffer) ib.buffer;
+            for (int x = 0; x < ib.width; x++)
+                row[x] = b.get(line + x) & 0xFFFF;
+        } else {
+            ByteBuffer b = (ByteBuffer) ib.buffer;
+            for (int x = 0; x < ib.width; x++)
+                row[x] = b.get(line + x) & 0xFF;
+        }
     }
 
     private static String getHeaderAsXML(Header header) {
@@ -0,0 +1,404 @@
+package org.helioviewer.jhv.view.fits;
+
+import java.awt.EventQueue;
+import java.lang.ref.SoftReference;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.annotation.Nullable;
+
+import org.helioviewer.jhv.base.Pair;
+import org.helioviewer.jhv.imagedata.ImageBuffer;
+import org.helioviewer.jhv.imagedata.ImageData;
+import org.helioviewer.jhv.imagedata.SubImage;
+import org.helioviewer.jhv.io.APIRequest;
+import org.helioviewer.jhv.layers.Movie;
+import org.helioviewer.jhv.log.Log;
+import org.helioviewer.jhv.metadata.HelioviewerMetaData;
+import org.helioviewer.jhv.metadata.MetaData;
+import org.helioviewer.jhv.metadata.XMLMetaDataContainer;
+import org.helioviewer.jhv.position.Position;
+import org.helioviewer.jhv.threads.JHVThread;
+import org.helioviewer.jhv.time.JHVDate;
+import org.helioviewer.jhv.view.BaseView;
+import org.helioviewer.jhv.view.View;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+
+// Many FITS files of one dataset as one time-ordered movie, frames are decoded in the background
+// into an LRU bounded in bytes and shared by all series; the levels of a frame are taken from its
+// FITSImage, which is kept while memory allows
+public class FITSSeriesView extends BaseView {
+
+    private static final int NUM_WORKERS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+    private static final ExecutorService executor = Executors.newFixedThreadPool(NUM_WORKERS, new JHVThread.NamedThreadFactory("FITS Series Decoder"));
+    private static final int PREFETCH_FRAMES = 2 * NUM_WORKERS;
+
+    private static final Cache<FrameKey, Frame> cache = CacheBuilder.newBuilder()
+            .maximumWeight(Runtime.getRuntime().maxMemory() / 4)
+            .weigher((FrameKey k, Frame v) -> v.weight())
+            .removalListener((RemovalNotification<FrameKey, Frame> r) -> {
+                FrameKey k = r.getKey();
+                if (k != null)
+                    k.view.setCached(frame(k.key), -1);
+            })
+            .build();
+
+    private final URI[] uris;
+    private final JHVDate[] dates;
+    private final AtomicBoolean[] cacheStatus;
+    private final AtomicIntegerArray cachedLevels;
+    private final AtomicReferenceArray<SoftReference<FITSImage>> images;
+    private final Object[] imageLocks;
+
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean isAbolished;
+    private volatile int targetFrame;
+    private long shownKey = -1;
+    private Position lastViewpoint;
+
+    private static class Frame {
+
+        final ImageBuffer imageBuffer;
+        final float[] lut;
+
+        Frame(ImageBuffer _imageBuffer, float[] _lut) {
+            imageBuffer = _imageBuffer;
+            lut = _lut;
+        }
+
+        int weight() {
+            return imageBuffer.width * imageBuffer.height * imageBuffer.format.bytes + (lut == null ? 0 : 4 * lut.length);
+        }
+
+    }
+
+    private static class FrameKey {
+
+        final FITSSeriesView view;
+        final long key;
+
+        FrameKey(FITSSeriesView _view, long _key) {
+            view = _view;
+            key = _key;
+        }
+
+        @Override
+        public boolean equals(Object o) { // same view instance
+            if (!(o instanceof FrameKey))
+                return false;
+            FrameKey k = (FrameKey) o;
+            return view == k.view && key == k.key;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(view) + Long.hashCode(key);
+        }
+
+    }
+
+    // one view per observatory, instrument, detector and measurement, a single file is a plain FITSView
+    public static List<View> create(List<URI> uris) throws Exception {
+        LinkedHashMap<String, List<Pair<URI, HelioviewerMetaData>>> groups = new LinkedHashMap<>();
+        for (URI u : uris) {
+            try {
+                HelioviewerMetaData m = new XMLMetaDataContainer(FITSImage.readXML(u)).getHVMetaData(0, false);
+                String group = m.getObservatory() + ' ' + m.getInstrument() + ' ' + m.getDetector() + ' ' + m.getMeasurement();
+                groups.computeIfAbsent(group, k -> new ArrayList<>()).add(new Pair<>(u, m));
+            } catch (Exception e) {
+                Log.warn("Skipping FITS " + u + ": " + e.getMessage());
+            }
+        }
+        if (groups.isEmpty())
+            throw new Exception("Could not read FITS series");
+
+        ArrayList<View> views = new ArrayList<>(groups.size());
+        for (List<Pair<URI, HelioviewerMetaData>> frames : groups.values())
+            views.add(frames.size() == 1 ? new FITSView(frames.get(0).a, null) : new FITSSeriesView(frames, null));
+        return views;
+    }
+
+    private FITSSeriesView(List<Pair<URI, HelioviewerMetaData>> frames, APIRequest _request) {
+        super(frames.get(0).a, _request);
+        frames.sort(Comparator.comparingLong(p -> p.b.getViewpoint().time.milli));
+
+        int n = frames.size();
+        uris = new URI[n];
+        dates = new JHVDate[n];
+        metaData = new MetaData[n];
+        cacheStatus = new AtomicBoolean[n];
+        cachedLevels = new AtomicIntegerArray(n);
+        images = new AtomicReferenceArray<>(n);
+        imageLocks = new Object[n];
+        for (int i = 0; i < n; i++) {
+            uris[i] = frames.get(i).a;
+            metaData[i] = frames.get(i).b;
+            dates[i] = metaData[i].getViewpoint().time;
+            cacheStatus[i] = new AtomicBoolean();
+            imageLocks[i] = new Object();
+        }
+        maxFrame = n - 1;
+    }
+
+    private static long key(int frame, int level) {
+        return (long) frame << 8 | level;
+    }
+
+    private static int frame(long key) {
+        return (int) (key >> 8);
+    }
+
+    @Nullable
+    private Frame getCached(long key) {
+        return cache.getIfPresent(new FrameKey(this, key));
+    }
+
+    private void setCached(int frame, int delta) {
+        cacheStatus[frame].set(cachedLevels.addAndGet(frame, delta) > 0);
+    }
+
+    private int getLevel(int frame, double pixFactor) {
+        MetaData m = metaData[frame];
+        int w = m.getPixelWidth();
+        int h = m.getPixelHeight();
+        return FITSImage.getLevel(h, FITSImage.getNumLevels(w, h), (int) (m.getPhysicalRegion().height * pixFactor + .5));
+    }
+
+    // opened once, the levels built so far stay with it
+    private FITSImage getImage(int frame) throws Exception {
+        synchronized (imageLocks[frame]) {
+            SoftReference<FITSImage> ref = images.get(frame);
+            FITSImage fits = ref == null ? null : ref.get();
+            if (fits == null) {
+                fits = new FITSImage(uris[frame]);
+                images.set(frame, new SoftReference<>(fits));
+            }
+            return fits;
+        }
+    }
+
+    @Nullable
+    private Frame decodeFrame(int frame, int level) {
+        try {
+            FITSImage fits = getImage(frame);
+            Frame f = new Frame(fits.getImageBuffer(Math.min(level, fits.numLevels - 1)), fits.getPhysicalLUT());
+            cache.put(new FrameKey(this, key(frame, level)), f);
+            setCached(frame, 1);
+            return f;
+        } catch (Exception e) {
+            Log.error("Could not read FITS " + uris[frame], e);
+        }
+        return null;
+    }
+
+    @Override
+    public void decode(Position viewpoint, double pixFactor, double factor) {
+        lastViewpoint = viewpoint;
+
+        int frame = targetFrame;
+        int level = Movie.isRecording() ? 0 : getLevel(frame, pixFactor);
+        Frame f = getCached(key(frame, level));
+        if (f == null && Movie.isRecording()) { // recording needs the frame now
+            try {
+                f = executor.submit(() -> decodeFrame(frame, level)).get();
+            } catch (Exception e) {
+                Log.error("Could not decode FITS " + uris[frame], e);
+            }
+        }
+
+        if (f != null)
+            show(frame, level, f);
+        else {
+            request(frame, level);
+            for (int l = 0; l < 32; l++) { // meanwhile, any other level of this frame
+                Frame other = getCached(key(frame, l));
+                if (other != null) {
+                    show(frame, l, other);
+                    break;
+                }
+            }
+        }
+        if (Movie.isPlaying())
+            prefetch(frame, level);
+
+        super.decode(viewpoint, pixFactor, factor);
+    }
+
+    private void show(int frame, int level, Frame f) {
+        long key = key(frame, level);
+        if (key == shownKey && imageData != null)
+            return;
+        shownKey = key;
+
+        MetaData m = metaData[frame];
+        int w = f.imageBuffer.width;
+        int h = f.imageBuffer.height;
+
+        ImageData data = new ImageData(f.imageBuffer);
+        data.setRegion(m.roiToRegion(new SubImage(0, 0, w, h, w, h), m.getPixelWidth() / (double) w, m.getPixelHeight() / (double) h));
+        data.setMetaData(m);
+        if (f.lut != null)
+            data.setPhysicalLUT(f.lut);
+        imageData = data;
+    }
+
+    private void request(int frame, int level) {
+        long key = key(frame, level);
+        if (!pending.add(key))
+            return;
+
+        executor.execute(() -> {
+            try {
+                if (!isAbolished && isWanted(frame) && getCached(key) == null)
+                    decodeFrame(frame, level);
+            } finally {
+                pending.remove(key);
+            }
+            EventQueue.invokeLater(() -> {
+                if (isAbolished || frame != targetFrame)
+                    return;
+                Frame f = getCached(key);
+                if (f != null && lastViewpoint != null) {
+                    show(frame, level, f);
+                    super.decode(lastViewpoint, 1, 1);
+                }
+            });
+        });
+    }
+
+    // look ahead in the direction of play, reflected at the ends when swinging as getNextTime
+    private void prefetch(int frame, int level) {
+        AnimationMode mode = Movie.getAnimationMode();
+        boolean swing = mode == AnimationMode.Swing || mode == AnimationMode.SwingDown;
+        int step = mode == AnimationMode.SwingDown ? -1 : 1;
+        for (int i = 1; i <= PREFETCH_FRAMES && maxFrame > 0; i++) {
+            int next = frame + i * step;
+            if (mode == AnimationMode.Loop)
+                next = Math.floorMod(next, maxFrame + 1);
+            else if (swing) {
+                next = Math.floorMod(next, 2 * maxFrame);
+                if (next > maxFrame)
+                    next = 2 * maxFrame - next;
+            } else if (next < 0 || next > maxFrame)
+                break;
+            if (getCached(key(next, level)) == null)
+                request(next, level);
+        }
+    }
+
+    // queued decodes left behind by a jump in time are dropped
+    private boolean isWanted(int frame) {
+        int d = Math.abs(frame - targetFrame);
+        return Math.min(d, maxFrame + 1 - d) <= PREFETCH_FRAMES;
+    }
+
+    @Override
+    public void abolish() {
+        isAbolished = true;
+        cache.asMap().keySet().removeIf(k -> k.view == this);
+        for (int i = 0; i < images.length(); i++)
+            images.set(i, null);
+    }
+
+    @Override
+    public boolean isComplete() {
+        return false; // show the decoded frames on the time slider
+    }
+
+    @Override
+    public AtomicBoolean getFrameCacheStatus(int frame) {
+        return cacheStatus[frame];
+    }
+
+    @Override
+    public int getCurrentFrameNumber() {
+        return targetFrame;
+    }
+
+    // to be accessed only from Layers
+    @Nullable
+    @Override
+    public JHVDate getNextTime(AnimationMode mode, int deltaT) {
+        int frame = targetFrame;
+        int next = frame + 1;
+        switch (mode) {
+            case Stop:
+                if (next > maxFrame) {
+                    return null;
+                }
+                break;
+            case Swing:
+                if (frame == maxFrame) {
+                    Movie.setAnimationMode(AnimationMode.SwingDown);
+                    return dates[frame - 1];
+                }
+                break;
+            case SwingDown:
+                if (frame == 0) {
+                    Movie.setAnimationMode(AnimationMode.Swing);
+                    return dates[1];
+                }
+                return dates[frame - 1];
+            default: // Loop
+                if (next > maxFrame) {
+                    return dates[0];
+                }
+        }
+        return dates[next];
+    }
+
+    @Override
+    public void setFrame(JHVDate time) {
+        targetFrame = getFrameNumber(time.milli);
+    }
+
+    private int getFrameNumber(long milli) {
+        int frame = -1;
+        long lastDiff, currentDiff = -Long.MAX_VALUE;
+        do {
+            lastDiff = currentDiff;
+            currentDiff = dates[++frame].milli - milli;
+        } while (currentDiff < 0 && frame < maxFrame);
+        return -lastDiff < currentDiff ? frame - 1 : frame;
+    }
+
+    @Override
+    public JHVDate getFrameTime(int frame) {
+        if (frame < 0) {
+            frame = 0;
+        } else if (frame > maxFrame) {
+            frame = maxFrame;
+        }
+        return dates[frame];
+    }
+
+    @Override
+    public JHVDate getFrameTime(JHVDate time) {
+        return dates[getFrameNumber(time.milli)];
+    }
+
+    @Override
+    public MetaData getMetaData(JHVDate time) {
+        return metaData[getFrameNumber(time.milli)];
+    }
+
+    @Override
+    public String getXMLMetaData() throws Exception {
+        return FITSImage.readXML(uris[targetFrame]);
+    }
+
+}
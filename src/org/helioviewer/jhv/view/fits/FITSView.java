@@ -1,33 +1,92 @@
 package org.helioviewer.jhv.view.fits;
 
+import java.awt.EventQueue;
 import java.net.URI;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import org.helioviewer.jhv.imagedata.ImageBuffer;
+import org.helioviewer.jhv.imagedata.ImageData;
 import org.helioviewer.jhv.imagedata.SubImage;
 import org.helioviewer.jhv.io.APIRequest;
+import org.helioviewer.jhv.layers.Movie;
 import org.helioviewer.jhv.metadata.HelioviewerMetaData;
 import org.helioviewer.jhv.metadata.XMLMetaDataContainer;
+import org.helioviewer.jhv.position.Position;
+import org.helioviewer.jhv.threads.JHVThread;
 import org.helioviewer.jhv.view.BaseView;
 
 public class FITSView extends BaseView {
 
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(new JHVThread.NamedThreadFactory("FITS Decoder"));
+    private static final int PREVIEW_SIZE = 1024;
+
     private final String xml;
+    private final FITSImage fits;
+
+    private int currentLevel;
+    private int pendingLevel = -1;
 
     public FITSView(URI _uri, APIRequest _request) throws Exception {
         super(_uri, _request);
 
-        FITSImage fits = new FITSImage(uri);
-        if (fits.imageData == null)
-            throw new Exception("Could not read FITS: " + uri);
-
+        fits = new FITSImage(uri);
         xml = fits.xml;
         HelioviewerMetaData m = new XMLMetaDataContainer(xml).getHVMetaData(0, false);
         metaData[0] = m;
 
-        int w = m.getPixelWidth();
-        int h = m.getPixelHeight();
-        imageData = fits.imageData;
-        imageData.setRegion(m.roiToRegion(new SubImage(0, 0, w, h, w, h), 1, 1));
-        imageData.setMetaData(m);
+        // something to show until the viewport asks for more
+        int level = 0;
+        while (level < fits.numLevels - 1 &&
+                Math.max(FITSImage.levelSize(fits.width, level), FITSImage.levelSize(fits.height, level)) > PREVIEW_SIZE)
+            level++;
+        currentLevel = level;
+        imageData = createImageData(level, fits.getImageBuffer(level));
+    }
+
+    private ImageData createImageData(int level, ImageBuffer imageBuffer) {
+        HelioviewerMetaData m = (HelioviewerMetaData) metaData[0];
+        int w = imageBuffer.width;
+        int h = imageBuffer.height;
+
+        ImageData data = new ImageData(imageBuffer);
+        data.setRegion(m.roiToRegion(new SubImage(0, 0, w, h, w, h), fits.width / (double) w, fits.height / (double) h));
+        data.setMetaData(m);
+        float[] lut = fits.getPhysicalLUT();
+        if (lut != null)
+            data.setPhysicalLUT(lut);
+        return data;
+    }
+
+    @Override
+    public void decode(Position viewpoint, double pixFactor, double factor) {
+        int level = Movie.isRecording() ? 0 : fits.getLevel((int) (metaData[0].getPhysicalRegion().height * pixFactor + .5));
+        if (level != currentLevel) {
+            ImageBuffer cached = fits.getCachedLevel(level);
+            if (cached != null || Movie.isRecording()) { // recording needs the frame now
+                currentLevel = level;
+                imageData = createImageData(level, cached == null ? fits.getImageBuffer(level) : cached);
+            } else if (level != pendingLevel) {
+                pendingLevel = level;
+                executor.execute(() -> {
+                    ImageBuffer imageBuffer = fits.getImageBuffer(level);
+                    EventQueue.invokeLater(() -> setLevel(level, imageBuffer));
+                });
+            }
+        }
+        super.decode(viewpoint, pixFactor, factor);
+    }
+
+    private void setLevel(int level, ImageBuffer imageBuffer) {
+        if (level != pendingLevel) // superseded
+            return;
+        pendingLevel = -1;
+        currentLevel = level;
+
+        Position viewpoint = imageData.getViewpoint();
+        imageData = createImageData(level, imageBuffer);
+        if (viewpoint != null)
+            super.decode(viewpoint, 1, 1);
     }
 
     @Override
@@ -0,0 +1,137 @@
+package org.helioviewer.jhv.view.j2k;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+
+import org.helioviewer.jhv.Settings;
+import org.helioviewer.jhv.imagedata.ImageBuffer;
+import org.helioviewer.jhv.view.j2k.image.DecodeParams;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+// Process-wide cache of decoded frames, bounded in bytes; the pixels live in direct buffers outside the heap.
+// Evicted buffers may still be displayed, so they are not reused and the bound leaves room for them
+public class DecodeCache {
+
+    private static final long MAX_SIZE = initMaxSize();
+    private static final AtomicInteger nextViewId = new AtomicInteger();
+
+    private static final Cache<Key, ImageBuffer> cache = CacheBuilder.newBuilder()
+            .maximumWeight(MAX_SIZE)
+            .weigher((Key k, ImageBuffer v) -> v.width * v.height * v.format.bytes)
+            .recordStats()
+            .build();
+
+    private static long initMaxSize() {
+        long size = 1024;
+        try {
+            size = Long.parseLong(Settings.getProperty("cache.decoded.size"));
+        } catch (Exception ignore) {
+        }
+        // once direct memory runs short, each allocation calls System.gc()
+        return Math.min(size * 1024 * 1024, getMaxDirectMemory() / 4);
+    }
+
+    // limited by default to the size of the heap
+    private static long getMaxDirectMemory() {
+        long max = Runtime.getRuntime().maxMemory();
+        try {
+            for (String arg : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+                if (arg.startsWith("-XX:MaxDirectMemorySize="))
+                    max = parseSize(arg.substring(arg.indexOf('=') + 1));
+            }
+        } catch (Exception ignore) {
+        }
+        return max;
+    }
+
+    private static long parseSize(String size) {
+        String s = size.toLowerCase(Locale.ENGLISH);
+        long unit = 1;
+        switch (s.charAt(s.length() - 1)) {
+            case 'k':
+                unit = 1024;
+                break;
+            case 'm':
+                unit = 1024 * 1024;
+                break;
+            case 'g':
+                unit = 1024 * 1024 * 1024;
+                break;
+        }
+        return Long.parseLong(unit == 1 ? s : s.substring(0, s.length() - 1)) * unit;
+    }
+
+    // keys don't hold on to the views
+    static int newViewId() {
+        return nextViewId.incrementAndGet();
+    }
+
+    @Nullable
+    static ImageBuffer get(J2KView view, DecodeParams params) {
+        return cache.getIfPresent(new Key(view.decodeId, params));
+    }
+
+    static boolean contains(J2KView view, DecodeParams params) {
+        return cache.asMap().containsKey(new Key(view.decodeId, params)); // does not count as hit
+    }
+
+    static void put(J2KView view, DecodeParams params, ImageBuffer imageBuffer) {
+        if (imageBuffer.buffer.isDirect())
+            cache.put(new Key(view.decodeId, params), imageBuffer);
+    }
+
+    static void invalidate(J2KView view) {
+        cache.asMap().keySet().removeIf(k -> k.viewId == view.decodeId);
+    }
+
+    public static void clear() {
+        cache.invalidateAll();
+    }
+
+    public static long getSize() {
+        long size = 0;
+        for (ImageBuffer v : cache.asMap().values())
+            size += v.width * v.height * v.format.bytes;
+        return size;
+    }
+
+    public static long getMaxSize() {
+        return MAX_SIZE;
+    }
+
+    public static CacheStats getStats() {
+        return cache.stats();
+    }
+
+    private static class Key {
+
+        final int viewId;
+        final DecodeParams params;
+
+        Key(int _viewId, DecodeParams _params) {
+            viewId = _viewId;
+            params = _params;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key))
+                return false;
+            Key k = (Key) o;
+            return viewId == k.viewId && params.equals(k.params);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * viewId + params.hashCode();
+        }
+
+    }
+
+}
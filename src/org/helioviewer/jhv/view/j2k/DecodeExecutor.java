@@ -1,34 +1,92 @@
 package org.helioviewer.jhv.view.j2k;
 
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.ExecutorService;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
-import org.helioviewer.jhv.threads.JHVThread;
 import org.helioviewer.jhv.view.j2k.image.DecodeParams;
 
 class DecodeExecutor {
 
-    private final ArrayBlockingQueue<Runnable> blockingQueue = new ArrayBlockingQueue<>(1);
+    // Kakadu parallelizes each decode internally, keep a few workers for look-ahead
+    static final int NUM_WORKERS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+
+    private final PriorityBlockingQueue<Runnable> queue = new PriorityBlockingQueue<>();
     // no need to intercept exceptions
-    private final ExecutorService executor = new ThreadPoolExecutor(1, 1, 10000L, TimeUnit.MILLISECONDS, blockingQueue,
-            new JHVThread.NamedThreadFactory("Decoder"),
-            new ThreadPoolExecutor.DiscardPolicy());
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(NUM_WORKERS, NUM_WORKERS, 10000L, TimeUnit.MILLISECONDS, queue, DecoderThread::new);
+
+    private final Set<DecodeParams> prefetching = ConcurrentHashMap.newKeySet();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong(-1);
 
     void decode(J2KView view, DecodeParams decodeParams) {
-        blockingQueue.poll();
-        executor.execute(new J2KDecoder(view, decodeParams, false));
+        queue.removeIf(r -> ((J2KDecoder) r).priority); // only the latest request matters
+        executor.execute(new J2KDecoder(this, view, decodeParams, true, sequence.getAndIncrement()));
+    }
+
+    // speculatively decode into the cache; anything queued and not wanted anymore is dropped
+    void prefetch(J2KView view, List<DecodeParams> paramsList) {
+        queue.removeIf(r -> {
+            J2KDecoder d = (J2KDecoder) r;
+            if (!d.priority && !paramsList.contains(d.decodeParams)) {
+                prefetching.remove(d.decodeParams);
+                return true;
+            }
+            return false;
+        });
+
+        for (DecodeParams params : paramsList) {
+            if (!DecodeCache.contains(view, params) && prefetching.add(params))
+                executor.execute(new J2KDecoder(this, view, params, false, sequence.getAndIncrement()));
+        }
+    }
+
+    void prefetchDone(DecodeParams params) {
+        prefetching.remove(params);
+    }
+
+    // workers may finish out of order, never deliver an older request after a newer one
+    boolean deliver(long seq) {
+        long last;
+        do {
+            last = delivered.get();
+            if (seq < last)
+                return false;
+        } while (!delivered.compareAndSet(last, seq));
+        return true;
     }
 
     void abolish() {
         try {
-            blockingQueue.poll();
-            executor.execute(new J2KDecoder(null, null, true));
+            queue.clear();
             executor.shutdown();
             while (!executor.awaitTermination(1000L, TimeUnit.MILLISECONDS)) ;
         } catch (Exception ignore) {
         }
+        prefetching.clear();
+    }
+
+    // Kakadu state is thread-confined, release it on the thread which created it
+    private static class DecoderThread extends Thread {
+
+        DecoderThread(Runnable r) {
+            super(r, "Decoder");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                super.run();
+            } finally {
+                J2KDecoder.abolish();
+            }
+        }
+
     }
 
 }
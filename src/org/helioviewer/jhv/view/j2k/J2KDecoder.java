@@ -16,39 +16,49 @@ import kdu_jni.Kdu_quality_limiter;
 import kdu_jni.Kdu_region_compositor;
 import kdu_jni.Kdu_thread_env;
 
+import org.helioviewer.jhv.base.BufferUtils;
 import org.helioviewer.jhv.imagedata.ImageBuffer;
 import org.helioviewer.jhv.imagedata.SubImage;
 import org.helioviewer.jhv.view.j2k.image.DecodeParams;
 
 import org.lwjgl.system.MemoryUtil;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
-
-class J2KDecoder implements Runnable {
+class J2KDecoder implements Runnable, Comparable<J2KDecoder> {
 
     // Maximum of samples to process per rendering iteration
     private static final int MAX_RENDER_SAMPLES = 256 * 1024;
     // The amount of cache to allocate to each codestream
     private static final int CODESTREAM_CACHE_THRESHOLD = 1024 * 1024;
     private static final int[] firstComponent = {0};
+    // the gray value is the low byte of each native 32-bit sample
+    private static final long LOW_BYTE = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN ? 0 : 3;
 
-    private static final ThreadLocal<Cache<DecodeParams, ImageBuffer>> decodeCache = ThreadLocal.withInitial(() -> CacheBuilder.newBuilder().softValues().build());
     private static final ThreadLocal<Kdu_thread_env> localThread = ThreadLocal.withInitial(J2KDecoder::createThreadEnv);
     private static final ThreadLocal<Kdu_region_compositor> localCompositor = new ThreadLocal<>();
 
+    private final DecodeExecutor executor;
     private final J2KView view;
-    private final DecodeParams decodeParams;
-    private final boolean abolish;
+    final DecodeParams decodeParams;
+    final boolean priority;
+    private final long seq;
 
-    J2KDecoder(J2KView _view, DecodeParams _decodeParams, boolean _abolish) {
+    J2KDecoder(DecodeExecutor _executor, J2KView _view, DecodeParams _decodeParams, boolean _priority, long _seq) {
+        executor = _executor;
         view = _view;
         decodeParams = _decodeParams;
-        abolish = _abolish;
+        priority = _priority;
+        seq = _seq;
+    }
+
+    @Override
+    public int compareTo(J2KDecoder o) { // priority first, then in order of submission
+        if (priority != o.priority)
+            return priority ? -1 : 1;
+        return Long.compare(seq, o.seq);
     }
 
     private ImageBuffer decodeLayer(DecodeParams params) throws KduException {
-        ImageBuffer imageBuffer = decodeCache.get().getIfPresent(decodeParams);
+        ImageBuffer imageBuffer = DecodeCache.get(view, decodeParams);
         if (imageBuffer != null)
             return imageBuffer;
 
@@ -85,7 +95,8 @@ class J2KDecoder implements Runnable {
         long addr = compositorBuf.Get_buf(srcStride, false);
 
         ImageBuffer.Format format = numComponents < 3 ? ImageBuffer.Format.Gray8 : ImageBuffer.Format.ARGB32;
-        byte[] byteBuffer = new byte[actualWidth * actualHeight * format.bytes];
+        ByteBuffer byteBuffer = BufferUtils.newByteBuffer(actualWidth * actualHeight * format.bytes);
+        long dstAddr = MemoryUtil.memAddress(byteBuffer);
 
         Kdu_dims newRegion = new Kdu_dims();
         while (compositor.Process(MAX_RENDER_SAMPLES, newRegion)) {
@@ -104,38 +115,34 @@ class J2KDecoder implements Runnable {
 
             if (numComponents < 3) {
                 for (int row = 0; row < newHeight; row++, dstIdx += actualWidth, srcIdx += srcStride[0]) {
+                    long src = addr + 4L * srcIdx + LOW_BYTE, dst = dstAddr + dstIdx;
                     for (int col = 0; col < newWidth; ++col) {
-                        byteBuffer[dstIdx + col] = MemoryUtil.memGetByte(addr + 4 * (srcIdx + col));
+                        MemoryUtil.memPutByte(dst + col, MemoryUtil.memGetByte(src + 4L * col));
                     }
                 }
+            } else if (newWidth == actualWidth && srcStride[0] == actualWidth) { // contiguous
+                MemoryUtil.memCopy(addr, dstAddr + 4L * dstIdx, 4L * newWidth * newHeight);
             } else {
                 for (int row = 0; row < newHeight; row++, dstIdx += actualWidth, srcIdx += srcStride[0]) {
-                    for (int col = 0; col < newWidth; ++col) {
-                        for (int idx = 0; idx < 4; ++idx)
-                            byteBuffer[4 * (dstIdx + col) + idx] = MemoryUtil.memGetByte(addr + 4 * (srcIdx + col) + idx);
-                    }
+                    MemoryUtil.memCopy(addr + 4L * srcIdx, dstAddr + 4L * dstIdx, 4L * newWidth);
                 }
             }
         }
         compositor.Remove_ilayer(ilayer, true);
 
-        imageBuffer = new ImageBuffer(actualWidth, actualHeight, format, ByteBuffer.wrap(byteBuffer).order(ByteOrder.nativeOrder()));
+        imageBuffer = new ImageBuffer(actualWidth, actualHeight, format, byteBuffer);
         if (decodeParams.complete) {
-            decodeCache.get().put(decodeParams, imageBuffer);
+            DecodeCache.put(view, decodeParams, imageBuffer);
         }
         return imageBuffer;
     }
 
     @Override
     public void run() {
-        if (abolish) {
-            abolish();
-            return;
-        }
-
         try {
             ImageBuffer data = decodeLayer(decodeParams);
-            view.setDataFromDecoder(decodeParams, data);
+            if (priority && executor.deliver(seq))
+                view.setDataFromDecoder(decodeParams, data);
         } catch (Exception e) { // reboot the compositor
             Kdu_region_compositor krc = localCompositor.get();
             if (krc != null)
@@ -143,6 +150,9 @@ class J2KDecoder implements Runnable {
             localCompositor.set(null);
             localThread.remove();
             e.printStackTrace();
+        } finally {
+            if (!priority)
+                executor.prefetchDone(decodeParams);
         }
     }
 
@@ -163,7 +173,7 @@ class J2KDecoder implements Runnable {
         try {
             Kdu_thread_env kte = new Kdu_thread_env();
             kte.Create();
-            int numThreads = Kdu_global.Kdu_get_num_processors();
+            int numThreads = Math.max(1, Kdu_global.Kdu_get_num_processors() / DecodeExecutor.NUM_WORKERS);
             for (int i = 1; i < numThreads; i++)
                 kte.Add_thread();
             // System.out.println(">>>> Kdu_thread_env create " + kte);
@@ -195,7 +205,7 @@ class J2KDecoder implements Runnable {
         }
     }
 
-    private static void abolish() {
+    static void abolish() {
         try {
             Kdu_region_compositor krc = localCompositor.get();
             if (krc != null) {
@@ -207,7 +217,6 @@ class J2KDecoder implements Runnable {
                 kte.Destroy();
                 localThread.set(null);
             }
-            decodeCache.get().invalidateAll();
         } catch (KduException e) {
             e.printStackTrace();
         }
@@ -1,11 +1,21 @@
 package org.helioviewer.jhv.view.j2k;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BooleanSupplier;
 
 import kdu_jni.KduException;
 
+import org.helioviewer.jhv.Settings;
 import org.helioviewer.jhv.gui.UITimer;
 import org.helioviewer.jhv.log.Log;
+import org.helioviewer.jhv.threads.JHVThread;
 import org.helioviewer.jhv.view.j2k.cache.CacheStatus;
 import org.helioviewer.jhv.view.j2k.concurrency.BooleanSignal;
 import org.helioviewer.jhv.view.j2k.image.ReadParams;
@@ -20,6 +30,20 @@ import org.helioviewer.jhv.view.j2k.io.jpip.JPIPStream;
 
 class J2KReader implements Runnable {
 
+    // Number of outstanding requests on the connection while caching multiple frames
+    private static final int PIPELINE_DEPTH = getSetting("jpip.pipeline");
+
+    // Number of channels caching multiple frames in parallel; with more than one, the main channel is reserved for priority requests
+    private static final int NUM_CHANNELS = getSetting("jpip.channels");
+
+    private static int getSetting(String key) {
+        try {
+            return Math.max(1, Integer.parseInt(Settings.getProperty(key)));
+        } catch (Exception e) {
+            return 1;
+        }
+    }
+
     private final BooleanSignal readerSignal = new BooleanSignal(false);
 
     private final J2KView view;
@@ -30,9 +54,21 @@ class J2KReader implements Runnable {
     private volatile boolean isAbolished;
 
     private JPIPSocket socket;
+    private volatile boolean isReading;
+
+    private final AtomicReferenceArray<JPIPSocket> channels = new AtomicReferenceArray<>(NUM_CHANNELS); // closed from the abolish thread
+    private final ExecutorService[] channelExecutors = new ExecutorService[NUM_CHANNELS];
+    private final AtomicInteger cachingGeneration = new AtomicInteger();
+    private final AtomicInteger activeChannels = new AtomicInteger();
+    private final AtomicInteger channelRetries = new AtomicInteger();
+    private volatile int cachingLevel = -1;
 
     J2KReader(J2KView _view) throws KduException, IOException {
         view = _view;
+        if (NUM_CHANNELS > 1) {
+            for (int i = 0; i < NUM_CHANNELS; i++)
+                channelExecutors[i] = Executors.newSingleThreadExecutor(new JHVThread.NamedThreadFactory("Reader " + i + ' ' + view.getName()));
+        }
 
         cache = view.getJPIPCache();
         socket = new JPIPSocket(view.getURI(), cache);
@@ -62,6 +98,25 @@ class J2KReader implements Runnable {
                 e.printStackTrace();
             }
         }
+
+        if (NUM_CHANNELS > 1) {
+            cachingGeneration.incrementAndGet();
+            for (int i = 0; i < NUM_CHANNELS; i++) {
+                JPIPSocket channel = channels.get(i);
+                if (channel != null) {
+                    try {
+                        channel.close(); // try to unblock i/o
+                    } catch (IOException ignore) {
+                    }
+                }
+                channelExecutors[i].shutdownNow();
+            }
+            try {
+                for (ExecutorService executor : channelExecutors)
+                    executor.awaitTermination(1000L, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ignore) {
+            }
+        }
     }
 
     void signalReader(ReadParams params) {
@@ -100,16 +155,179 @@ class J2KReader implements Runnable {
         }
     }
 
+    // wait=yes, such that the server doesn't preempt a pipelined request with the next one
     private static String createQuery(String fSiz, int layer) {
-        return JPIPQuery.create(JPIPConstants.MAX_REQUEST_LEN, "stream", String.valueOf(layer), "fsiz", fSiz + ",closest", "rsiz", fSiz, "roff", "0,0");
+        return JPIPQuery.create(JPIPConstants.MAX_REQUEST_LEN, "stream", String.valueOf(layer), "fsiz", fSiz + ",closest", "rsiz", fSiz, "roff", "0,0", "wait", "yes");
     }
 
-    private static String[] createMultiQuery(String fSiz, int numFrames) {
-        String[] stepQuerys = new String[numFrames];
-        for (int lpi = 0; lpi < numFrames; lpi++) {
+    private static void createMultiQuery(String[] stepQuerys, String fSiz) {
+        for (int lpi = 0; lpi < stepQuerys.length; lpi++) {
             stepQuerys[lpi] = createQuery(fSiz, lpi);
         }
-        return stepQuerys;
+    }
+
+    // first incomplete step, starting from the current one, which is not waiting for a response
+    private static int nextStep(String[] stepQuerys, boolean[] inFlight, int currentStep) {
+        int len = stepQuerys.length;
+        for (int i = 0; i < len; i++) {
+            int step = (currentStep + i) % len;
+            if (stepQuerys[step] != null && !inFlight[step])
+                return step;
+        }
+        return -1;
+    }
+
+    private void stepDone(CacheStatus cacheStatus, ReadParams params, int step, int level, boolean downloadComplete, boolean singleFrame) throws KduException {
+        if (downloadComplete) {
+            cacheStatus.setFrameComplete(view.getSource(), step, level); // tell the cache status
+            if (singleFrame)
+                view.signalDecoderFromReader(params); // refresh current image
+        } else {
+            cacheStatus.setFramePartial(view.getSource(), step); // tell the cache status
+        }
+        UITimer.cacheStatusChanged();
+    }
+
+    // send queries until everything is complete or caching is interrupted, returns whether interrupted
+    private boolean readSteps(JPIPSocket channel, String[] stepQuerys, int currentStep, int depth, ReadParams params, boolean singleFrame,
+                              BooleanSupplier interrupted) throws KduException, IOException {
+        CacheStatus cacheStatus = view.getCacheStatus();
+        int level = params.decodeParams.resolution.level;
+
+        int totalSteps = 0;
+        for (String query : stepQuerys)
+            if (query != null)
+                totalSteps++;
+
+        ArrayDeque<Integer> pipeline = new ArrayDeque<>(depth);
+        boolean[] inFlight = new boolean[stepQuerys.length];
+        int completeSteps = 0;
+        boolean stopReading = false;
+        while (completeSteps < totalSteps) {
+            // keep several requests outstanding on the connection, responses come back in order
+            while (!stopReading && pipeline.size() < depth) {
+                int step = nextStep(stepQuerys, inFlight, currentStep);
+                if (step < 0)
+                    break;
+                // select next query based on strategy
+                currentStep = singleFrame ? step : step + 1;
+
+                if (JPIPCacheManager.get(view.getCacheKey(step), level, cache, step)) {
+                    completeSteps++;
+                    stepQuerys[step] = null;
+                    stepDone(cacheStatus, params, step, level, true, singleFrame);
+                    // check whether caching has to be interrupted
+                    stopReading = interrupted.getAsBoolean();
+                } else {
+                    channel.send(stepQuerys[step]);
+                    inFlight[step] = true;
+                    pipeline.add(step);
+                }
+            }
+
+            Integer step = pipeline.poll();
+            if (step == null) // interrupted and drained
+                break;
+            inFlight[step] = false;
+
+            boolean downloadComplete = false;
+            JPIPStream stream;
+            JPIPResponse res = channel.receive(cache, step);
+            if (res.isResponseComplete() && (stream = cache.get(step)) != null) { // downloaded
+                downloadComplete = true;
+                JPIPCacheManager.put(view.getCacheKey(step), level, stream);
+                // mark query as complete
+                completeSteps++;
+                stepQuerys[step] = null;
+            }
+            stepDone(cacheStatus, params, step, level, downloadComplete, singleFrame);
+
+            // check whether caching has to be interrupted, already requested frames are still collected
+            if (interrupted.getAsBoolean()) {
+                stopReading = true;
+            }
+        }
+        return stopReading;
+    }
+
+    // stripe the frames not yet complete across the caching channels
+    private void startCaching(ReadParams params, int startStep) {
+        int level = params.decodeParams.resolution.level;
+        if (level == cachingLevel && activeChannels.get() > 0) // already on it
+            return;
+
+        int generation = cachingGeneration.incrementAndGet();
+        cachingLevel = level;
+        for (int i = 0; i < NUM_CHANNELS; i++) {
+            int k = i;
+            activeChannels.incrementAndGet();
+            view.setDownloading(true);
+            channelExecutors[k].execute(() -> {
+                try {
+                    cacheStripe(k, generation, params, startStep);
+                } finally {
+                    if (activeChannels.decrementAndGet() == 0 && !isReading)
+                        view.setDownloading(false);
+                }
+            });
+        }
+    }
+
+    private void cacheStripe(int k, int generation, ReadParams params, int startStep) {
+        CacheStatus cacheStatus = view.getCacheStatus();
+        int level = params.decodeParams.resolution.level;
+        String fSiz = params.decodeParams.resolution.width + "," + params.decodeParams.resolution.height;
+
+        String[] stepQuerys = new String[view.getMaximumFrameNumber() + 1];
+        for (int lpi = k; lpi < stepQuerys.length; lpi += NUM_CHANNELS) {
+            AtomicBoolean status = cacheStatus.getFrameStatus(lpi, level);
+            if (status == null || !status.get())
+                stepQuerys[lpi] = createQuery(fSiz, lpi);
+        }
+
+        try {
+            JPIPSocket channel = channels.get(k);
+            if (channel == null || channel.isClosed()) {
+                channel = new JPIPSocket(view.getURI(), cache);
+                channels.set(k, channel);
+            }
+            readSteps(channel, stepQuerys, startStep, PIPELINE_DEPTH, params, false,
+                    () -> generation != cachingGeneration.get() || isAbolished || Thread.interrupted());
+
+            if (cacheStatus.isComplete(0)) {
+                closeChannel(k);
+                if (!readerSignal.isSignaled())
+                    readerSignal.signal(params); // wake the main channel to finish
+            }
+        } catch (KduException | IOException e) {
+            closeChannel(k);
+            if (generation == cachingGeneration.get() && !isAbolished) {
+                cachingLevel = -1;
+                if (channelRetries.getAndIncrement() < 13) {
+                    if (!readerSignal.isSignaled())
+                        readerSignal.signal(params); // signal to retry
+                } else
+                    Log.error("Retry limit reached: " + view.getURI()); // something may be terribly wrong
+            }
+        }
+    }
+
+    private void closeChannel(int k) {
+        JPIPSocket channel = channels.getAndSet(k, null);
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignore) {
+            }
+        }
+    }
+
+    private void closeSocket() {
+        view.setDownloading(false);
+        try {
+            socket.close();
+        } catch (IOException ignore) {
+        }
     }
 
     @Override
@@ -121,19 +339,16 @@ class J2KReader implements Runnable {
             ReadParams params;
             // wait for signal
             try {
-                view.setDownloading(false);
+                isReading = false;
+                view.setDownloading(activeChannels.get() > 0);
                 params = readerSignal.waitForSignal();
+                isReading = true;
                 view.setDownloading(true);
             } catch (InterruptedException e) {
                 continue;
             }
 
             try {
-                if (socket.isClosed()) {
-                    // System.out.println(">>> reconnect");
-                    socket = new JPIPSocket(view.getURI(), cache);
-                }
-
                 int frame = params.decodeParams.frame;
                 int level = params.decodeParams.resolution.level;
 
@@ -143,79 +358,45 @@ class J2KReader implements Runnable {
                     singleFrame = true;
                 }
 
-                // build query based on strategy
                 int currentStep;
-                String[] stepQuerys;
-                String fSiz = params.decodeParams.resolution.width + "," + params.decodeParams.resolution.height;
-                if (singleFrame) {
-                    stepQuerys = new String[]{createQuery(fSiz, frame)};
+                if (singleFrame)
                     currentStep = frame;
-                } else {
-                    stepQuerys = createMultiQuery(fSiz, numFrames);
-
+                else {
                     int partial = cacheStatus.getPartialUntil();
                     currentStep = partial < numFrames - 1 ? partial : frame;
                 }
 
-                // send queries until everything is complete or caching is interrupted
-                int completeSteps = 0;
-                boolean stopReading = false;
-                while (!stopReading && completeSteps < stepQuerys.length) {
-                    if (currentStep >= stepQuerys.length)
-                        currentStep = 0;
-
-                    // if query is already complete, go to next step
-                    if (stepQuerys[currentStep] == null) {
-                        currentStep++;
-                        continue;
+                // this channel stays reserved for the priority requests
+                if (!singleFrame && NUM_CHANNELS > 1) {
+                    // suicide if fully done, the caching channels close themselves
+                    if (cacheStatus.isComplete(0)) {
+                        closeSocket();
+                        return;
                     }
+                    startCaching(params, currentStep);
+                    continue;
+                }
 
-                    boolean downloadComplete = false;
-                    {
-                        long key = view.getCacheKey(currentStep);
-                        JPIPStream stream = JPIPCacheManager.get(key, level);
-                        if (stream != null) {
-                            downloadComplete = true;
-                            cache.put(currentStep, stream);
-                        } else {
-                            JPIPResponse res = socket.send(stepQuerys[currentStep], cache, currentStep);
-                            if (res.isResponseComplete() && (stream = cache.get(currentStep)) != null) { // downloaded
-                                downloadComplete = true;
-                                JPIPCacheManager.put(key, level, stream);
-                            }
-                        }
-                    }
-
-                    if (downloadComplete) {
-                        // mark query as complete
-                        completeSteps++;
-                        stepQuerys[currentStep] = null;
-
-                        cacheStatus.setFrameComplete(view.getSource(), currentStep, level); // tell the cache status
-                        if (singleFrame)
-                            view.signalDecoderFromReader(params); // refresh current image
-                    } else {
-                        cacheStatus.setFramePartial(view.getSource(), currentStep); // tell the cache status
-                    }
+                if (socket.isClosed()) {
+                    // System.out.println(">>> reconnect");
+                    socket = new JPIPSocket(view.getURI(), cache);
+                }
 
-                    UITimer.cacheStatusChanged();
+                // build query based on strategy
+                String[] stepQuerys = new String[numFrames];
+                String fSiz = params.decodeParams.resolution.width + "," + params.decodeParams.resolution.height;
+                if (singleFrame) {
+                    stepQuerys[frame] = createQuery(fSiz, frame);
+                } else {
+                    createMultiQuery(stepQuerys, fSiz);
+                }
 
-                    // select next query based on strategy
-                    if (!singleFrame)
-                        currentStep++;
+                boolean stopReading = readSteps(socket, stepQuerys, currentStep, singleFrame ? 1 : PIPELINE_DEPTH, params, singleFrame,
+                        () -> readerSignal.isSignaled() || Thread.interrupted());
 
-                    // check whether caching has to be interrupted
-                    if (readerSignal.isSignaled() || Thread.interrupted()) {
-                        stopReading = true;
-                    }
-                }
                 // suicide if fully done
                 if (cacheStatus.isComplete(0)) {
-                    view.setDownloading(false);
-                    try {
-                        socket.close();
-                    } catch (IOException ignore) {
-                    }
+                    closeSocket();
                     return;
                 }
 
@@ -3,6 +3,8 @@ package org.helioviewer.jhv.view.j2k;
 import java.awt.EventQueue;
 import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.annotation.Nullable;
@@ -18,7 +20,9 @@ import org.helioviewer.jhv.io.APIResponse;
 import org.helioviewer.jhv.layers.Movie;
 import org.helioviewer.jhv.log.Log;
 import org.helioviewer.jhv.metadata.MetaData;
+import org.helioviewer.jhv.metadata.MetaDataStore;
 import org.helioviewer.jhv.metadata.PixelBasedMetaData;
+import org.helioviewer.jhv.metadata.XMLMetaDataContainer;
 import org.helioviewer.jhv.position.Position;
 import org.helioviewer.jhv.time.JHVDate;
 import org.helioviewer.jhv.view.BaseView;
@@ -34,6 +38,7 @@ import org.helioviewer.jhv.view.j2k.kakadu.KakaduSource;
 public class J2KView extends BaseView {
 
     private static final int HIRES_CUTOFF = 1280;
+    private static final int PREFETCH_FRAMES = 2 * DecodeExecutor.NUM_WORKERS;
 
     private int targetFrame = 0;
     private int trueFrame = 0;
@@ -46,6 +51,9 @@ public class J2KView extends BaseView {
     private JPIPCache jpipCache;
 
     protected final CacheStatus cacheStatus;
+
+    final int decodeId = DecodeCache.newViewId();
+
     protected J2KReader reader;
 
     public J2KView(URI _uri, APIRequest _request, APIResponse _response) throws Exception {
@@ -82,7 +90,8 @@ public class J2KView extends BaseView {
             metaData = new MetaData[maxFrame + 1];
             dates = new JHVDate[maxFrame + 1];
 
-            kduSource.extractMetaData(metaData);
+            MetaDataStore.get(cacheKey, metaData);
+            XMLMetaDataContainer[] parsed = kduSource.extractMetaData(metaData);
             for (int i = 0; i <= maxFrame; i++) {
                 if (metaData[i] == null)
                     metaData[i] = new PixelBasedMetaData(256, 256, i); // tbd real size
@@ -100,6 +109,7 @@ public class J2KView extends BaseView {
                     }
                 }
             }
+            MetaDataStore.put(cacheKey, parsed);
 
             int[] lut = kduSource.getLUT();
             if (lut != null)
@@ -141,6 +151,7 @@ public class J2KView extends BaseView {
 
         new Thread(() -> {
             decoder.abolish();
+            DecodeCache.invalidate(this);
             if (reader != null) {
                 reader.abolish();
                 reader = null;
@@ -254,8 +265,51 @@ public class J2KView extends BaseView {
         DecodeParams decodeParams = getDecodeParams(viewpoint, targetFrame, pixFactor, factor);
         if (reader != null && !decodeParams.complete) {
             signalReader(decodeParams);
+            if (Movie.isBatch()) // only complete frames are exported
+                return;
         }
         decoder.decode(this, decodeParams);
+
+        if ((Movie.isPlaying() && !Movie.isRecording()) || Movie.isBatch())
+            prefetch(viewpoint, pixFactor, factor);
+        else // scrubbing or stopped, drop the look-ahead
+            decoder.prefetch(this, Collections.emptyList());
+    }
+
+    // decode the next frames in the direction of play, only those fully downloaded can be cached
+    private void prefetch(Position viewpoint, double pixFactor, double factor) {
+        ArrayList<DecodeParams> list = new ArrayList<>(PREFETCH_FRAMES);
+        AnimationMode mode = Movie.getAnimationMode();
+        int frame = targetFrame;
+        for (int i = 0; i < PREFETCH_FRAMES; i++) {
+            int next;
+            if (mode == AnimationMode.SwingDown) {
+                next = frame - 1;
+                if (next < 0) {
+                    mode = AnimationMode.Swing;
+                    next = Math.min(1, maxFrame);
+                }
+            } else {
+                next = frame + 1;
+                if (next > maxFrame) {
+                    if (mode == AnimationMode.Stop)
+                        break;
+                    else if (mode == AnimationMode.Swing) {
+                        mode = AnimationMode.SwingDown;
+                        next = Math.max(maxFrame - 1, 0);
+                    } else
+                        next = 0;
+                }
+            }
+            if (next == targetFrame)
+                break;
+            frame = next;
+
+            DecodeParams params = getDecodeParams(viewpoint, frame, pixFactor, factor);
+            if (params.complete)
+                list.add(params);
+        }
+        decoder.prefetch(this, list);
     }
 
     protected DecodeParams getDecodeParams(Position viewpoint, int frame, double pixFactor, double factor) {
@@ -338,6 +392,12 @@ public class J2KView extends BaseView {
         return cacheStatus.isComplete(currentLevel);
     }
 
+    @Override
+    public boolean isFrameComplete(int frame) {
+        AtomicBoolean status = cacheStatus.getFrameStatus(frame, 0);
+        return status != null && status.get();
+    }
+
     public ResolutionLevel getResolutionLevel(int frame, int level) {
         return cacheStatus.getResolutionSet(frame).getResolutionLevel(level);
     }
@@ -1,5 +1,7 @@
 package org.helioviewer.jhv.view.j2k.io.jpip;
 
+import java.nio.ByteBuffer;
+
 import javax.annotation.Nullable;
 
 import kdu_jni.KduException;
@@ -18,7 +20,8 @@ public class JPIPCache extends Kdu_cache {
         Add_to_databin(data.klassID, frame, data.binID, data.data, data.offset, data.length, data.isFinal, true, false);
     }
 
-    private JPIPStream scan(int frame) throws KduException {
+    // the scan position is kept by the cache, scans must not interleave
+    private synchronized JPIPStream scan(int frame) throws KduException {
         int flags = Kdu_global.KDU_CACHE_SCAN_START | Kdu_global.KDU_CACHE_SCAN_FIX_CODESTREAM;
         int[] klassID = new int[1];
         long[] codestreamID = {frame};
@@ -52,9 +55,20 @@ public class JPIPCache extends Kdu_cache {
         addToKdu(frame, seg);
     }
 
-    public void put(int frame, JPIPStream stream) throws KduException {
-        for (JPIPSegment seg : stream.segments)
-            addToKdu(frame, seg);
+    // segments as laid out by JPIPCacheManager, read without building intermediate objects
+    public void put(int frame, ByteBuffer record) throws KduException {
+        byte[] data = new byte[0];
+        while (record.hasRemaining()) {
+            int klassID = record.getInt();
+            long binID = record.getLong();
+            int offset = record.getInt();
+            int length = record.getInt();
+            boolean isFinal = record.get() != 0;
+            if (data.length < length)
+                data = new byte[length];
+            record.get(data, 0, length);
+            Add_to_databin(klassID, frame, binID, data, offset, length, isFinal, true, false);
+        }
     }
 
     @Nullable
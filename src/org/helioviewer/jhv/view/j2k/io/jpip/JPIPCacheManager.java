@@ -1,91 +1,347 @@
 package org.helioviewer.jhv.view.j2k.io.jpip;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
-import java.time.Duration;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import org.helioviewer.jhv.JHVDirectory;
+import org.helioviewer.jhv.JHVGlobals;
 import org.helioviewer.jhv.io.FileUtils;
+import org.helioviewer.jhv.log.Log;
 
-import org.ehcache.Cache;
-import org.ehcache.PersistentCacheManager;
-import org.ehcache.config.builders.CacheConfigurationBuilder;
-import org.ehcache.config.builders.CacheManagerBuilder;
-import org.ehcache.config.builders.ExpiryPolicyBuilder;
-import org.ehcache.config.builders.ResourcePoolsBuilder;
-import org.ehcache.expiry.ExpiryPolicy;
-import org.ehcache.config.units.EntryUnit;
-import org.ehcache.config.units.MemoryUnit;
-
+/*
+ * Persistent store of complete JPIP streams. Streams are appended as flat records
+ * to memory-mapped data files and located through an index keyed by the cache key,
+ * which is saved periodically and at exit. When the size budget is exceeded, the oldest
+ * data file is dropped together with the streams it holds. A stream read from the older
+ * half of the files is appended again, such that what gets dropped is what was used least
+ * recently. The mappings are only touched under the class lock, such that they can be
+ * unmapped before their files are deleted.
+ */
 public class JPIPCacheManager {
 
-    private static final File levelCacheDir = new File(JHVDirectory.CACHE.getFile(), "JPIPLevel-2");
-    private static final File streamCacheDir = new File(JHVDirectory.CACHE.getFile(), "JPIPStream-2");
+    private static final int VERSION = 3;
+    private static final int FILE_SIZE = 64 * 1024 * 1024;
+    private static final int MAX_FILES = 128; // 8GB
+    private static final int SEGMENT_HEADER = 4 + 8 + 4 + 4 + 1;
+    private static final long SAVE_INTERVAL = 60; // seconds
+
+    private static final File cacheDir = new File(JHVDirectory.CACHE.getFile(), "JPIPStream-3");
+    private static final File indexFile = new File(cacheDir, "index");
 
-    private static PersistentCacheManager levelManager;
-    private static PersistentCacheManager streamManager;
-    private static Cache<Long, Integer> levelCache;
-    private static Cache<Long, JPIPStream> streamCache;
+    private static final HashMap<Long, Entry> index = new HashMap<>();
+    private static final ArrayDeque<DataFile> files = new ArrayDeque<>(); // oldest first
     private static Thread hook;
+    private static boolean dirty;
+
+    private static long hits;
+    private static long misses;
+    private static long bytesRead;
+    private static long bytesWritten;
+
+    private static class Entry {
+
+        final int level;
+        final int file;
+        final int position;
+        final int length;
+
+        Entry(int _level, int _file, int _position, int _length) {
+            level = _level;
+            file = _file;
+            position = _position;
+            length = _length;
+        }
+
+    }
+
+    private static class DataFile {
+
+        final int id;
+        final MappedByteBuffer buffer;
+        int position;
+
+        DataFile(int _id, int _position) throws IOException {
+            id = _id;
+            position = _position;
+            try (FileChannel channel = FileChannel.open(getFile(id).toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE); // stays valid after close
+            }
+        }
+
+        static File getFile(int id) {
+            return new File(cacheDir, id + ".dat");
+        }
+
+        // otherwise the file cannot be deleted on Windows until the buffer is collected
+        void unmap() {
+            try {
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                unsafeClass.getMethod("invokeCleaner", ByteBuffer.class).invoke(theUnsafe.get(null), buffer);
+            } catch (NoSuchMethodException e) { // Java 8
+                try {
+                    Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                    cleanerMethod.setAccessible(true);
+                    Object cleaner = cleanerMethod.invoke(buffer);
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+                } catch (Exception ignore) {
+                }
+            } catch (Exception ignore) {
+            }
+        }
+
+    }
 
-    public static void init() {
-        deleteDirs("JPIPLevel", "JPIPStream"); // delete old versions
-
-        ExpiryPolicy<Object, Object> expiryPolicy = ExpiryPolicyBuilder.timeToIdleExpiration(Duration.ofDays(7));
-
-        levelManager = CacheManagerBuilder.newCacheManagerBuilder()
-                .with(CacheManagerBuilder.persistence(levelCacheDir))
-                .withCache("JPIPLevel", CacheConfigurationBuilder
-                        .newCacheConfigurationBuilder(Long.class, Integer.class,
-                                ResourcePoolsBuilder.newResourcePoolsBuilder()
-                                        .heap(10000, EntryUnit.ENTRIES)
-                                        .disk(10, MemoryUnit.MB, true))
-                        .withExpiry(expiryPolicy))
-                .build(true);
-        streamManager = CacheManagerBuilder.newCacheManagerBuilder()
-                .with(CacheManagerBuilder.persistence(streamCacheDir))
-                .withCache("JPIPStream", CacheConfigurationBuilder
-                        .newCacheConfigurationBuilder(Long.class, JPIPStream.class,
-                                ResourcePoolsBuilder.newResourcePoolsBuilder()
-                                        .disk(8, MemoryUnit.GB, true))
-                        .withExpiry(expiryPolicy))
-                .build(true);
+    public static synchronized void init() {
+        deleteDirs("JPIPLevel", "JPIPStream", "JPIPLevel-2", "JPIPStream-2"); // delete old versions
+
+        try {
+            Files.createDirectories(cacheDir.toPath());
+            if (!loadIndex())
+                reset();
+        } catch (Exception e) {
+            Log.error("JPIP cache index could not be loaded", e);
+            reset();
+        }
 
         if (hook == null) {
             hook = new Thread(JPIPCacheManager::close);
             Runtime.getRuntime().addShutdownHook(hook);
+            // such that a crash loses only the streams of the last interval
+            JHVGlobals.getReaperService().scheduleWithFixedDelay(JPIPCacheManager::save, SAVE_INTERVAL, SAVE_INTERVAL, TimeUnit.SECONDS);
+        }
+    }
+
+    private static boolean loadIndex() throws IOException {
+        if (!indexFile.exists())
+            return false;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile.toPath())))) {
+            if (in.readInt() != VERSION)
+                return false;
+
+            int numFiles = in.readInt();
+            for (int i = 0; i < numFiles; i++) {
+                int id = in.readInt();
+                int position = in.readInt();
+                if (DataFile.getFile(id).exists())
+                    files.add(new DataFile(id, position));
+            }
+
+            int numEntries = in.readInt();
+            for (int i = 0; i < numEntries; i++) {
+                long key = in.readLong();
+                Entry entry = new Entry(in.readInt(), in.readInt(), in.readInt(), in.readInt());
+                if (getDataFile(entry.file) != null)
+                    index.put(key, entry);
+            }
         }
 
-        streamCache = streamManager.getCache("JPIPStream", Long.class, JPIPStream.class);
-        levelCache = levelManager.getCache("JPIPLevel", Long.class, Integer.class);
+        // the index may be older than the data files, but these are append-only and never reused,
+        // therefore an index left over from before a crash is still valid
+        File[] list = cacheDir.listFiles((dir, name) -> name.endsWith(".dat"));
+        if (list != null) {
+            for (File f : list) { // orphans
+                if (files.stream().noneMatch(df -> DataFile.getFile(df.id).equals(f)))
+                    Files.deleteIfExists(f.toPath());
+            }
+        }
+        return true;
     }
 
-    @Nullable
-    public static JPIPStream get(long key, int level) {
+    private static void reset() {
+        index.clear();
+        files.forEach(DataFile::unmap);
+        files.clear();
+        dirty = false;
         try {
-            Integer clevel = levelCache.get(key);
-            if (clevel != null && clevel <= level)
-                return streamCache.get(key);
+            FileUtils.deleteDir(cacheDir);
+            Files.createDirectories(cacheDir.toPath());
+        } catch (Exception e) {
+            Log.error("JPIP cache reset error", e);
+        }
+    }
+
+    @Nullable
+    private static DataFile getDataFile(int id) {
+        for (DataFile df : files)
+            if (df.id == id)
+                return df;
+        return null;
+    }
+
+    // feeds the stored segments into the cache, returns whether found
+    public static boolean get(long key, int level, JPIPCache cache, int frame) {
+        ByteBuffer record = read(key, level);
+        if (record == null)
+            return false;
+
+        try { // outside the lock, Kakadu may take a while
+            cache.put(frame, record);
+            return true;
         } catch (Exception e) { // might get interrupted
             e.printStackTrace();
         }
-        return null;
+        return false;
     }
 
-    public static void put(long key, int level, @Nonnull JPIPStream stream) {
-        if (key != 0) {
+    // copied out of the mapping, which may be unmapped once the lock is released
+    @Nullable
+    private static synchronized ByteBuffer read(long key, int level) {
+        Entry entry = index.get(key);
+        if (entry == null || entry.level > level) {
+            misses++;
+            return null;
+        }
+
+        DataFile df = getDataFile(entry.file);
+        if (df == null) {
+            index.remove(key);
+            misses++;
+            return null;
+        }
+
+        ByteBuffer mapped = df.buffer.duplicate();
+        mapped.limit(entry.position + entry.length);
+        mapped.position(entry.position);
+        ByteBuffer record = ByteBuffer.allocate(entry.length);
+        record.put(mapped).flip();
+        hits++;
+        bytesRead += entry.length;
+
+        if (isOld(df)) { // keep it away from eviction
             try {
-                Integer clevel = levelCache.get(key);
-                if (clevel == null || clevel > level) {
-                    levelCache.put(key, level);
-                    streamCache.put(key, stream);
-                }
+                append(key, entry.level, record.duplicate());
             } catch (Exception e) {
                 e.printStackTrace();
             }
         }
+        return record;
+    }
+
+    private static boolean isOld(DataFile df) {
+        int i = 0;
+        for (DataFile f : files) {
+            if (f == df)
+                return i < files.size() / 2;
+            i++;
+        }
+        return false;
+    }
+
+    private static void append(long key, int level, ByteBuffer data) throws IOException {
+        int length = data.remaining();
+        DataFile df = reserve(length);
+        ByteBuffer record = df.buffer.duplicate();
+        record.position(df.position);
+        record.put(data);
+
+        index.put(key, new Entry(level, df.id, df.position, length));
+        df.position += length;
+        bytesWritten += length;
+        dirty = true;
+    }
+
+    public static synchronized void put(long key, int level, @Nonnull JPIPStream stream) {
+        if (key == 0)
+            return;
+        Entry entry = index.get(key);
+        if (entry != null && entry.level <= level)
+            return;
+
+        int length = 0;
+        for (JPIPSegment seg : stream.segments)
+            length += SEGMENT_HEADER + seg.length;
+        if (length > FILE_SIZE)
+            return;
+
+        try {
+            DataFile df = reserve(length);
+            ByteBuffer record = df.buffer.duplicate();
+            record.position(df.position);
+            for (JPIPSegment seg : stream.segments) {
+                record.putInt(seg.klassID).putLong(seg.binID).putInt(seg.offset).putInt(seg.length).put((byte) (seg.isFinal ? 1 : 0));
+                if (seg.length > 0)
+                    record.put(seg.data, 0, seg.length);
+            }
+
+            index.put(key, new Entry(level, df.id, df.position, length));
+            df.position += length;
+            bytesWritten += length;
+            dirty = true;
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static DataFile reserve(int length) throws IOException {
+        DataFile df = files.peekLast();
+        if (df == null || df.position + length > FILE_SIZE)
+            df = addDataFile();
+        return df;
+    }
+
+    private static DataFile addDataFile() throws IOException {
+        DataFile last = files.peekLast();
+        int id = last == null ? 0 : last.id + 1;
+
+        while (files.size() >= MAX_FILES) { // drop the oldest
+            DataFile oldest = files.removeFirst();
+            index.values().removeIf(e -> e.file == oldest.id);
+            oldest.unmap();
+            if (!DataFile.getFile(oldest.id).delete())
+                DataFile.getFile(oldest.id).deleteOnExit();
+        }
+
+        DataFile df = new DataFile(id, 0);
+        files.add(df);
+        return df;
+    }
+
+    private static synchronized void saveIndex() throws IOException {
+        if (!cacheDir.exists())
+            return;
+
+        File tmp = new File(cacheDir, "index.tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp.toPath())))) {
+            out.writeInt(VERSION);
+            out.writeInt(files.size());
+            for (DataFile df : files) {
+                df.buffer.force();
+                out.writeInt(df.id);
+                out.writeInt(df.position);
+            }
+            out.writeInt(index.size());
+            for (HashMap.Entry<Long, Entry> e : index.entrySet()) {
+                Entry entry = e.getValue();
+                out.writeLong(e.getKey());
+                out.writeInt(entry.level);
+                out.writeInt(entry.file);
+                out.writeInt(entry.position);
+                out.writeInt(entry.length);
+            }
+        }
+        Files.move(tmp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        dirty = false;
     }
 
     private static void deleteDirs(String... dirs) {
@@ -97,35 +353,38 @@ public class JPIPCacheManager {
         }
     }
 
-    private static void close() {
+    private static synchronized void save() {
+        if (!dirty)
+            return;
         try {
-            levelManager.close();
-            streamManager.close();
+            saveIndex();
         } catch (Exception e) {
-            e.printStackTrace();
+            Log.error("JPIP cache index could not be saved", e);
         }
     }
 
-    public static void clear() {
-        close();
+    private static void close() {
         try {
-            levelManager.destroy();
-            streamManager.destroy();
+            saveIndex();
         } catch (Exception e) {
             e.printStackTrace();
         }
+    }
+
+    public static synchronized void clear() {
+        reset();
         init();
     }
 
-    public static long getSize() {
+    public static synchronized long getSize() {
         long size = 0;
-        try {
-            size += FileUtils.diskUsage(levelCacheDir);
-            size += FileUtils.diskUsage(streamCacheDir);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        for (DataFile df : files)
+            size += df.position;
         return size;
     }
 
+    public static synchronized String getStats() {
+        return String.format("JPIP streams: %d hits, %d misses, %.1fMB read, %.1fMB written", hits, misses, bytesRead / (1024 * 1024.), bytesWritten / (1024 * 1024.));
+    }
+
 }
@@ -1,6 +1,5 @@
 package org.helioviewer.jhv.view.j2k.io.jpip;
 
-import java.io.Serializable;
 //import java.nio.ByteBuffer;
 //import java.nio.ByteOrder;
 
@@ -13,9 +12,7 @@ import java.io.Serializable;
  * field and the EOR message body is stored in the <code>data</code> field.
  * @author Juan Pablo Garcia Ortiz
  */
-class JPIPSegment implements Serializable {
-
-    static final long serialVersionUID = 42L;
+class JPIPSegment {
 
     // The data-bin in-class identifier
     public long binID;
@@ -76,7 +76,8 @@ public class JPIPSocket extends HTTPSocket {
         }
     }
 
-    private void send(String queryStr) throws IOException {
+    // Writes the request without waiting for the response, which must be collected in order with receive()
+    public void send(String queryStr) throws IOException {
         // Add a necessary JPIP request field
         if (jpipChannelID != null && !queryStr.contains("cid=") && !queryStr.contains("cclose"))
             queryStr += "&cid=" + jpipChannelID;
@@ -94,6 +95,10 @@ public class JPIPSocket extends HTTPSocket {
 
     public JPIPResponse send(String queryStr, JPIPCache cache, int frame) throws KduException, IOException {
         send(queryStr);
+        return receive(cache, frame);
+    }
+
+    public JPIPResponse receive(JPIPCache cache, int frame) throws KduException, IOException {
         HTTPMessage res = recv();
         if (!"image/jpp-stream".equals(res.getHeader("Content-Type")))
             throw new IOException("Expected image/jpp-stream content");
@@ -4,6 +4,9 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.stream.IntStream;
 
 import javax.annotation.Nullable;
 
@@ -130,7 +133,13 @@ public class KakaduSource {
 
     private static final long[] xmlFilter = {Kdu_global.jp2_xml_4cc};
 
-    public void extractMetaData(MetaData[] metaDataList) throws Exception {
+    // frames already filled in are skipped, the XML of the others is parsed in parallel
+    public XMLMetaDataContainer[] extractMetaData(MetaData[] metaDataList) throws Exception {
+        XMLMetaDataContainer[] parsed = new XMLMetaDataContainer[metaDataList.length];
+        if (Arrays.stream(metaDataList).allMatch(Objects::nonNull))
+            return parsed;
+
+        String[] xml = new String[metaDataList.length];
         Jpx_meta_manager metaManager = jpxSrc.Access_meta_manager();
         Jpx_metanode node = new Jpx_metanode();
         int i = 0;
@@ -138,13 +147,26 @@ public class KakaduSource {
         Jp2_input_box xmlBox = new Jp2_input_box();
         while ((node = metaManager.Peek_and_clear_touched_nodes(1, xmlFilter, node)).Exists()) {
             if (i == metaDataList.length)
-                return;
-            if (node.Open_existing(xmlBox)) {
-                metaDataList[i] = new XMLMetaDataContainer(xmlBox2String(xmlBox)).getHVMetaData(i, true);
+                break;
+            if (metaDataList[i] == null && node.Open_existing(xmlBox)) {
+                xml[i] = xmlBox2String(xmlBox);
                 xmlBox.Close();
             }
             i++;
         }
+
+        Exception[] error = new Exception[1];
+        IntStream.range(0, xml.length).parallel().filter(j -> xml[j] != null).forEach(j -> {
+            try {
+                parsed[j] = new XMLMetaDataContainer(xml[j]);
+                metaDataList[j] = parsed[j].getHVMetaData(j, true);
+            } catch (Exception e) {
+                error[0] = e;
+            }
+        });
+        if (error[0] != null)
+            throw error[0];
+        return parsed;
     }
 
     public String extractXMLString(int frame) throws KduException {